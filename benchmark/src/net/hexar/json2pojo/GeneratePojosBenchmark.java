@@ -0,0 +1,191 @@
+package net.hexar.json2pojo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.codemodel.CodeWriter;
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JPackage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each stage of the POJO generation pipeline separately, over the documents in the checked-in corpus:
+ * parsing, inference, code model generation and source emission. Run {@link #main(String[])} to execute all of the
+ * benchmarks with the GC profiler, which reports allocation rates per stage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratePojosBenchmark {
+
+    //region PARAMETERS ------------------------------------------------------------------------------------------------
+
+    @Param({ "small", "deep", "wide", "huge-array" })
+    String mDocument;
+
+    @Param({ "false", "true" })
+    boolean mGenerateBuilders;
+
+    //endregion
+
+    //region STATE -----------------------------------------------------------------------------------------------------
+
+    private final JsonFactory mJsonFactory = new JsonFactory();
+    private GenerationOptions mOptions;
+    private String mJson;
+    private JsonNode mRootNode;
+    private InferredSchema mSchema;
+    private JCodeModel mCodeModel;
+
+    //endregion
+
+    //region SETUP -----------------------------------------------------------------------------------------------------
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        mOptions = new GenerationOptions.Builder().withGenerateBuilders(mGenerateBuilders).build();
+        mJson = readCorpus(mDocument);
+
+        // Prepare the input of every stage from the output of the previous one
+        mRootNode = new ObjectMapper().readTree(mJson);
+        mSchema = inferStreaming();
+        mCodeModel = generateCodeModel();
+    }
+
+    //endregion
+
+    //region BENCHMARKS ------------------------------------------------------------------------------------------------
+
+    /**
+     * Tokenizes the document without inference, as the baseline cost of reading the JSON text.
+     */
+    @Benchmark
+    public void parseTokens(Blackhole blackhole) throws IOException {
+        try (JsonParser parser = mJsonFactory.createParser(mJson)) {
+            while (parser.nextToken() != null) {
+                blackhole.consume(parser.getCurrentToken());
+            }
+        }
+    }
+
+    /**
+     * Parses the document into a tree, as required by {@link ParallelInference}.
+     */
+    @Benchmark
+    public JsonNode parseTree() throws IOException {
+        return new ObjectMapper().readTree(mJson);
+    }
+
+    /**
+     * Infers the schema from the JSON tokens, which includes tokenizing.
+     */
+    @Benchmark
+    public InferredSchema inferStreaming() throws IOException {
+        try (JsonParser parser = mJsonFactory.createParser(mJson)) {
+            return new StreamingInference(mOptions, new NameTable()).infer(parser, "Root");
+        }
+    }
+
+    /**
+     * Infers the schema from the parsed tree on the common fork-join pool.
+     */
+    @Benchmark
+    public InferredSchema inferParallel() {
+        return new ParallelInference(mOptions, new NameTable(), ForkJoinPool.commonPool()).infer(mRootNode, "Root");
+    }
+
+    /**
+     * Generates the classes, fields, accessors and builders of the inferred schema.
+     */
+    @Benchmark
+    public JCodeModel generateCodeModel() throws Exception {
+        return new GeneratePojos("com.example", null, ProgressListener.NONE).generateCodeModel(mSchema, mOptions);
+    }
+
+    /**
+     * Renders the generated code model to Java source, discarding the output.
+     */
+    @Benchmark
+    public void emitSources() throws IOException {
+        mCodeModel.build(new DiscardingCodeWriter());
+    }
+
+    //endregion
+
+    //region MAIN ------------------------------------------------------------------------------------------------------
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GeneratePojosBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    //endregion
+
+    //region HELPER METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Reads a document of the checked-in corpus from the classpath.
+     *
+     * @param name the name of the document, without extension.
+     * @return the JSON text.
+     * @throws IOException if the document could not be read.
+     */
+    private static String readCorpus(String name) throws IOException {
+        try (InputStream input = GeneratePojosBenchmark.class.getResourceAsStream("/corpus/" + name + ".json")) {
+            if (input == null) {
+                throw new FileNotFoundException("Corpus document not found: " + name);
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = input.read(buffer)) != -1; ) {
+                output.write(buffer, 0, read);
+            }
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    //endregion
+
+    //region INNER CLASSES ---------------------------------------------------------------------------------------------
+
+    /**
+     * A code writer which renders every file but throws the output away, so that no disk I/O is measured.
+     */
+    private static class DiscardingCodeWriter extends CodeWriter {
+        @Override
+        public OutputStream openBinary(JPackage pkg, String fileName) {
+            return new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    //endregion
+
+}
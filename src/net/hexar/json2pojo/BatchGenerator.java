@@ -0,0 +1,208 @@
+package net.hexar.json2pojo;
+
+import javax.lang.model.SourceVersion;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates Java POJO classes for a whole directory of JSON samples without the IDE. Every sample is generated by its
+ * own {@link GeneratePojos} instance on a bounded pool of worker threads, into its own sub-package so that samples
+ * sharing nested class names cannot overwrite each other. Samples whose names map to the same sub-package, such as
+ * {@code orders.json} and {@code orders.ndjson}, or {@code foo_bar.json} and {@code fooBar.json}, are not generated
+ * concurrently: only the first of them is generated, and the others fail.
+ */
+class BatchGenerator {
+
+    //region CONSTANTS -------------------------------------------------------------------------------------------------
+
+    private static final String SAMPLE_EXTENSION = ".json";
+    private static final String SCHEMA_EXTENSION = ".schema.json";
+
+    //endregion
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final String mBasePackage;
+    private final File mOutputRoot;
+    private final GenerationOptions mOptions;
+    private final int mParallelism;
+    private final Map<Path, List<NameTable.Collision>> mCollisions = new ConcurrentHashMap<>();
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a new batch generator.
+     *
+     * @param basePackage the package that the sample sub-packages are created in.
+     * @param outputRoot  the source root to write the generated classes to.
+     * @param options     the options to generate every sample with.
+     * @param parallelism the maximum number of samples to generate at the same time.
+     */
+    BatchGenerator(String basePackage, File outputRoot, GenerationOptions options, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        mBasePackage = basePackage;
+        mOutputRoot = outputRoot;
+        mOptions = options;
+        mParallelism = parallelism;
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Generates POJOs for every JSON sample in the given directory. A failing sample does not stop the others.
+     *
+     * @param sampleDir the directory containing the {@code .json} sample files, the {@code .schema.json} JSON Schema
+     *                  files, and the {@code .ndjson} or {@code .jsonl} files whose lines are samples of the same
+     *                  root class.
+     * @return the failure of each sample that could not be generated, in sample order; empty if all succeeded. A
+     * sample whose name does not map to a valid Java class and package name, or whose package was already taken by
+     * an earlier sample, fails with an {@link IllegalArgumentException}.
+     * @throws IOException          if the sample directory could not be listed.
+     * @throws InterruptedException if the calling thread was interrupted while waiting for the samples.
+     */
+    Map<Path, Exception> generate(Path sampleDir) throws IOException, InterruptedException {
+        List<Path> samples = findSamples(sampleDir);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(mParallelism, samples.size())));
+
+        try {
+            // Submit one task per sample, unless its name is not a valid Java name or an earlier sample is generated
+            // into the same package
+            Map<String, Path> packageSamples = new HashMap<>();
+            Map<Path, Future<?>> futures = new LinkedHashMap<>();
+            for (Path sample : samples) {
+                String samplePackage = getSamplePackage(sample);
+                String className = GeneratePojos.formatClassName(getSampleName(sample));
+                if (!SourceVersion.isName(className) || !SourceVersion.isName(samplePackage)) {
+                    futures.put(sample, failedFuture(new IllegalArgumentException("Cannot derive a valid class name "
+                            + "and package from " + sample.getFileName() + ": " + samplePackage + "." + className)));
+                    continue;
+                }
+                Path previous = packageSamples.putIfAbsent(samplePackage, sample);
+                if (previous != null) {
+                    futures.put(sample, failedFuture(new IllegalArgumentException(sample.getFileName()
+                            + " is generated into the same package as " + previous.getFileName())));
+                    continue;
+                }
+                futures.put(sample, executor.submit(() -> {
+                    generateSample(sample);
+                    return null;
+                }));
+            }
+
+            // Wait for all of them, collecting the failures
+            Map<Path, Exception> failures = new LinkedHashMap<>();
+            for (Map.Entry<Path, Future<?>> entry : futures.entrySet()) {
+                try {
+                    entry.getValue().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    failures.put(entry.getKey(), cause instanceof Exception ? (Exception) cause : e);
+                }
+            }
+            return failures;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the properties of each sample which were dropped because their field names collide with another
+     * property of the same class, in sample order.
+     */
+    Map<Path, List<NameTable.Collision>> getNameCollisions() {
+        return new TreeMap<>(mCollisions);
+    }
+
+    /**
+     * Lists the JSON sample files in the given directory, sorted by name.
+     *
+     * @param sampleDir the directory containing the sample files.
+     * @return the sorted list of sample files.
+     * @throws IOException if the directory could not be listed.
+     */
+    static List<Path> findSamples(Path sampleDir) throws IOException {
+        try (Stream<Path> files = Files.list(sampleDir)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> file.getFileName().toString().endsWith(SAMPLE_EXTENSION)
+                            || NdjsonInference.isNdjsonFile(file))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Returns the package that the classes of the given sample are generated in.
+     *
+     * @param sample the sample file.
+     * @return the fully qualified package name.
+     */
+    String getSamplePackage(Path sample) {
+        String segment = GeneratePojos.formatFieldName(getSampleName(sample), false).toLowerCase(Locale.ENGLISH);
+        return mBasePackage.isEmpty() ? segment : mBasePackage + "." + segment;
+    }
+
+    //endregion
+
+    //region PRIVATE METHODS -------------------------------------------------------------------------------------------
+
+    /**
+     * @return a future which already failed with the given exception.
+     */
+    private static CompletableFuture<?> failedFuture(Exception exception) {
+        CompletableFuture<?> failure = new CompletableFuture<>();
+        failure.completeExceptionally(exception);
+        return failure;
+    }
+
+    /**
+     * Generates the POJOs for a single sample file.
+     *
+     * @param sample the sample file.
+     * @throws Exception if an error occurs.
+     */
+    private void generateSample(Path sample) throws Exception {
+        String rootName = getSampleName(sample);
+        GeneratePojos generatePojos = new GeneratePojos(getSamplePackage(sample), mOutputRoot, ProgressListener.NONE);
+        if (NdjsonInference.isNdjsonFile(sample)) {
+            generatePojos.generateFromNdjson(rootName, sample, mOptions);
+        } else if (sample.getFileName().toString().endsWith(SCHEMA_EXTENSION)) {
+            generatePojos.generateFromJsonSchemaFile(rootName, sample, mOptions);
+        } else {
+            generatePojos.generateFromFile(rootName, sample, mOptions);
+        }
+
+        // Keep the name collisions for reporting
+        List<NameTable.Collision> collisions = generatePojos.getNameCollisions();
+        if (!collisions.isEmpty()) {
+            mCollisions.put(sample, collisions);
+        }
+    }
+
+    /**
+     * Returns the name of the given sample file without its extension.
+     *
+     * @param sample the sample file.
+     * @return the sample name.
+     */
+    private static String getSampleName(Path sample) {
+        String fileName = sample.getFileName().toString();
+        int extensionLength = fileName.endsWith(SCHEMA_EXTENSION)
+                ? SCHEMA_EXTENSION.length() : fileName.length() - fileName.lastIndexOf('.');
+        return fileName.substring(0, fileName.length() - extensionLength);
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,60 @@
+package net.hexar.json2pojo;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An input stream over the remaining bytes of a {@link ByteBuffer}, such as a memory-mapped file, which lets the JSON
+ * parser read the buffer without copying it into a string first.
+ */
+class ByteBufferInputStream extends InputStream {
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final ByteBuffer mBuffer;
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+        mBuffer = buffer;
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    @Override
+    public int read() {
+        return mBuffer.hasRemaining() ? mBuffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        } else if (!mBuffer.hasRemaining()) {
+            return -1;
+        }
+
+        int count = Math.min(length, mBuffer.remaining());
+        mBuffer.get(bytes, offset, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long count) {
+        int skipped = (int) Math.max(0, Math.min(count, mBuffer.remaining()));
+        mBuffer.position(mBuffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return mBuffer.remaining();
+    }
+
+    //endregion
+
+}
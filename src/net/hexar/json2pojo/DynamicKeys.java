@@ -0,0 +1,151 @@
+package net.hexar.json2pojo;
+
+/**
+ * Recognizes the keys of objects which are maps from identifiers to values rather than records with named properties,
+ * such as {@code {"users": {"1001": {...}, "1002": {...}}}}. Such keys can't be generated as fields, and every key
+ * would otherwise add a field to the class of the object, and a class of its own for every object value.
+ */
+final class DynamicKeys {
+
+    //region PUBLIC INTERFACES -----------------------------------------------------------------------------------------
+
+    /**
+     * The patterns of keys which are identifiers. All of the keys of a map must match the same pattern.
+     */
+    enum Pattern {
+        /**
+         * Integers, such as database IDs.
+         */
+        NUMERIC,
+
+        /**
+         * UUIDs in their canonical form, such as {@code 123e4567-e89b-12d3-a456-426614174000}.
+         */
+        UUID,
+
+        /**
+         * Hexadecimal strings of at least {@link #MIN_HASH_LENGTH} digits, such as digests and object IDs.
+         */
+        HASH
+    }
+
+    //endregion
+
+    //region CONSTANTS -------------------------------------------------------------------------------------------------
+
+    /**
+     * The minimum number of digits of a hash; shorter hexadecimal keys such as {@code "face"} may be words.
+     */
+    static final int MIN_HASH_LENGTH = 16;
+
+    private static final int UUID_LENGTH = 36;
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    private DynamicKeys() {
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the pattern of a key, trying the most specific pattern first.
+     *
+     * @param key the JSON property name.
+     * @return the pattern which the key matches, or null if it may be a property name.
+     */
+    static Pattern classify(String key) {
+        if (isNumeric(key)) {
+            return Pattern.NUMERIC;
+        } else if (isUuid(key)) {
+            return Pattern.UUID;
+        } else if (isHash(key)) {
+            return Pattern.HASH;
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if a key matches the pattern of the keys of a map; numeric keys are also hashes if they are long
+     * enough.
+     *
+     * @param pattern the pattern of the first key of the map.
+     * @param key     the JSON property name.
+     * @return true if the key matches the pattern.
+     */
+    static boolean matches(Pattern pattern, String key) {
+        switch (pattern) {
+            case NUMERIC:
+                return isNumeric(key);
+            case UUID:
+                return isUuid(key);
+            default:
+                return isHash(key);
+        }
+    }
+
+    /**
+     * Returns the name of the class of object values of a map, or of the elements of array values.
+     *
+     * @param names     the name table of the current run.
+     * @param className the formatted name of the class the map would otherwise be generated as.
+     * @return the singular form of the name, or the name followed by {@code Value} if it has no singular form.
+     */
+    static String getValueClassName(NameTable names, String className) {
+        String valueClassName = names.get(className).getElementClassName();
+        return valueClassName.isEmpty() || valueClassName.equals(className) ? className + "Value" : valueClassName;
+    }
+
+    //endregion
+
+    //region PRIVATE METHODS -------------------------------------------------------------------------------------------
+
+    private static boolean isNumeric(String key) {
+        int start = key.startsWith("-") ? 1 : 0;
+        if (key.length() == start) {
+            return false;
+        }
+        for (int i = start; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isUuid(String key) {
+        if (key.length() != UUID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            char c = key.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23 ? c != '-' : !isHexDigit(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHash(String key) {
+        if (key.length() < MIN_HASH_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (!isHexDigit(key.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHexDigit(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,41 @@
+package net.hexar.json2pojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Writes generated files directly to the file system, for headless generation.
+ */
+class FileSourceSink implements SourceSink {
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final File mOutputRoot;
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    FileSourceSink(File outputRoot) {
+        mOutputRoot = outputRoot;
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    @Override
+    public void write(Map<String, byte[]> files) throws IOException {
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            Path path = new File(mOutputRoot, file.getKey()).toPath();
+            Files.createDirectories(path.getParent());
+            Files.write(path, file.getValue());
+        }
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,102 @@
+package net.hexar.json2pojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Persists the structural fingerprint of every generated class of a package between runs, in a file next to the
+ * generated sources. A class whose fingerprint is unchanged does not need to be generated again.
+ */
+class FingerprintStore {
+
+    //region CONSTANTS -------------------------------------------------------------------------------------------------
+
+    static final String FILE_NAME = ".json2pojo-fingerprints";
+
+    private static final String HEADER = "# Generated by Json2Pojo, used to skip classes whose shape is unchanged";
+
+    //endregion
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final Map<String, String> mFingerprints = new TreeMap<>();
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    /**
+     * Loads the fingerprints of the given package directory, if there are any.
+     *
+     * @param packageDir the directory of the generated package.
+     * @return the fingerprint store of the package.
+     * @throws IOException if the fingerprint file exists but could not be read.
+     */
+    static FingerprintStore load(File packageDir) throws IOException {
+        FingerprintStore store = new FingerprintStore();
+        File file = new File(packageDir, FILE_NAME);
+        if (file.isFile()) {
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                int separator = line.indexOf('=');
+                if (!line.startsWith("#") && separator > 0) {
+                    store.mFingerprints.put(line.substring(0, separator), line.substring(separator + 1));
+                }
+            }
+        }
+        return store;
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Computes the fingerprint of the canonical description of a class.
+     *
+     * @param canonicalForm a description of everything that the generated source of the class depends on.
+     * @return the fingerprint, as a hex string.
+     */
+    static String fingerprint(String canonicalForm) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonicalForm.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Records the fingerprint of a class.
+     *
+     * @param className   the name of the class.
+     * @param fingerprint the fingerprint of the class.
+     * @return true if the fingerprint differs from the one of the previous run.
+     */
+    boolean update(String className, String fingerprint) {
+        return !fingerprint.equals(mFingerprints.put(className, fingerprint));
+    }
+
+    /**
+     * @return the content of the fingerprint file, to be written back to the package directory.
+     */
+    byte[] toByteArray() {
+        StringBuilder content = new StringBuilder(HEADER).append('\n');
+        for (Map.Entry<String, String> fingerprint : mFingerprints.entrySet()) {
+            content.append(fingerprint.getKey()).append('=').append(fingerprint.getValue()).append('\n');
+        }
+        return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    //endregion
+
+}
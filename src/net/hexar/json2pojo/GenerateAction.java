@@ -1,17 +1,24 @@
 package net.hexar.json2pojo;
 
-import com.intellij.ide.projectView.ProjectView;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.LangDataKeys;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.vfs.VirtualFile;
+import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
 
+import javax.swing.*;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * A custom IntelliJ action which loads a dialog which will generate Java POJO classes from a given JSON text.
  */
@@ -34,21 +41,45 @@ public class GenerateAction extends AnAction {
             String packageName = ProjectRootManager.getInstance(project).getFileIndex().getPackageNameByDirectory(actionFolder);
 
             // Show JSON dialog
-            JsonEntryDialog dialog = new JsonEntryDialog((className, jsonText, generateBuilders, useMPrefix) -> {
-                // Show background process indicator
-                ProgressManager.getInstance().run(new Task.Backgroundable(project, "Json2Pojo Class Generation", false) {
+            JsonEntryDialog dialog = new JsonEntryDialog((className, json, jsonFile, options) -> {
+                // Only hold the parsed tree in a holder, so that it can be released before the classes are generated
+                AtomicReference<JsonNode> jsonHolder = new AtomicReference<>(json);
+
+                // Show cancellable background process indicator
+                ProgressManager.getInstance().run(new Task.Backgroundable(project, "Json2Pojo Class Generation", true) {
                     @Override
                     public void run(@NotNull ProgressIndicator indicator) {
                         // Generate POJOs
-                        GeneratePojos generatePojos = new GeneratePojos(packageName, moduleSourceRoot, indicator);
-                        generatePojos.generateFromJson(className, jsonText, generateBuilders, useMPrefix);
-
-                        // Refresh UI
+                        GeneratePojos generatePojos = new GeneratePojos(packageName,
+                                new File(moduleSourceRoot.getPath()), new IndicatorProgressListener(indicator),
+                                new VfsSourceSink(project, moduleSourceRoot));
                         try {
-                            Thread.sleep(100);
-                            ProjectView.getInstance(project).refresh();
-                            actionFolder.refresh(false, true);
-                        } catch (InterruptedException ignored) { }
+                            if (jsonFile != null && NdjsonInference.isNdjsonFile(jsonFile)) {
+                                generatePojos.generateFromNdjson(className, jsonFile, options);
+                            } else if (jsonFile != null) {
+                                generatePojos.generateFromFile(className, jsonFile, options);
+                            } else if (JsonSchemaInference.isJsonSchema(jsonHolder.get())) {
+                                generatePojos.generateFromJsonSchema(className, jsonHolder.getAndSet(null), options);
+                            } else {
+                                // The dialog already parsed the pasted text to validate it, so inference reuses the
+                                // tree in parallel instead of parsing the text again, and reports progress by the
+                                // share of visited values
+                                generatePojos.generateFromTree(className, jsonHolder, options);
+                            }
+
+                            // Warn about properties that could not be generated
+                            List<NameTable.Collision> collisions = generatePojos.getNameCollisions();
+                            if (!collisions.isEmpty()) {
+                                JOptionPane.showMessageDialog(null, StringUtils.join(collisions, "\n"),
+                                        "Colliding Property Names", JOptionPane.WARNING_MESSAGE);
+                            }
+                        } catch (ProcessCanceledException e) {
+                            // Canceled by the user, before any file was written
+                        } catch (Exception e) {
+                            JOptionPane.showMessageDialog(null, e.toString(), "Codegen Failed",
+                                    JOptionPane.ERROR_MESSAGE);
+                            e.printStackTrace();
+                        }
                     }
                 });
             });
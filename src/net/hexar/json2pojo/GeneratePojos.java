@@ -1,55 +1,83 @@
 package net.hexar.json2pojo;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.gson.annotations.Expose;
-import com.google.gson.annotations.SerializedName;
-import com.intellij.openapi.progress.ProgressIndicator;
-import com.intellij.openapi.vfs.VirtualFile;
-import com.sun.codemodel.*;
+import net.hexar.json2pojo.GenerationMetrics.Phase;
+import com.sun.codemodel.JCodeModel;
 import org.apache.commons.lang.StringUtils;
-import org.jboss.dna.common.text.Inflector;
 
-import javax.annotation.Generated;
-import javax.swing.*;
 import java.io.File;
-import java.util.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Contains the code to generate Java POJO classes from a given JSON text.
+ * Contains the code to generate Java POJO classes from a given JSON text. This class does not depend on the IDE, so
+ * it can be driven by {@link GenerateAction} as well as by {@link BatchGenerator}.
+ * <p>
+ * Generation runs in separate stages: inference turns the input into an immutable {@link SchemaModel}, after which
+ * the input is released, and {@link PojoEmitter} turns the model into a code model which is written by an
+ * {@link IncrementalCodeWriter}. The wall time and allocations of every stage are measured by
+ * {@link GenerationMetrics}.
  */
 class GeneratePojos {
 
     //region CONSTANTS -------------------------------------------------------------------------------------------------
 
-    private static final boolean ALWAYS_ANNOTATE_EXPOSE = false;
+    /**
+     * The overall fractions at which inference and code model generation end; the rest is taken by writing sources.
+     */
+    private static final double INFERENCE_PROGRESS = 0.5;
+    private static final double CODE_MODEL_PROGRESS = 0.8;
 
     //endregion
 
     //region ACTION CONTEXT --------------------------------------------------------------------------------------------
 
-    private final VirtualFile mModuleSourceRoot;
+    private final File mOutputRoot;
     private final String mPackageName;
-    private final ProgressIndicator mProgressBar;
+    private final ProgressListener mProgressListener;
+    private final SourceSink mSourceSink;
 
     //endregion
 
     //region CLASS MAP -------------------------------------------------------------------------------------------------
 
-    private Map<String, JDefinedClass> mClassMap = new HashMap<>();
-    private JType mDeferredClass;
-    private JType mDeferredList;
-    private FieldComparator mFieldComparator;
-    private Map<JDefinedClass, Set<FieldInfo>> mFieldMap = new HashMap<>();
+    private final NameTable mNames = new NameTable();
+    private Set<String> mUnchangedClasses = new HashSet<>();
+    private GenerationMetrics mMetrics = new GenerationMetrics("", 0);
 
     //endregion
 
     //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
 
-    GeneratePojos(String packageName, VirtualFile moduleSourceRoot, ProgressIndicator progressBar) {
-        mModuleSourceRoot = moduleSourceRoot;
+    GeneratePojos(String packageName, File outputRoot, ProgressListener progressListener) {
+        this(packageName, outputRoot, progressListener, new FileSourceSink(outputRoot));
+    }
+
+    /**
+     * Creates a generator which hands the generated files to the given sink instead of writing them directly.
+     *
+     * @param packageName      the package of the generated classes.
+     * @param outputRoot       the source root the classes are generated in.
+     * @param progressListener the listener to report progress to, and to check for cancellation.
+     * @param sourceSink       the sink which writes the changed files.
+     */
+    GeneratePojos(String packageName, File outputRoot, ProgressListener progressListener, SourceSink sourceSink) {
+        mOutputRoot = outputRoot;
         mPackageName = packageName;
-        mProgressBar = progressBar;
+        mProgressListener = progressListener;
+        mSourceSink = sourceSink;
     }
 
     //endregion
@@ -59,447 +87,292 @@ class GeneratePojos {
     /**
      * Generates POJOs from a source JSON text.
      *
-     * @param rootName         the name of the root class to generate.
-     * @param json             the source JSON text.
-     * @param generateBuilders true if the generated class should omit setters and generate a builder instead.
-     * @param useMPrefix       true if the generated fields should use an 'm' prefix.
+     * @param rootName the name of the root class to generate.
+     * @param json     the source JSON text.
+     * @param options  the generation options.
+     * @throws Exception if the JSON text could not be parsed or the classes could not be written.
      */
-    void generateFromJson(String rootName, String json, boolean generateBuilders, boolean useMPrefix) {
-        mFieldComparator = new FieldComparator(useMPrefix);
-
-        try {
-            // Create code model and package
-            JCodeModel jCodeModel = new JCodeModel();
-            JPackage jPackage = jCodeModel._package(mPackageName);
-
-            // Create deferrable types
-            mDeferredClass = jCodeModel.ref(Deferred.class);
-            mDeferredList = jCodeModel.ref(List.class).narrow(Deferred.class);
-
-            // Parse the JSON data
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(json);
-
-            // Recursively generate
-            generate(rootNode, formatClassName(rootName), jPackage, generateBuilders, useMPrefix);
-
-            // Build
-            jCodeModel.build(new File(mModuleSourceRoot.getPath()));
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(null, e.toString(), "Codegen Failed", JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
+    void generateFromJson(String rootName, String json, GenerationOptions options) throws Exception {
+        startRun(rootName);
+
+        // Stream the JSON tokens, so that the document is never materialized as a tree
+        SchemaModel model;
+        try (JsonParser parser = new JsonFactory().createParser(json)) {
+            model = inferFromParser(rootName, parser, json.length(), options);
         }
+        generateFromModel(model, options);
     }
 
     /**
-     * Generates all of the sub-objects and fields for a given class.
+     * Generates POJOs from a JSON file. The file is memory-mapped and streamed into the parser, so that it is never
+     * copied into a string. The file is closed before the classes are generated.
      *
-     * @param rootNode         the JSON class node in the JSON syntax tree.
-     * @param rootName         the name of the root class to generate.
-     * @param jPackage         the code model package to generate the class in.
-     * @param generateBuilders true if the generated class should omit setters and generate a builder instead.
-     * @param useMPrefix       true if the generated fields should use an 'm' prefix.
-     * @throws Exception if an error occurs.
+     * @param rootName the name of the root class to generate.
+     * @param jsonFile the source JSON file.
+     * @param options  the generation options.
+     * @throws Exception if the file could not be read or parsed, or the classes could not be written.
      */
-    private void generate(JsonNode rootNode, String rootName, JPackage jPackage, boolean generateBuilders,
-                          boolean useMPrefix) throws Exception {
-        // First create all referenced sub-types and collect field data
-        parseObject(rootNode, rootName, jPackage);
-
-        // Now create the actual fields
-        int i = 1;
-        for (JDefinedClass clazz : mClassMap.values()) {
-            // Generate the fields
-            List<GeneratedField> fields = generateFields(clazz, mFieldMap.get(clazz), jPackage.owner(),
-                    generateBuilders, useMPrefix);
-
-            // Optionally generate the inner builder class
-            if (generateBuilders) {
-                generateBuilder(clazz, fields);
+    void generateFromFile(String rootName, Path jsonFile, GenerationOptions options) throws Exception {
+        startRun(rootName);
+        SchemaModel model;
+        try (FileChannel channel = FileChannel.open(jsonFile, StandardOpenOption.READ)) {
+            // Files that are too large to be mapped at once are read through the channel instead
+            long size = channel.size();
+            InputStream input = size <= Integer.MAX_VALUE
+                    ? new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, size))
+                    : Channels.newInputStream(channel);
+
+            try (JsonParser parser = new JsonFactory().createParser(input)) {
+                model = inferFromParser(rootName, parser, size, options);
             }
-
-            // Update progress
-            mProgressBar.setFraction((double) i / (double) mClassMap.size());
-            i++;
         }
+        generateFromModel(model, options);
     }
 
     /**
-     * Generates all of the sub-objects for a given class.
+     * Generates POJOs from a JSON Schema document instead of a sample, so that generation time depends only on the
+     * size of the schema.
      *
-     * @param classNode the JSON object node in the JSON syntax tree.
-     * @param className the name of the class to create for this node.
-     * @param jPackage  the code model package to generate the class in.
-     * @throws Exception if an error occurs.
+     * @param rootName   the name of the root class to generate.
+     * @param rootSchema the root node of the JSON Schema document.
+     * @param options    the generation options.
+     * @throws Exception if the schema contains unresolvable references or the classes could not be written.
      */
-    private void parseObject(JsonNode classNode, String className, JPackage jPackage) throws Exception {
-        // Find the class if it exists, or create it if it doesn't
-        JDefinedClass clazz;
-        if (mClassMap.containsKey(className)) {
-            clazz = mClassMap.get(className);
-        } else {
-            clazz = jPackage._class(className);
-            annotateClass(clazz);
-            mClassMap.put(className, clazz);
-            mFieldMap.put(clazz, new TreeSet<>(mFieldComparator));
-        }
-
-        // Iterate over all of the fields in this object
-        Iterator<Map.Entry<String, JsonNode>> fieldsIterator = classNode.fields();
-        while (fieldsIterator.hasNext()) {
-            // Get the field name and child node
-            Map.Entry<String, JsonNode> entry = fieldsIterator.next();
-            String childProperty = entry.getKey();
-            JsonNode childNode = entry.getValue();
-
-            // Recurse into objects and arrays
-            if (childNode.isObject()) {
-                String childName = formatClassName(childProperty);
-                parseObject(childNode, childName, jPackage);
-            } else if (childNode.isArray()) {
-                String childName = formatClassName(Inflector.getInstance().singularize(childProperty));
-                parseArray(childNode, childName, jPackage);
-            }
-
-            // Now attempt to create the field and add it to the field set
-            FieldInfo field = getFieldInfoFromNode(childNode, childProperty, jPackage.owner());
-            if (field != null) {
-                mFieldMap.get(clazz).add(field);
-            }
-        }
+    void generateFromJsonSchema(String rootName, JsonNode rootSchema, GenerationOptions options) throws Exception {
+        startRun(rootName);
+        generateFromModel(inferFromJsonSchema(rootName, rootSchema, options), options);
     }
 
     /**
-     * Generates all of the sub-objects for a given array node.
+     * Generates POJOs from a JSON Schema file, which is read into a tree first.
      *
-     * @param arrayNode the JSON array node in the JSON syntax tree.
-     * @param className the formatted name of the class we might generate from this array.
-     * @param jPackage  the code model package to generate the class in.
-     * @throws Exception if an error occurs.
+     * @param rootName   the name of the root class to generate.
+     * @param schemaFile the JSON Schema file.
+     * @param options    the generation options.
+     * @throws Exception if the file could not be read or parsed, the schema contains unresolvable references or the
+     *                   classes could not be written.
      */
-    private void parseArray(JsonNode arrayNode, String className, JPackage jPackage) throws Exception {
-        // Retrieve the first non-null element of the array
-        Iterator<JsonNode> elementsIterator = arrayNode.elements();
-        while (elementsIterator.hasNext()) {
-            JsonNode element = elementsIterator.next();
-
-            // Recurse on the first object or array
-            if (element.isObject()) {
-                parseObject(element, className, jPackage);
-                break;
-            } else if (element.isArray()) {
-                parseArray(element, className, jPackage);
-                break;
-            }
+    void generateFromJsonSchemaFile(String rootName, Path schemaFile, GenerationOptions options) throws Exception {
+        startRun(rootName);
+        mMetrics.startPhase(Phase.PARSE);
+        JsonNode rootSchema;
+        try (JsonParser parser = new JsonFactory().createParser(schemaFile.toFile())) {
+            rootSchema = JsonTreeReader.readTree(parser);
         }
+        if (rootSchema == null) {
+            throw new IOException("No JSON Schema in " + schemaFile);
+        }
+        generateFromModel(inferFromJsonSchema(rootName, rootSchema, options), options);
     }
 
     /**
-     * Creates a field in the given class.
+     * Generates POJOs from a newline-delimited JSON file, in which every line is a record of the root class. Chunks of
+     * the file are inferred in parallel on the common fork-join pool.
      *
-     * @param node         the JSON node describing the field.
-     * @param propertyName the name of the field to create.
-     * @param jCodeModel   the code model to use for generation.
-     * @return a {@link FieldInfo} representing the new field.
-     * @throws Exception if an error occurs.
+     * @param rootName   the name of the root class to generate.
+     * @param ndjsonFile the source newline-delimited JSON file.
+     * @param options    the generation options.
+     * @throws Exception if the file could not be read or parsed, or the classes could not be written.
      */
-    private FieldInfo getFieldInfoFromNode(JsonNode node, String propertyName, JCodeModel jCodeModel) throws Exception {
-        // Switch on node type
-        if (node.isArray()) {
-            // Singularize the class name of a single element
-            String newClassName = formatClassName(Inflector.getInstance().singularize(propertyName));
-
-            // Get the array type
-            if (node.elements().hasNext()) {
-                JsonNode firstNode = node.elements().next();
-                if (firstNode.isObject()) {
-                    // Get the already-created class from the class map
-                    JDefinedClass newClass = mClassMap.get(newClassName);
-
-                    // Now return the field referring to a list of the new class
-                    return new FieldInfo(jCodeModel.ref(List.class).narrow(newClass), propertyName);
-                } else if (firstNode.isArray()) {
-                    // Recurse to get the field info of this node
-                    FieldInfo fi = getFieldInfoFromNode(firstNode, propertyName, jCodeModel);
-
-                    // Make a List<> of the recursed type
-                    return new FieldInfo(jCodeModel.ref(List.class).narrow(fi.Type), propertyName);
-                } else if (firstNode.isFloatingPointNumber()) {
-                    // Now return the field referring to a list of doubles
-                    return new FieldInfo(jCodeModel.ref(List.class).narrow(Double.class), propertyName);
-                } else if (firstNode.isIntegralNumber()) {
-                    // Now return the field referring to a list of longs
-                    return new FieldInfo(jCodeModel.ref(List.class).narrow(Long.class), propertyName);
-                } else if (firstNode.isNull()) {
-                    // Null values? Return List<Deferred>.
-                    return new FieldInfo(mDeferredList, propertyName);
-                } else if (firstNode.isTextual()) {
-                    // Now return the field referring to a list of strings
-                    return new FieldInfo(jCodeModel.ref(List.class).narrow(String.class), propertyName);
-                }
-            } else {
-                // No elements? Return List<Deferred>.
-                return new FieldInfo(mDeferredList, propertyName);
-            }
-        } else if (node.isBoolean()) {
-            return new FieldInfo(jCodeModel.ref(Boolean.class), propertyName);
-        } else if (node.isFloatingPointNumber()) {
-            return new FieldInfo(jCodeModel.ref(Double.class), propertyName);
-        } else if (node.isIntegralNumber()) {
-            return new FieldInfo(jCodeModel.ref(Long.class), propertyName);
-        } else if (node.isNull()) {
-            // Defer the type reference until later
-            return new FieldInfo(mDeferredClass, propertyName);
-        } else if (node.isObject()) {
-            // Get the already-created class from the class map
-            String newClassName = formatClassName(propertyName);
-            JDefinedClass newClass = mClassMap.get(newClassName);
-
-            // Now return the field as a defined class
-            return new FieldInfo(newClass, propertyName);
-        } else if (node.isTextual()) {
-            return new FieldInfo(jCodeModel.ref(String.class), propertyName);
-        }
-
-        // If all else fails, return null
-        return null;
+    void generateFromNdjson(String rootName, Path ndjsonFile, GenerationOptions options) throws Exception {
+        startRun(rootName);
+        mMetrics.startPhase(Phase.INFER);
+        ProgressListener inferenceProgress = mProgressListener.startPhase("Inferring classes", 0, INFERENCE_PROGRESS);
+        NdjsonInference inference = new NdjsonInference(options, mNames, ForkJoinPool.commonPool(), inferenceProgress,
+                NdjsonInference.CHUNK_SIZE);
+        InferredSchema schema = inference.infer(ndjsonFile, formatClassName(rootName));
+        mMetrics.countValues(inference.getValueCount());
+        generateFromModel(createModel(schema, options), options);
     }
 
     /**
-     * Generates all of the fields for a given class.
+     * Generates POJOs from a JSON tree that has already been parsed, so the parse phase is not measured. Inference runs
+     * in parallel on the common fork-join pool. The tree is taken out of its holder, and is no longer referenced once
+     * the classes were inferred, so that it can be collected while the classes are generated.
      *
-     * @param clazz            the class to generate sub-objects and fields for.
-     * @param fields           the set of fields to generate.
-     * @param jCodeModel       the code model.
-     * @param generateBuilders true if the generated class should omit setters and generate a builder instead.
-     * @param useMPrefix       true if the generated fields should use an 'm' prefix.
-     * @return a list of generated fields.
-     * @throws Exception if an error occurs.
+     * @param rootName the name of the root class to generate.
+     * @param rootNode the holder of the root node of the JSON tree, which is cleared.
+     * @param options  the generation options.
+     * @throws Exception if the classes could not be written.
      */
-    private List<GeneratedField> generateFields(JDefinedClass clazz, Set<FieldInfo> fields, JCodeModel jCodeModel,
-                                                boolean generateBuilders, boolean useMPrefix) throws Exception {
-        List<GeneratedField> generatedFields = new ArrayList<>();
-
-        // Get sorted list of field names
-        for (FieldInfo fieldInfo : fields) {
-            // Create field with correct naming scheme
-            String fieldName = formatFieldName(fieldInfo.PropertyName, useMPrefix);
-
-            // Resolve deferred types
-            JFieldVar newField;
-            if (fieldInfo.Type.equals(mDeferredClass)) {
-                // Attempt to get the class from the class map
-                String newClassName = formatClassName(fieldInfo.PropertyName);
-                JDefinedClass newClass = mClassMap.get(newClassName);
-
-                // Now return the field for the actual class type
-                if (newClass != null) {
-                    newField = clazz.field(JMod.PRIVATE, newClass, fieldName);
-                } else {
-                    // Otherwise, just make a field of type Object
-                    newField = clazz.field(JMod.PRIVATE, jCodeModel.ref(Object.class), fieldName);
-                }
-            } else if (fieldInfo.Type.equals(mDeferredList)) {
-                // Attempt to get the class from the class map
-                String newClassName = formatClassName(Inflector.getInstance().singularize(fieldInfo.PropertyName));
-                JDefinedClass newClass = mClassMap.get(newClassName);
-
-                // Now return the field referring to a list of the new class
-                if (newClass != null) {
-                    newField = clazz.field(JMod.PRIVATE, jCodeModel.ref(List.class).narrow(newClass), fieldName);
-                } else {
-                    // Otherwise, just make a field of type List<Object>
-                    newField = clazz.field(JMod.PRIVATE, jCodeModel.ref(List.class).narrow(Object.class), fieldName);
-                }
-            } else {
-                // The type should already be defined so just use it
-                newField = clazz.field(JMod.PRIVATE, fieldInfo.Type, fieldName);
-            }
-
-            if (newField != null) {
-                // Annotate field
-                annotateField(newField, fieldInfo.PropertyName);
-
-                // Create getter
-                createGetter(clazz, newField, fieldInfo.PropertyName);
-
-                // Create setter method only if we're not generating a builder class
-                if (!generateBuilders) {
-                    createSetter(clazz, newField, fieldInfo.PropertyName);
-                }
-
-                // Add field to return list
-                generatedFields.add(new GeneratedField(newField, fieldInfo.PropertyName));
-            }
-        }
-
-        return generatedFields;
+    void generateFromTree(String rootName, AtomicReference<JsonNode> rootNode, GenerationOptions options)
+            throws Exception {
+        generateFromModel(inferFromTree(rootName, rootNode.getAndSet(null), options), options);
     }
 
     /**
-     * Generates the inner builder class for the containing class, with methods for the given fields.
+     * Infers the classes of a JSON tree that has already been parsed, without generating them. Inference runs in
+     * parallel on the common fork-join pool.
      *
-     * @param clazz  the class to generate a builder class in.
-     * @param fields the list of generated fields to build.
-     * @throws Exception if an error occurs.
+     * @param rootName the name of the root class to generate.
+     * @param rootNode the root node of the JSON tree.
+     * @param options  the generation options.
+     * @return the model of the inferred classes, which does not refer to the tree.
      */
-    private void generateBuilder(JDefinedClass clazz, List<GeneratedField> fields) throws Exception {
-        // Create the builder first
-        JDefinedClass builder = clazz._class(JMod.PUBLIC | JMod.STATIC, "Builder");
-
-        // Get sorted list of field names
-        for (GeneratedField generatedField : fields) {
-            // Create the new field
-            builder.field(JMod.PRIVATE, generatedField.Field.type(), generatedField.Field.name());
+    SchemaModel inferFromTree(String rootName, JsonNode rootNode, GenerationOptions options) {
+        startRun(rootName);
+        mMetrics.startPhase(Phase.INFER);
+        ProgressListener inferenceProgress = mProgressListener.startPhase("Inferring classes", 0, INFERENCE_PROGRESS);
+        ParallelInference inference = new ParallelInference(options, mNames, ForkJoinPool.commonPool(),
+                inferenceProgress);
+        InferredSchema schema = inference.infer(rootNode, formatClassName(rootName));
+        mMetrics.countValues(inference.getValueCount());
+        return createModel(schema, options);
+    }
 
-            // Create the builder setter method
-            createBuilderSetter(builder, generatedField.Field, generatedField.PropertyName);
+    /**
+     * Generates POJOs for the classes of a model and writes them to the output root, followed by the report of the
+     * run if the options ask for one.
+     *
+     * @param model   the classes to generate.
+     * @param options the generation options.
+     * @throws Exception if the classes could not be written.
+     */
+    void generateFromModel(SchemaModel model, GenerationOptions options) throws Exception {
+        // Load the fingerprints of the previous run
+        String packagePath = IncrementalCodeWriter.getPackagePath(mPackageName);
+        File packageDir = new File(mOutputRoot, packagePath);
+        FingerprintStore fingerprints = options.isIncremental() ? FingerprintStore.load(packageDir) : null;
+
+        // Generate the classes
+        mMetrics.countModel(model);
+        mMetrics.startPhase(Phase.CODEGEN);
+        PojoEmitter emitter = new PojoEmitter(mPackageName, options, mNames);
+        mNames.clearCollisions();
+        JCodeModel jCodeModel = emitter.emit(model, fingerprints, packageDir, mProgressListener.startPhase(
+                "Generating classes", INFERENCE_PROGRESS, CODE_MODEL_PROGRESS));
+        mUnchangedClasses = emitter.getUnchangedClasses();
+
+        // Build, only collecting the files whose content changed
+        mMetrics.startPhase(Phase.WRITE);
+        ProgressListener writeProgress = mProgressListener.startPhase("Writing sources", CODE_MODEL_PROGRESS, 1);
+        IncrementalCodeWriter codeWriter = new IncrementalCodeWriter(mOutputRoot, mSourceSink, mUnchangedClasses,
+                writeProgress, jCodeModel.countArtifacts());
+        jCodeModel.build(codeWriter);
+
+        // Remember the fingerprints for the next run, last in the same batch as the sources, so that classes are only
+        // skipped by the next run if all of the sources were written
+        if (fingerprints != null) {
+            codeWriter.writeFile(packagePath + FingerprintStore.FILE_NAME, fingerprints.toByteArray());
+        }
+        codeWriter.commit();
+        mMetrics.countInflectorCalls(mNames.getInflectorCalls());
+        mMetrics.countFiles(codeWriter.getWrittenFiles().size(), codeWriter.getUnchangedFiles(),
+                codeWriter.getWrittenBytes());
+        mMetrics.finish();
+
+        // The report is written in a batch of its own, so that it covers writing the sources
+        if (options.isWriteReport()) {
+            mSourceSink.write(Collections.singletonMap(packagePath + GenerationMetrics.REPORT_FILE_NAME,
+                    mMetrics.toJson()));
         }
-
-        // Create the build method
-        createBuildMethod(clazz, builder, fields);
     }
 
-    //endregion
-
-    //region HELPER METHODS --------------------------------------------------------------------------------------------
-
     /**
-     * Adds the {@link Generated} annotation to the class.
+     * Generates the code model of the inferred classes, without writing it.
      *
-     * @param clazz the class to annotate.
+     * @param schema  the inferred classes.
+     * @param options the generation options.
+     * @return the code model containing all of the generated classes.
+     * @throws Exception if an error occurs.
      */
-    private static void annotateClass(JDefinedClass clazz) {
-        clazz.annotate(Generated.class).param("value", "net.hexar.json2pojo");
-        clazz.annotate(SuppressWarnings.class).param("value", "unused");
+    JCodeModel generateCodeModel(InferredSchema schema, GenerationOptions options) throws Exception {
+        PojoEmitter emitter = new PojoEmitter(mPackageName, options, mNames);
+        mNames.clearCollisions();
+        JCodeModel jCodeModel = emitter.emit(createModel(schema, options), mProgressListener);
+        mUnchangedClasses = emitter.getUnchangedClasses();
+        return jCodeModel;
     }
 
     /**
-     * Adds the {@link Expose} annotation and potentially the {@link SerializedName} annotation to a given
-     * field - the latter is applied only if the property name differs from the field name.
-     *
-     * @param field        the field to annotate.
-     * @param propertyName the original JSON property name.
+     * @return the properties which were dropped during the last generation because their field names collide with
+     * another property of the same class.
      */
-    private static void annotateField(JFieldVar field, String propertyName) {
-        // Use the SerializedName annotation if the field name doesn't match the property name
-        if (!field.name().equals(propertyName)) {
-            field.annotate(SerializedName.class).param("value", propertyName);
-
-            // If we always add @Expose, then add this too
-            if (ALWAYS_ANNOTATE_EXPOSE) {
-                field.annotate(Expose.class);
-            }
-        } else {
-            // Otherwise, just add @Expose
-            field.annotate(Expose.class);
-        }
+    List<NameTable.Collision> getNameCollisions() {
+        return mNames.getCollisions();
     }
 
     /**
-     * Generates a builder method for the given class, field, and property name.
-     *
-     * @param builder      the class to generate a builder method in.
-     * @param field        the field to set.
-     * @param propertyName the name of the property.
-     * @return a {@link JMethod} which is a builder method for the given field.
+     * @return the names of the classes which were not generated again during the last generation because their
+     * shape did not change since the previous run.
      */
-    private static JMethod createBuilderSetter(JDefinedClass builder, JFieldVar field, String propertyName) {
-        // Method name should start with "set" and then the uppercased class name
-        JMethod withMethod = builder.method(JMod.PUBLIC, builder, "with" + formatClassName(propertyName));
-
-        // Set parameter name to lower camel case
-        String paramName = sanitizePropertyName(propertyName);
-        JVar param = withMethod.param(field.type(), paramName);
-
-        // Assign to field name
-        JBlock body = withMethod.body();
-        if (field.name().equals(paramName)) {
-            // Assign this.FieldName = paramName
-            body.assign(JExpr._this().ref(field), param);
-        } else {
-            // Safe to just assign FieldName = paramName
-            body.assign(field, param);
-        }
-        body._return(JExpr._this());
-        return withMethod;
+    Set<String> getUnchangedClasses() {
+        return Collections.unmodifiableSet(mUnchangedClasses);
     }
 
     /**
-     * Creates the build method for the builder.
-     *
-     * @param owner   the containing class to build.
-     * @param builder the builder to generate the build method for.
-     * @param fields  the list of generated fields that the containing class owns.
+     * @return the metrics of the last generation.
      */
-    private JMethod createBuildMethod(JDefinedClass owner, JDefinedClass builder, List<GeneratedField> fields) {
-        // Method name should start with "set" and then the uppercased class name
-        JMethod buildMethod = builder.method(JMod.PUBLIC, owner, "build");
+    GenerationMetrics getMetrics() {
+        return mMetrics;
+    }
 
-        // Assign to field name
-        JBlock body = buildMethod.body();
+    //endregion
 
-        // Declare new instance of owner class
-        String localName = sanitizePropertyName(owner.name());
-        JVar local = body.decl(owner, localName, JExpr._new(owner));
+    //region PRIVATE METHODS -------------------------------------------------------------------------------------------
 
-        // Get sorted list of field names
-        for (GeneratedField field : fields) {
-            // Assign the field in the owner class
-            body.assign(local.ref(field.Field.name()), JExpr.ref(field.Field.name()));
-        }
+    /**
+     * Infers the classes from the tokens of a JSON parser.
+     *
+     * @param rootName    the name of the root class to generate.
+     * @param parser      the JSON parser, positioned before the root value.
+     * @param inputLength the length of the input in characters or bytes, to report progress.
+     * @param options     the generation options.
+     * @return the model of the inferred classes.
+     * @throws Exception if the JSON text could not be parsed.
+     */
+    private SchemaModel inferFromParser(String rootName, JsonParser parser, long inputLength,
+                                        GenerationOptions options) throws Exception {
+        // The input is parsed while it is inferred, so parsing is measured as part of inference
+        mMetrics.startPhase(Phase.INFER);
+        ProgressListener inferenceProgress = mProgressListener.startPhase("Inferring classes", 0, INFERENCE_PROGRESS);
+        StreamingInference inference = new StreamingInference(options, mNames, inferenceProgress, inputLength);
+        InferredSchema schema = inference.infer(parser, formatClassName(rootName));
+        mMetrics.countValues(inference.getValueCount());
+        return createModel(schema, options);
+    }
 
-        // Return the new instance
-        body._return(local);
-        return buildMethod;
+    /**
+     * Maps the classes of a JSON Schema document.
+     *
+     * @param rootName   the name of the root class to generate.
+     * @param rootSchema the root node of the JSON Schema document.
+     * @param options    the generation options.
+     * @return the model of the mapped classes.
+     * @throws Exception if the schema contains unresolvable references.
+     */
+    private SchemaModel inferFromJsonSchema(String rootName, JsonNode rootSchema, GenerationOptions options)
+            throws Exception {
+        mMetrics.startPhase(Phase.INFER);
+        mProgressListener.startPhase("Reading schema", 0, INFERENCE_PROGRESS);
+        return createModel(new JsonSchemaInference(options, mNames).infer(rootSchema, formatClassName(rootName)),
+                options);
     }
 
     /**
-     * Generates a getter for the given class, field, and property name.
+     * Starts measuring a new run.
      *
-     * @param clazz        the class to generate a getter in.
-     * @param field        the field to return.
-     * @param propertyName the name of the property.
-     * @return a {@link JMethod} which is a getter for the given field.
+     * @param rootName the name of the root class to generate.
      */
-    private static JMethod createGetter(JDefinedClass clazz, JFieldVar field, String propertyName) {
-        // Method name should start with "get" and then the uppercased class name
-        JMethod getter = clazz.method(JMod.PUBLIC, field.type(), "get" + formatClassName(propertyName));
-
-        // Return the field
-        JBlock body = getter.body();
-        body._return(field);
-        return getter;
+    private void startRun(String rootName) {
+        mMetrics = new GenerationMetrics(formatClassName(rootName), mNames.getInflectorCalls());
     }
 
     /**
-     * Generates a setter for the given class, field, and property name.
+     * Freezes the inferred classes into a model, optionally generating identical shapes as a single class.
      *
-     * @param clazz        the class to generate a setter in.
-     * @param field        the field to set.
-     * @param propertyName the name of the property.
-     * @return a {@link JMethod} which is a setter for the given field.
+     * @param schema  the inferred classes.
+     * @param options the generation options.
+     * @return the model of the classes to generate.
      */
-    private static JMethod createSetter(JDefinedClass clazz, JFieldVar field, String propertyName) {
-        // Method name should start with "set" and then the uppercased class name
-        JMethod setter = clazz.method(JMod.PUBLIC, void.class, "set" + formatClassName(propertyName));
-
-        // Set parameter name to lower camel case
-        String paramName = sanitizePropertyName(propertyName);
-        JVar param = setter.param(field.type(), paramName);
-
-        // Assign to field name
-        JBlock body = setter.body();
-        if (field.name().equals(paramName)) {
-            // Assign this.FieldName = paramName
-            body.assign(JExpr._this().ref(field), param);
-        } else {
-            // Safe to just assign FieldName = paramName
-            body.assign(field, param);
-        }
-        return setter;
+    private static SchemaModel createModel(InferredSchema schema, GenerationOptions options) {
+        return SchemaModel.of(options.isDeduplicateShapes() ? StructuralDeduplication.deduplicate(schema) : schema);
     }
 
+    //endregion
+
+    //region HELPER METHODS --------------------------------------------------------------------------------------------
+
     /**
      * Formats the given property name into a more standard class name.
      *
@@ -526,6 +399,41 @@ class GeneratePojos {
         return fieldName;
     }
 
+    /**
+     * Formats the given string value into an enum constant name, in upper case with underscores between words.
+     *
+     * @param value the original string value.
+     * @return the formatted constant name, or {@code EMPTY} if the value has no letters or digits.
+     */
+    static String formatConstantName(String value) {
+        StringBuilder constantName = new StringBuilder();
+        boolean separateNext = false;
+        char previous = 0;
+        for (int charIndex = 0; charIndex < value.length(); charIndex++) {
+            char c = value.charAt(charIndex);
+            if (Character.isLetterOrDigit(c)) {
+                // Separate words at non-alphanumeric characters and at lower to upper case changes
+                if (constantName.length() > 0
+                        && (separateNext || (Character.isUpperCase(c) && Character.isLowerCase(previous)))) {
+                    constantName.append('_');
+                }
+                constantName.append(Character.toUpperCase(c));
+                separateNext = false;
+            } else {
+                separateNext = true;
+            }
+            previous = c;
+        }
+
+        // Avoid invalid starting characters
+        if (constantName.length() == 0) {
+            return "EMPTY";
+        } else if (!Character.isJavaIdentifierStart(constantName.charAt(0))) {
+            constantName.insert(0, '_');
+        }
+        return constantName.toString();
+    }
+
     /**
      * Given a property name as a string, creates a valid identifier by removing non-alphanumeric characters and
      * uppercasing the letters after non-alphanumeric characters.
@@ -533,7 +441,7 @@ class GeneratePojos {
      * @param propertyName the property name to format.
      * @return a String containing uppercased words, with underscores removed.
      */
-    private static String sanitizePropertyName(String propertyName) {
+    static String sanitizePropertyName(String propertyName) {
         final StringBuilder formattedName = new StringBuilder();
         boolean uppercaseNext = false;
 
@@ -567,61 +475,6 @@ class GeneratePojos {
         return formattedName.toString();
     }
 
-    //endregion
-
-    //region INNER CLASSES ---------------------------------------------------------------------------------------------
-
-    /**
-     * A class type that indicates that we don't yet know the type of data this field represents.
-     */
-    private static class Deferred {
-
-    }
-
-    /**
-     * A comparator that sorts field data objects by field name, case insensitive.
-     */
-    private static class FieldComparator implements Comparator<FieldInfo> {
-
-        private final boolean mUseMPrefix;
-
-        public FieldComparator(boolean useMPrefix) {
-            mUseMPrefix = useMPrefix;
-        }
-
-        @Override
-        public int compare(FieldInfo left, FieldInfo right) {
-            // Sort by formatted field name, not the property names
-            return formatFieldName(left.PropertyName, mUseMPrefix)
-                    .compareTo(formatFieldName(right.PropertyName, mUseMPrefix));
-        }
-    }
-
-    /**
-     * A simple representation of a field to be created.
-     */
-    private static class FieldInfo {
-        final JType Type;
-        final String PropertyName;
-
-        FieldInfo(JType type, String propertyName) {
-            Type = type;
-            PropertyName = propertyName;
-        }
-    }
-
-    /**
-     * A pair containing a generated {@link JFieldVar} field and its original property name.
-     */
-    private static class GeneratedField {
-        final JFieldVar Field;
-        final String PropertyName;
-
-        GeneratedField(JFieldVar field, String propertyName) {
-            Field = field;
-            PropertyName = propertyName;
-        }
-    }
 
     //endregion
 
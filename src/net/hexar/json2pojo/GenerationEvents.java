@@ -0,0 +1,135 @@
+package net.hexar.json2pojo;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The JDK Flight Recorder events of {@link GenerationMetrics}. Only this class refers to the Flight Recorder API, and
+ * its methods exchange events as plain objects, so that it is only loaded on runtimes which have Flight Recorder.
+ * Compiling it requires JDK 11 or later, or JDK 8u262 or later.
+ */
+final class GenerationEvents {
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    private GenerationEvents() {
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Begins the event of a phase.
+     *
+     * @return the event, to pass to {@link #commitPhase(Object, String, String, long)}.
+     */
+    static Object beginPhase() {
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the event of a phase and commits it if it is enabled and exceeds its threshold.
+     *
+     * @param phaseEvent     the event returned by {@link #beginPhase()}.
+     * @param rootClassName  the formatted name of the root class of the run.
+     * @param phase          the name of the phase.
+     * @param allocatedBytes the bytes allocated by the generating thread during the phase.
+     */
+    static void commitPhase(Object phaseEvent, String rootClassName, String phase, long allocatedBytes) {
+        PhaseEvent event = (PhaseEvent) phaseEvent;
+        event.end();
+        if (event.shouldCommit()) {
+            event.rootClass = rootClassName;
+            event.phase = phase;
+            event.allocatedBytes = allocatedBytes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Commits the event of a completed run, if it is enabled.
+     *
+     * @param metrics the metrics of the run.
+     */
+    static void commitGeneration(GenerationMetrics metrics) {
+        GenerationEvent event = new GenerationEvent();
+        if (event.shouldCommit()) {
+            event.rootClass = metrics.getRootClassName();
+            event.values = metrics.getValueCount();
+            event.objects = metrics.getObjectCount();
+            event.classes = metrics.getClassCount();
+            event.fields = metrics.getFieldCount();
+            event.inflectorCalls = metrics.getInflectorCalls();
+            event.filesWritten = metrics.getFilesWritten();
+            event.bytesWritten = metrics.getBytesWritten();
+            event.commit();
+        }
+    }
+
+    //endregion
+
+    //region INNER CLASSES ---------------------------------------------------------------------------------------------
+
+    /**
+     * A phase of a run, spanning its wall time.
+     */
+    @Name("net.hexar.json2pojo.GenerationPhase")
+    @Label("Generation Phase")
+    @Category("Json2Pojo")
+    @Description("A phase of generating POJOs")
+    static final class PhaseEvent extends Event {
+        @Label("Root Class")
+        String rootClass;
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+    }
+
+    /**
+     * The counters of a completed run.
+     */
+    @Name("net.hexar.json2pojo.Generation")
+    @Label("Generation")
+    @Category("Json2Pojo")
+    @Description("The sizes of the input and output of generating POJOs")
+    static final class GenerationEvent extends Event {
+        @Label("Root Class")
+        String rootClass;
+
+        @Label("Values")
+        long values;
+
+        @Label("Objects")
+        long objects;
+
+        @Label("Classes")
+        int classes;
+
+        @Label("Fields")
+        int fields;
+
+        @Label("Inflector Calls")
+        long inflectorCalls;
+
+        @Label("Files Written")
+        int filesWritten;
+
+        @Label("Bytes Written")
+        @DataAmount
+        long bytesWritten;
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,329 @@
+package net.hexar.json2pojo;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+/**
+ * Measures a single {@link GeneratePojos} run: the wall time and the bytes allocated by the generating thread in every
+ * phase, the size of the input and of the generated classes, and the number of files written. Every completed phase
+ * and run is also committed as a JDK Flight Recorder event where the runtime supports them, and the measurements can
+ * be written as a JSON report next to the generated sources.
+ * <p>
+ * Phases are measured on the thread that runs the generation, so the allocations of inference tasks on the fork-join
+ * pool are not included.
+ */
+final class GenerationMetrics {
+
+    //region PUBLIC INTERFACES -----------------------------------------------------------------------------------------
+
+    /**
+     * The phases of a run, in the order in which they run.
+     */
+    enum Phase {
+        /**
+         * Reading the input into a tree. Streamed inputs are parsed during inference instead.
+         */
+        PARSE,
+
+        /**
+         * Inferring the classes and freezing them into a model.
+         */
+        INFER,
+
+        /**
+         * Generating the code model.
+         */
+        CODEGEN,
+
+        /**
+         * Building the sources and writing the changed files.
+         */
+        WRITE;
+
+        /**
+         * @return the name of the phase in reports and events.
+         */
+        String getLabel() {
+            return name().toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    //endregion
+
+    //region CONSTANTS -------------------------------------------------------------------------------------------------
+
+    /**
+     * The name of the report file, which is written to the package directory of the generated classes.
+     */
+    static final String REPORT_FILE_NAME = ".json2pojo-report.json";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final boolean EVENTS_AVAILABLE = isClassAvailable("jdk.jfr.Event");
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = getAllocationMXBean();
+
+    //endregion
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final String mRootClassName;
+    private final long mInflectorCallsAtStart;
+    private final long[] mWallNanos = new long[Phase.values().length];
+    private final long[] mAllocatedBytes = new long[Phase.values().length];
+    private Phase mPhase;
+    private long mPhaseStartNanos;
+    private long mPhaseStartAllocatedBytes;
+    private Object mPhaseEvent;
+    private long mValueCount;
+    private long mObjectCount;
+    private int mClassCount;
+    private int mFieldCount;
+    private long mInflectorCalls;
+    private int mFilesWritten;
+    private int mFilesUnchanged;
+    private long mBytesWritten;
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates the metrics of a new run.
+     *
+     * @param rootClassName         the formatted name of the root class.
+     * @param inflectorCallsAtStart the number of inflector calls of the name table before the run.
+     */
+    GenerationMetrics(String rootClassName, long inflectorCallsAtStart) {
+        mRootClassName = rootClassName;
+        mInflectorCallsAtStart = inflectorCallsAtStart;
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Starts measuring a phase on the calling thread, ending the current phase if there is one. Phases which are
+     * started more than once are added up.
+     *
+     * @param phase the phase to start.
+     */
+    void startPhase(Phase phase) {
+        endPhase();
+        mPhase = phase;
+        mPhaseEvent = EVENTS_AVAILABLE ? GenerationEvents.beginPhase() : null;
+        mPhaseStartAllocatedBytes = getAllocatedBytes();
+        mPhaseStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Ends the current phase, if there is one, and commits its event.
+     */
+    void endPhase() {
+        if (mPhase == null) {
+            return;
+        }
+        long wallNanos = System.nanoTime() - mPhaseStartNanos;
+        long allocatedBytes = getAllocatedBytes() - mPhaseStartAllocatedBytes;
+        mWallNanos[mPhase.ordinal()] += wallNanos;
+        mAllocatedBytes[mPhase.ordinal()] += allocatedBytes;
+        if (mPhaseEvent != null) {
+            GenerationEvents.commitPhase(mPhaseEvent, mRootClassName, mPhase.getLabel(), allocatedBytes);
+        }
+        mPhase = null;
+        mPhaseEvent = null;
+    }
+
+    /**
+     * Ends the run and commits its event.
+     */
+    void finish() {
+        endPhase();
+        if (EVENTS_AVAILABLE) {
+            GenerationEvents.commitGeneration(this);
+        }
+    }
+
+    /**
+     * Adds the JSON values that inference visited.
+     *
+     * @param valueCount the number of values, including objects and arrays.
+     */
+    void countValues(long valueCount) {
+        mValueCount += valueCount;
+    }
+
+    /**
+     * Records the size of the model of the classes to generate.
+     *
+     * @param model the model of the classes.
+     */
+    void countModel(SchemaModel model) {
+        mClassCount = model.getClasses().size();
+        mFieldCount = model.getFieldCount();
+        mObjectCount = 0;
+        for (SchemaModel.ClassModel classModel : model.getClasses()) {
+            mObjectCount += classModel.ObjectCount;
+        }
+    }
+
+    /**
+     * Records the calls to the inflector which derived class names from property names during the run.
+     *
+     * @param inflectorCalls the number of inflector calls of the name table so far.
+     */
+    void countInflectorCalls(long inflectorCalls) {
+        mInflectorCalls = inflectorCalls - mInflectorCallsAtStart;
+    }
+
+    /**
+     * Records the files of the run.
+     *
+     * @param filesWritten   the number of files that were created or overwritten.
+     * @param filesUnchanged the number of files that already had the generated content.
+     * @param bytesWritten   the total size of the written files.
+     */
+    void countFiles(int filesWritten, int filesUnchanged, long bytesWritten) {
+        mFilesWritten = filesWritten;
+        mFilesUnchanged = filesUnchanged;
+        mBytesWritten = bytesWritten;
+    }
+
+    /**
+     * Returns the JSON report of the run, such as
+     * <pre>{"rootClass":"Order","phases":{"parse":{"wallNanos":0,"allocatedBytes":0},...},"values":120,...}</pre>
+     * The allocated bytes are -1 if the runtime can't measure them.
+     *
+     * @return the UTF-8 encoded report.
+     * @throws IOException if the report could not be encoded.
+     */
+    byte[] toJson() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8)) {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+            generator.writeStringField("rootClass", mRootClassName);
+            generator.writeObjectFieldStart("phases");
+            for (Phase phase : Phase.values()) {
+                generator.writeObjectFieldStart(phase.getLabel());
+                generator.writeNumberField("wallNanos", getWallNanos(phase));
+                generator.writeNumberField("allocatedBytes", getAllocatedBytes(phase));
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+            generator.writeNumberField("values", mValueCount);
+            generator.writeNumberField("objects", mObjectCount);
+            generator.writeNumberField("classes", mClassCount);
+            generator.writeNumberField("fields", mFieldCount);
+            generator.writeNumberField("inflectorCalls", mInflectorCalls);
+            generator.writeNumberField("filesWritten", mFilesWritten);
+            generator.writeNumberField("filesUnchanged", mFilesUnchanged);
+            generator.writeNumberField("bytesWritten", mBytesWritten);
+            generator.writeEndObject();
+        }
+        return output.toByteArray();
+    }
+
+    //endregion
+
+    //region ACCESSORS -------------------------------------------------------------------------------------------------
+
+    String getRootClassName() {
+        return mRootClassName;
+    }
+
+    long getWallNanos(Phase phase) {
+        return mWallNanos[phase.ordinal()];
+    }
+
+    /**
+     * @return the bytes allocated by the generating thread during the phase, or -1 if the runtime can't measure them.
+     */
+    long getAllocatedBytes(Phase phase) {
+        return THREAD_MX_BEAN != null ? mAllocatedBytes[phase.ordinal()] : -1;
+    }
+
+    long getValueCount() {
+        return mValueCount;
+    }
+
+    long getObjectCount() {
+        return mObjectCount;
+    }
+
+    int getClassCount() {
+        return mClassCount;
+    }
+
+    int getFieldCount() {
+        return mFieldCount;
+    }
+
+    long getInflectorCalls() {
+        return mInflectorCalls;
+    }
+
+    int getFilesWritten() {
+        return mFilesWritten;
+    }
+
+    int getFilesUnchanged() {
+        return mFilesUnchanged;
+    }
+
+    long getBytesWritten() {
+        return mBytesWritten;
+    }
+
+    //endregion
+
+    //region PRIVATE METHODS -------------------------------------------------------------------------------------------
+
+    /**
+     * @return the bytes allocated by the calling thread so far, or 0 if the runtime can't measure them.
+     */
+    private static long getAllocatedBytes() {
+        return THREAD_MX_BEAN != null ? THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    /**
+     * @return the HotSpot extension of the thread bean if it measures the bytes allocated by threads, or null.
+     */
+    private static com.sun.management.ThreadMXBean getAllocationMXBean() {
+        try {
+            ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+                if (allocationMXBean.isThreadAllocatedMemorySupported()
+                        && allocationMXBean.isThreadAllocatedMemoryEnabled()) {
+                    return allocationMXBean;
+                }
+            }
+        } catch (LinkageError e) {
+            // Not a HotSpot runtime
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a class is available without initializing it, so that the Flight Recorder event classes are
+     * only loaded on runtimes which have Flight Recorder.
+     */
+    private static boolean isClassAvailable(String className) {
+        try {
+            Class.forName(className, false, GenerationMetrics.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,430 @@
+package net.hexar.json2pojo;
+
+/**
+ * The options of a {@link GeneratePojos} run. Instances are immutable and created with a {@link Builder}.
+ */
+final class GenerationOptions {
+
+    //region CONSTANTS -------------------------------------------------------------------------------------------------
+
+    /**
+     * The default options: 'm' prefixed fields with setters, inferred from every array element.
+     */
+    static final GenerationOptions DEFAULT = new Builder().build();
+
+    private static final long SAMPLE_SEED = 0x4A534F4EL;
+
+    //endregion
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final boolean mGenerateBuilders;
+    private final boolean mUseMPrefix;
+    private final int mSampleHead;
+    private final double mSampleRate;
+    private final double mRecordSampleRate;
+    private final boolean mIncremental;
+    private final boolean mDeduplicateShapes;
+    private final boolean mUsePrimitives;
+    private final boolean mGenerateJacksonCodecs;
+    private final boolean mGenerateGsonAdapters;
+    private final boolean mImmutable;
+    private final boolean mNarrowNumbers;
+    private final int mMaxEnumValues;
+    private final int mMinMapKeys;
+    private final boolean mWriteReport;
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    private GenerationOptions(Builder builder) {
+        mGenerateBuilders = builder.mGenerateBuilders || builder.mImmutable;
+        mUseMPrefix = builder.mUseMPrefix;
+        mSampleHead = builder.mSampleHead;
+        mSampleRate = builder.mSampleRate;
+        mRecordSampleRate = builder.mRecordSampleRate;
+        mIncremental = builder.mIncremental;
+        mDeduplicateShapes = builder.mDeduplicateShapes;
+        mUsePrimitives = builder.mUsePrimitives;
+        mGenerateJacksonCodecs = builder.mGenerateJacksonCodecs;
+        mGenerateGsonAdapters = builder.mGenerateGsonAdapters;
+        mImmutable = builder.mImmutable;
+        mNarrowNumbers = builder.mNarrowNumbers;
+        mMaxEnumValues = builder.mMaxEnumValues;
+        mMinMapKeys = builder.mMinMapKeys;
+        mWriteReport = builder.mWriteReport;
+    }
+
+    //endregion
+
+    //region ACCESSORS -------------------------------------------------------------------------------------------------
+
+    /**
+     * @return true if the generated classes should omit setters and generate a builder instead; always true for
+     * immutable classes.
+     */
+    boolean isGenerateBuilders() {
+        return mGenerateBuilders;
+    }
+
+    /**
+     * @return true if the generated fields should use an 'm' prefix.
+     */
+    boolean isUseMPrefix() {
+        return mUseMPrefix;
+    }
+
+    /**
+     * @return the number of leading elements of every array that are always used for type inference.
+     */
+    int getSampleHead() {
+        return mSampleHead;
+    }
+
+    /**
+     * @return the probability with which each array element after the sample head is used for type inference.
+     */
+    double getSampleRate() {
+        return mSampleRate;
+    }
+
+    /**
+     * @return the probability with which each record of a newline-delimited JSON file is used for type inference.
+     */
+    double getRecordSampleRate() {
+        return mRecordSampleRate;
+    }
+
+    /**
+     * @return true if classes whose shape did not change since the previous run should not be generated again.
+     */
+    boolean isIncremental() {
+        return mIncremental;
+    }
+
+    /**
+     * @return true if structurally identical classes should be generated as a single class.
+     */
+    boolean isDeduplicateShapes() {
+        return mDeduplicateShapes;
+    }
+
+    /**
+     * @return true if values which were never null nor missing should be generated as primitive fields, and numeric
+     * arrays without nulls as primitive arrays.
+     */
+    boolean isUsePrimitives() {
+        return mUsePrimitives;
+    }
+
+    /**
+     * @return true if every generated class should contain a codec which reads and writes it with the Jackson
+     * streaming API.
+     */
+    boolean isGenerateJacksonCodecs() {
+        return mGenerateJacksonCodecs;
+    }
+
+    /**
+     * @return true if every generated class should contain a Gson type adapter, registered in a generated factory.
+     */
+    boolean isGenerateGsonAdapters() {
+        return mGenerateGsonAdapters;
+    }
+
+    /**
+     * @return true if the generated classes should have final fields set by their builder, and compare by value.
+     */
+    boolean isImmutable() {
+        return mImmutable;
+    }
+
+    /**
+     * @return true if numbers should be inferred as the narrowest of {@code int}, {@code long}, {@code float},
+     * {@code double} and {@code BigDecimal} that holds all of their sampled values.
+     */
+    boolean isNarrowNumbers() {
+        return mNarrowNumbers;
+    }
+
+    /**
+     * @return the maximum number of distinct values of a string property which is generated as an enum, or 0 if
+     * strings are never generated as enums.
+     */
+    int getMaxEnumValues() {
+        return mMaxEnumValues;
+    }
+
+    /**
+     * @return the minimum number of keys of an object whose keys all look like identifiers for it to be inferred as a
+     * map, or 0 if objects are always inferred as classes.
+     */
+    int getMinMapKeys() {
+        return mMinMapKeys;
+    }
+
+    /**
+     * @return true if the metrics of the run should be written as a JSON report next to the generated classes.
+     */
+    boolean isWriteReport() {
+        return mWriteReport;
+    }
+
+    /**
+     * Decides whether an array element is used for type inference. The decision only depends on the element index,
+     * so that every traversal order, including parallel ones, samples the same elements.
+     *
+     * @param index the index of the element in its array.
+     * @return true if the element should be inspected.
+     */
+    boolean isSampled(int index) {
+        if (index < mSampleHead) {
+            return true;
+        } else if (mSampleRate <= 0) {
+            return false;
+        }
+        return toFraction(index) < mSampleRate;
+    }
+
+    /**
+     * Decides whether a record of a newline-delimited JSON file is used for type inference. The decision only depends
+     * on the position of the record, so that it doesn't matter how the file is split into chunks.
+     *
+     * @param offset the byte offset of the record in its file.
+     * @return true if the record should be inspected.
+     */
+    boolean isRecordSampled(long offset) {
+        return mRecordSampleRate >= 1 || toFraction(offset) < mRecordSampleRate;
+    }
+
+    //endregion
+
+    //region PRIVATE METHODS -------------------------------------------------------------------------------------------
+
+    /**
+     * Scrambles a key into a uniformly distributed fraction.
+     *
+     * @param key the index or offset to scramble.
+     * @return a fraction between 0 inclusive and 1 exclusive.
+     */
+    private static double toFraction(long key) {
+        long hash = (key + SAMPLE_SEED) * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 32)) * 0xD6E8FEB86659FD93L;
+        hash ^= hash >>> 32;
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    //endregion
+
+    //region INNER CLASSES ---------------------------------------------------------------------------------------------
+
+    /**
+     * Builds {@link GenerationOptions} instances.
+     */
+    static class Builder {
+        private boolean mGenerateBuilders;
+        private boolean mUseMPrefix = true;
+        private int mSampleHead = Integer.MAX_VALUE;
+        private double mSampleRate;
+        private double mRecordSampleRate = 1;
+        private boolean mIncremental;
+        private boolean mDeduplicateShapes;
+        private boolean mUsePrimitives;
+        private boolean mGenerateJacksonCodecs;
+        private boolean mGenerateGsonAdapters;
+        private boolean mImmutable;
+        private boolean mNarrowNumbers;
+        private int mMaxEnumValues;
+        private int mMinMapKeys;
+        private boolean mWriteReport;
+
+        Builder withGenerateBuilders(boolean generateBuilders) {
+            mGenerateBuilders = generateBuilders;
+            return this;
+        }
+
+        Builder withUseMPrefix(boolean useMPrefix) {
+            mUseMPrefix = useMPrefix;
+            return this;
+        }
+
+        /**
+         * Limits type inference on large arrays to the first elements plus a random sample of the rest.
+         *
+         * @param sampleHead the number of leading elements of every array which are always inspected.
+         * @param sampleRate the probability with which each of the remaining elements is inspected.
+         * @return this builder.
+         */
+        Builder withSampling(int sampleHead, double sampleRate) {
+            if (sampleHead < 0) {
+                throw new IllegalArgumentException("sampleHead must not be negative");
+            }
+            if (sampleRate < 0 || sampleRate > 1) {
+                throw new IllegalArgumentException("sampleRate must be between 0 and 1");
+            }
+            mSampleHead = sampleHead;
+            mSampleRate = sampleRate;
+            return this;
+        }
+
+        /**
+         * Limits type inference on newline-delimited JSON files to a random sample of their records. Records which
+         * are not sampled are skipped without being parsed.
+         *
+         * @param recordSampleRate the probability with which each record is inspected.
+         * @return this builder.
+         */
+        Builder withRecordSampling(double recordSampleRate) {
+            if (recordSampleRate <= 0 || recordSampleRate > 1) {
+                throw new IllegalArgumentException("recordSampleRate must be greater than 0 and at most 1");
+            }
+            mRecordSampleRate = recordSampleRate;
+            return this;
+        }
+
+        /**
+         * Skips the generation of classes whose fingerprint matches the one recorded by the previous run in the same
+         * package directory.
+         *
+         * @param incremental true to record fingerprints and skip unchanged classes.
+         * @return this builder.
+         */
+        Builder withIncremental(boolean incremental) {
+            mIncremental = incremental;
+            return this;
+        }
+
+        /**
+         * Generates classes with the same property names and types, such as the same address object under different
+         * properties, as a single class.
+         *
+         * @param deduplicateShapes true to merge structurally identical classes.
+         * @return this builder.
+         */
+        Builder withDeduplicateShapes(boolean deduplicateShapes) {
+            mDeduplicateShapes = deduplicateShapes;
+            return this;
+        }
+
+        /**
+         * Generates {@code long}, {@code double} and {@code boolean} fields instead of their boxed types when the
+         * property was present and not null in every sampled object, and {@code long[]} or {@code double[]} instead
+         * of lists of numbers that never contain null.
+         *
+         * @param usePrimitives true to avoid boxed values where the samples allow it.
+         * @return this builder.
+         */
+        Builder withPrimitives(boolean usePrimitives) {
+            mUsePrimitives = usePrimitives;
+            return this;
+        }
+
+        /**
+         * Generates a nested {@code JsonCodec} class in every class, whose static {@code read} and {@code write}
+         * methods bind it with a {@code JsonParser} and {@code JsonGenerator} without reflection. The generated
+         * classes then depend on jackson-core.
+         *
+         * @param generateJacksonCodecs true to generate the codecs.
+         * @return this builder.
+         */
+        Builder withJacksonCodecs(boolean generateJacksonCodecs) {
+            mGenerateJacksonCodecs = generateJacksonCodecs;
+            return this;
+        }
+
+        /**
+         * Generates a nested {@code GsonTypeAdapter} class in every class, and a {@code TypeAdapterFactory} named
+         * after the root class which returns them, so that Gson binds the classes without reflection once the factory
+         * is registered.
+         *
+         * @param generateGsonAdapters true to generate the type adapters.
+         * @return this builder.
+         */
+        Builder withGsonAdapters(boolean generateGsonAdapters) {
+            mGenerateGsonAdapters = generateGsonAdapters;
+            return this;
+        }
+
+        /**
+         * Generates immutable classes, which are only created by their builder, so that they are safe to use as map
+         * keys and in sets: the fields are final, lists are copied into unmodifiable lists, arrays are copied in and
+         * out, and {@code equals} and a cached {@code hashCode} compare all fields. Implies builders.
+         *
+         * @param immutable true to generate immutable classes.
+         * @return this builder.
+         */
+        Builder withImmutable(boolean immutable) {
+            mImmutable = immutable;
+            return this;
+        }
+
+        /**
+         * Infers the narrowest numeric type that holds every sampled value of a property: {@code Integer} for
+         * integers within 32 bits, {@code Float} for decimals with at most 6 significant digits, and
+         * {@code BigDecimal} for integers beyond 64 bits and decimals which a double would round.
+         *
+         * @param narrowNumbers true to narrow numbers, false to use {@code Long} and {@code Double}.
+         * @return this builder.
+         */
+        Builder withNarrowNumbers(boolean narrowNumbers) {
+            mNarrowNumbers = narrowNumbers;
+            return this;
+        }
+
+        /**
+         * Generates string properties with few distinct values, such as a status or a currency, as a nested enum
+         * whose constants are annotated with the original values. Inference keeps track of at most the given number
+         * of distinct values per property; a property becomes an enum if it has no more values than that, and it was
+         * seen in more objects than it has values, so that a single sample does not turn every string into an enum.
+         *
+         * @param maxEnumValues the maximum number of enum constants, or 0 to always generate strings.
+         * @return this builder.
+         */
+        Builder withMaxEnumValues(int maxEnumValues) {
+            if (maxEnumValues < 0) {
+                throw new IllegalArgumentException("maxEnumValues must not be negative");
+            }
+            mMaxEnumValues = maxEnumValues;
+            return this;
+        }
+
+        /**
+         * Infers objects which use identifiers as keys, such as {@code {"1001": {...}, "1002": {...}}}, as a
+         * {@code Map<String, T>} instead of a class with a field per key. An object is a map if it has at least the
+         * given number of keys, all of its keys are numbers, UUIDs or hexadecimal hashes of the same kind, and the
+         * types of all of its values merge into one; the values of every such object under the same property are
+         * merged into one class, named after the singular form of the property.
+         *
+         * @param minMapKeys the minimum number of keys of a map, or 0 to always generate classes.
+         * @return this builder.
+         */
+        Builder withMinMapKeys(int minMapKeys) {
+            if (minMapKeys < 0) {
+                throw new IllegalArgumentException("minMapKeys must not be negative");
+            }
+            mMinMapKeys = minMapKeys;
+            return this;
+        }
+
+        /**
+         * Writes the metrics of every run, such as the wall time and allocated bytes of every phase and the number of
+         * generated classes and written bytes, as {@value GenerationMetrics#REPORT_FILE_NAME} in the package
+         * directory of the generated classes. The metrics are also emitted as Flight Recorder events either way.
+         *
+         * @param writeReport true to write the report.
+         * @return this builder.
+         */
+        Builder withReport(boolean writeReport) {
+            mWriteReport = writeReport;
+            return this;
+        }
+
+        GenerationOptions build() {
+            return new GenerationOptions(this);
+        }
+    }
+
+    //endregion
+
+}
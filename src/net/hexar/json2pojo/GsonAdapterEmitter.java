@@ -0,0 +1,593 @@
+package net.hexar.json2pojo;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.sun.codemodel.*;
+
+import javax.annotation.Generated;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Generates a nested Gson {@link TypeAdapter} for POJOs, and one {@link TypeAdapterFactory} which registers the
+ * adapters of all classes of a run. The adapters stream the properties and access the fields directly, so Gson no
+ * longer binds the classes through its reflective adapter.
+ */
+final class GsonAdapterEmitter {
+
+    //region CONSTANTS -------------------------------------------------------------------------------------------------
+
+    static final String ADAPTER_CLASS_NAME = "GsonTypeAdapter";
+    static final String FACTORY_CLASS_SUFFIX = "TypeAdapterFactory";
+
+    /**
+     * The initial capacity of the buffers primitive arrays are read into.
+     */
+    private static final int ARRAY_CAPACITY = 16;
+
+    //endregion
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final JCodeModel mCodeModel;
+    private final boolean mImmutable;
+    private final JClass mReaderClass;
+    private final JClass mWriterClass;
+    private final JClass mTokenClass;
+    private final Map<String, JMethod> mHelperMethods = new HashMap<>();
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates an emitter for one code model.
+     *
+     * @param codeModel the code model of the generated classes.
+     * @param immutable true if the generated classes are immutable, so that they are read through their builder.
+     */
+    GsonAdapterEmitter(JCodeModel codeModel, boolean immutable) {
+        mCodeModel = codeModel;
+        mImmutable = immutable;
+        mReaderClass = codeModel.ref(JsonReader.class);
+        mWriterClass = codeModel.ref(JsonWriter.class);
+        mTokenClass = codeModel.ref(JsonToken.class);
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Generates the read and write methods of the type adapter of a class.
+     *
+     * @param clazz  the class to generate the type adapter for.
+     * @param fields the generated fields of the class, each read and written under its original property name.
+     */
+    void generateAdapter(JDefinedClass clazz, List<PojoEmitter.GeneratedField> fields) {
+        JDefinedClass adapter = getAdapterClass(clazz);
+        generateRead(adapter, clazz, fields);
+        generateWrite(adapter, clazz, fields);
+    }
+
+    /**
+     * Generates the factory which returns the type adapters of the given classes. It is named after the root class,
+     * so that runs generating into the same package don't overwrite each other's factory.
+     *
+     * @param jPackage  the package of the generated classes.
+     * @param rootName  the name of the root class.
+     * @param classes   the classes whose type adapters the factory returns.
+     * @throws JClassAlreadyExistsException if a generated class has the name of the factory.
+     */
+    void generateFactory(JPackage jPackage, String rootName, Collection<JDefinedClass> classes)
+            throws JClassAlreadyExistsException {
+        JDefinedClass factory = jPackage._class(rootName + FACTORY_CLASS_SUFFIX);
+        factory._implements(TypeAdapterFactory.class);
+        factory.annotate(Generated.class).param("value", "net.hexar.json2pojo");
+
+        JMethod create = factory.method(JMod.PUBLIC, void.class, "create");
+        create.annotate(Override.class);
+        create.annotate(SuppressWarnings.class).param("value", "unchecked");
+        JTypeVar typeVariable = create.generify("T");
+        JClass adapterType = mCodeModel.ref(TypeAdapter.class).narrow(typeVariable);
+        create.type(adapterType);
+        create.param(Gson.class, "gson");
+        JVar type = create.param(mCodeModel.ref(TypeToken.class).narrow(typeVariable), "type");
+        JBlock body = create.body();
+
+        // Compare the raw type with every generated class
+        JVar rawType = body.decl(mCodeModel.ref(Class.class).narrow(mCodeModel.wildcard()), "rawType",
+                type.invoke("getRawType"));
+        for (JDefinedClass clazz : classes) {
+            body._if(rawType.eq(clazz.dotclass()))._then()._return(
+                    JExpr.cast(adapterType, getAdapterClass(clazz).staticRef("INSTANCE")));
+        }
+        body._return(JExpr._null());
+    }
+
+    //endregion
+
+    //region CODE GENERATION -------------------------------------------------------------------------------------------
+
+    /**
+     * Generates the method which reads an object of the class.
+     *
+     * @param adapter the type adapter class.
+     * @param clazz   the class to read.
+     * @param fields  the generated fields of the class.
+     */
+    private void generateRead(JDefinedClass adapter, JDefinedClass clazz, List<PojoEmitter.GeneratedField> fields) {
+        JMethod read = adapter.method(JMod.PUBLIC, clazz, "read");
+        read.annotate(Override.class);
+        read._throws(IOException.class);
+        JVar reader = read.param(mReaderClass, "reader");
+        JBlock body = read.body();
+        returnIfNull(body, reader);
+
+        // Assign each known property to its field, and skip the others; immutable classes are assigned through the
+        // fields of their builder instead
+        JDefinedClass target = mImmutable ? PojoEmitter.getBuilderClass(clazz) : clazz;
+        JVar value = body.decl(target, mImmutable ? "builder" : "value", JExpr._new(target));
+        body.add(reader.invoke("beginObject"));
+        JSwitch fieldSwitch = body._while(reader.invoke("hasNext")).body()._switch(reader.invoke("nextName"));
+        for (PojoEmitter.GeneratedField field : fields) {
+            JBlock caseBody = fieldSwitch._case(JExpr.lit(field.Names.PropertyName)).body();
+            caseBody.assign(value.ref(field.Field.name()),
+                    readValue(adapter, field.Field.type(), reader, field.Names.ClassName));
+            caseBody._break();
+        }
+        JBlock defaultBody = fieldSwitch._default().body();
+        defaultBody.add(reader.invoke("skipValue"));
+        defaultBody._break();
+        body.add(reader.invoke("endObject"));
+        body._return(mImmutable ? value.invoke("build") : value);
+    }
+
+    /**
+     * Generates the method which writes an object of the class, or null.
+     *
+     * @param adapter the type adapter class.
+     * @param clazz   the class to write.
+     * @param fields  the generated fields of the class.
+     */
+    private void generateWrite(JDefinedClass adapter, JDefinedClass clazz, List<PojoEmitter.GeneratedField> fields) {
+        JMethod write = adapter.method(JMod.PUBLIC, void.class, "write");
+        write.annotate(Override.class);
+        write._throws(IOException.class);
+        JVar writer = write.param(mWriterClass, "writer");
+        JVar value = write.param(clazz, "value");
+        JBlock body = write.body();
+        writeNullAndReturn(body, writer, value);
+
+        // Write every field under its original property name
+        body.add(writer.invoke("beginObject"));
+        for (PojoEmitter.GeneratedField field : fields) {
+            body.add(writer.invoke("name").arg(JExpr.lit(field.Names.PropertyName)));
+            writeValue(body, adapter, field.Field.type(), writer, value.ref(field.Field.name()),
+                    field.Names.ClassName);
+        }
+        body.add(writer.invoke("endObject"));
+    }
+
+    /**
+     * Returns an expression which reads a value of the given type. Values which can be null are read by helper
+     * methods of the adapter.
+     *
+     * @param adapter    the type adapter class.
+     * @param type       the type of the value.
+     * @param reader     the reader variable.
+     * @param helperName the name that helper methods for this value are derived from.
+     * @return the expression which reads the value.
+     */
+    private JExpression readValue(JDefinedClass adapter, JType type, JVar reader, String helperName) {
+        if (type.isPrimitive()) {
+            return readPrimitive(type, reader);
+        } else if (type.isArray() || JacksonCodecEmitter.isList(type)) {
+            return JExpr.invoke(getReadArrayMethod(adapter, type, helperName)).arg(reader);
+        } else if (JacksonCodecEmitter.isMap(type)) {
+            return JExpr.invoke(getReadMapMethod(adapter, (JClass) type, helperName)).arg(reader);
+        } else if (JacksonCodecEmitter.isEnum(type)) {
+            return ((JClass) type).staticInvoke("fromValue")
+                    .arg(JExpr.invoke(getReadNullableMethod(adapter, mCodeModel.ref(String.class))).arg(reader));
+        } else if (type instanceof JDefinedClass) {
+            return getAdapterClass((JDefinedClass) type).staticRef("INSTANCE").invoke("read").arg(reader);
+        } else if (type.fullName().equals(String.class.getName()) || type.fullName().equals(BigDecimal.class.getName())
+                || type.unboxify().isPrimitive()) {
+            return JExpr.invoke(getReadNullableMethod(adapter, type)).arg(reader);
+        }
+        return JExpr.invoke(getReadUntypedMethod(adapter)).arg(reader);
+    }
+
+    /**
+     * Adds the statements which write a value of the given type to a block.
+     *
+     * @param block      the block to add the statements to.
+     * @param adapter    the type adapter class.
+     * @param type       the type of the value.
+     * @param writer     the writer variable.
+     * @param value      the expression of the value to write.
+     * @param helperName the name that helper methods for this value are derived from.
+     */
+    private void writeValue(JBlock block, JDefinedClass adapter, JType type, JVar writer, JExpression value,
+                            String helperName) {
+        if (type.isArray() || JacksonCodecEmitter.isList(type)) {
+            block.invoke(getWriteArrayMethod(adapter, type, helperName)).arg(writer).arg(value);
+        } else if (JacksonCodecEmitter.isMap(type)) {
+            block.invoke(getWriteMapMethod(adapter, (JClass) type, helperName)).arg(writer).arg(value);
+        } else if (JacksonCodecEmitter.isEnum(type)) {
+            block.add(writer.invoke("value").arg(JacksonCodecEmitter.getEnumValue(value)));
+        } else if (type instanceof JDefinedClass) {
+            block.add(getAdapterClass((JDefinedClass) type).staticRef("INSTANCE").invoke("write")
+                    .arg(writer).arg(value));
+        } else if (type.fullName().equals(Boolean.class.getName())) {
+            // There is no overload for boxed booleans, unlike for strings and numbers
+            JConditional isNull = block._if(value.eq(JExpr._null()));
+            isNull._then().add(writer.invoke("nullValue"));
+            isNull._else().add(writer.invoke("value").arg(value));
+        } else if (type.name().equals("float")) {
+            // Widening a float to a double would write its binary expansion, so it is written as a number instead
+            block.add(writer.invoke("value").arg(mCodeModel.ref(Float.class).staticInvoke("valueOf").arg(value)));
+        } else if (type.isPrimitive() || type.fullName().equals(String.class.getName())
+                || type.fullName().equals(BigDecimal.class.getName()) || type.unboxify().isPrimitive()) {
+            block.add(writer.invoke("value").arg(value));
+        } else {
+            block.invoke(getWriteUntypedMethod(adapter)).arg(writer).arg(value);
+        }
+    }
+
+    /**
+     * Returns the helper method which reads a string, decimal or boxed value that can be null, generating it on first
+     * use.
+     *
+     * @param adapter the type adapter class.
+     * @param type    the string, decimal or boxed type.
+     * @return the helper method.
+     */
+    private JMethod getReadNullableMethod(JDefinedClass adapter, JType type) {
+        String methodName = "readNullable" + type.name();
+        JMethod read = adapter.getMethod(methodName, new JType[] { mReaderClass });
+        if (read != null) {
+            return read;
+        }
+
+        read = adapter.method(JMod.PRIVATE | JMod.STATIC, type, methodName);
+        read._throws(IOException.class);
+        JVar reader = read.param(mReaderClass, "reader");
+        JBlock body = read.body();
+        returnIfNull(body, reader);
+        if (type.unboxify().isPrimitive()) {
+            body._return(readPrimitive(type.unboxify(), reader));
+        } else if (type.fullName().equals(BigDecimal.class.getName())) {
+            body._return(JExpr._new(type).arg(reader.invoke("nextString")));
+        } else {
+            body._return(reader.invoke("nextString"));
+        }
+        return read;
+    }
+
+    /**
+     * Returns the helper method which reads a list or array, generating it on first use.
+     *
+     * @param adapter    the type adapter class.
+     * @param type       the list or array type.
+     * @param helperName the name that the helper method is derived from.
+     * @return the helper method.
+     */
+    private JMethod getReadArrayMethod(JDefinedClass adapter, JType type, String helperName) {
+        String helperKey = JacksonCodecEmitter.getHelperKey(adapter, "read", type);
+        JMethod read = mHelperMethods.get(helperKey);
+        if (read != null) {
+            return read;
+        }
+
+        read = adapter.method(JMod.PRIVATE | JMod.STATIC, type,
+                JacksonCodecEmitter.getUniqueMethodName(adapter, "read" + helperName + "Array"));
+        mHelperMethods.put(helperKey, read);
+        read._throws(IOException.class);
+        JVar reader = read.param(mReaderClass, "reader");
+        JBlock body = read.body();
+        returnIfNull(body, reader);
+        body.add(reader.invoke("beginArray"));
+
+        JVar result;
+        if (type.isArray()) {
+            // Grow a primitive buffer, so that the elements are never boxed
+            JType elementType = type.elementType();
+            JClass arraysClass = mCodeModel.ref(Arrays.class);
+            JVar values = body.decl(type, "values", JExpr.newArray(elementType, ARRAY_CAPACITY));
+            JVar size = body.decl(mCodeModel.INT, "size", JExpr.lit(0));
+            JBlock loop = body._while(reader.invoke("hasNext")).body();
+            loop._if(size.eq(values.ref("length")))._then()
+                    .assign(values, arraysClass.staticInvoke("copyOf").arg(values).arg(size.mul(JExpr.lit(2))));
+            loop.assign(values.component(size.incr()), readValue(adapter, elementType, reader, helperName + "Array"));
+            result = body.decl(type, "result", arraysClass.staticInvoke("copyOf").arg(values).arg(size));
+        } else {
+            JType elementType = ((JClass) type).getTypeParameters().get(0);
+            result = body.decl(type, "values", JExpr._new(mCodeModel.ref(ArrayList.class).narrow(elementType)));
+            body._while(reader.invoke("hasNext")).body()
+                    .add(result.invoke("add").arg(readValue(adapter, elementType, reader, helperName + "Array")));
+        }
+        body.add(reader.invoke("endArray"));
+        body._return(result);
+        return read;
+    }
+
+    /**
+     * Returns the helper method which writes a list or array, generating it on first use.
+     *
+     * @param adapter    the type adapter class.
+     * @param type       the list or array type.
+     * @param helperName the name that the helper method is derived from.
+     * @return the helper method.
+     */
+    private JMethod getWriteArrayMethod(JDefinedClass adapter, JType type, String helperName) {
+        String helperKey = JacksonCodecEmitter.getHelperKey(adapter, "write", type);
+        JMethod write = mHelperMethods.get(helperKey);
+        if (write != null) {
+            return write;
+        }
+
+        write = adapter.method(JMod.PRIVATE | JMod.STATIC, void.class,
+                JacksonCodecEmitter.getUniqueMethodName(adapter, "write" + helperName + "Array"));
+        mHelperMethods.put(helperKey, write);
+        write._throws(IOException.class);
+        JVar writer = write.param(mWriterClass, "writer");
+        JVar values = write.param(type, "values");
+        JBlock body = write.body();
+        writeNullAndReturn(body, writer, values);
+
+        JType elementType = type.isArray() ? type.elementType() : ((JClass) type).getTypeParameters().get(0);
+        body.add(writer.invoke("beginArray"));
+        JForEach loop = body.forEach(elementType, "value", values);
+        writeValue(loop.body(), adapter, elementType, writer, loop.var(), helperName + "Array");
+        body.add(writer.invoke("endArray"));
+        return write;
+    }
+
+    /**
+     * Returns the helper method which reads a map with string keys, generating it on first use.
+     *
+     * @param adapter    the type adapter class.
+     * @param type       the map type.
+     * @param helperName the name that the helper method is derived from.
+     * @return the helper method.
+     */
+    private JMethod getReadMapMethod(JDefinedClass adapter, JClass type, String helperName) {
+        String helperKey = JacksonCodecEmitter.getHelperKey(adapter, "read", type);
+        JMethod read = mHelperMethods.get(helperKey);
+        if (read != null) {
+            return read;
+        }
+
+        read = adapter.method(JMod.PRIVATE | JMod.STATIC, type,
+                JacksonCodecEmitter.getUniqueMethodName(adapter, "read" + helperName + "Map"));
+        mHelperMethods.put(helperKey, read);
+        read._throws(IOException.class);
+        JVar reader = read.param(mReaderClass, "reader");
+        JBlock body = read.body();
+        returnIfNull(body, reader);
+
+        // Keep the keys in the order of the document
+        JClass valueType = type.getTypeParameters().get(1);
+        JVar values = body.decl(type, "values",
+                JExpr._new(mCodeModel.ref(LinkedHashMap.class).narrow(mCodeModel.ref(String.class), valueType)));
+        body.add(reader.invoke("beginObject"));
+        JBlock loop = body._while(reader.invoke("hasNext")).body();
+        JVar key = loop.decl(mCodeModel.ref(String.class), "key", reader.invoke("nextName"));
+        loop.add(values.invoke("put").arg(key).arg(readValue(adapter, valueType, reader, helperName + "Map")));
+        body.add(reader.invoke("endObject"));
+        body._return(values);
+        return read;
+    }
+
+    /**
+     * Returns the helper method which writes a map with string keys, generating it on first use.
+     *
+     * @param adapter    the type adapter class.
+     * @param type       the map type.
+     * @param helperName the name that the helper method is derived from.
+     * @return the helper method.
+     */
+    private JMethod getWriteMapMethod(JDefinedClass adapter, JClass type, String helperName) {
+        String helperKey = JacksonCodecEmitter.getHelperKey(adapter, "write", type);
+        JMethod write = mHelperMethods.get(helperKey);
+        if (write != null) {
+            return write;
+        }
+
+        write = adapter.method(JMod.PRIVATE | JMod.STATIC, void.class,
+                JacksonCodecEmitter.getUniqueMethodName(adapter, "write" + helperName + "Map"));
+        mHelperMethods.put(helperKey, write);
+        write._throws(IOException.class);
+        JVar writer = write.param(mWriterClass, "writer");
+        JVar values = write.param(type, "values");
+        JBlock body = write.body();
+        writeNullAndReturn(body, writer, values);
+
+        JClass valueType = type.getTypeParameters().get(1);
+        body.add(writer.invoke("beginObject"));
+        JForEach loop = body.forEach(mCodeModel.ref(Map.Entry.class).narrow(type.getTypeParameters()), "entry",
+                values.invoke("entrySet"));
+        loop.body().add(writer.invoke("name").arg(loop.var().invoke("getKey")));
+        writeValue(loop.body(), adapter, valueType, writer, loop.var().invoke("getValue"), helperName + "Map");
+        body.add(writer.invoke("endObject"));
+        return write;
+    }
+
+    /**
+     * Returns the helper method which reads a value of unknown type into maps, lists and scalars like Gson does,
+     * generating it on first use.
+     *
+     * @param adapter the type adapter class.
+     * @return the helper method.
+     */
+    private JMethod getReadUntypedMethod(JDefinedClass adapter) {
+        JMethod read = adapter.getMethod("readValue", new JType[] { mReaderClass });
+        if (read != null) {
+            return read;
+        }
+
+        read = adapter.method(JMod.PRIVATE | JMod.STATIC, Object.class, "readValue");
+        read._throws(IOException.class);
+        JVar reader = read.param(mReaderClass, "reader");
+        JBlock body = read.body();
+        JVar token = body.decl(mTokenClass, "token", reader.invoke("peek"));
+
+        // Objects become maps, in property order
+        JBlock objectBody = body._if(token.eq(mTokenClass.staticRef("BEGIN_OBJECT")))._then();
+        JVar map = objectBody.decl(mCodeModel.ref(Map.class).narrow(String.class, Object.class), "map",
+                JExpr._new(mCodeModel.ref(LinkedHashMap.class).narrow(String.class, Object.class)));
+        objectBody.add(reader.invoke("beginObject"));
+        objectBody._while(reader.invoke("hasNext")).body()
+                .add(map.invoke("put").arg(reader.invoke("nextName")).arg(JExpr.invoke(read).arg(reader)));
+        objectBody.add(reader.invoke("endObject"));
+        objectBody._return(map);
+
+        // Arrays become lists
+        JBlock arrayBody = body._if(token.eq(mTokenClass.staticRef("BEGIN_ARRAY")))._then();
+        JVar list = arrayBody.decl(mCodeModel.ref(List.class).narrow(Object.class), "list",
+                JExpr._new(mCodeModel.ref(ArrayList.class).narrow(Object.class)));
+        arrayBody.add(reader.invoke("beginArray"));
+        arrayBody._while(reader.invoke("hasNext")).body().add(list.invoke("add").arg(JExpr.invoke(read).arg(reader)));
+        arrayBody.add(reader.invoke("endArray"));
+        arrayBody._return(list);
+
+        // Scalars become their natural Java type, with all numbers as doubles
+        body._if(token.eq(mTokenClass.staticRef("STRING")))._then()._return(reader.invoke("nextString"));
+        body._if(token.eq(mTokenClass.staticRef("NUMBER")))._then()._return(reader.invoke("nextDouble"));
+        body._if(token.eq(mTokenClass.staticRef("BOOLEAN")))._then()._return(reader.invoke("nextBoolean"));
+        body.add(reader.invoke("nextNull"));
+        body._return(JExpr._null());
+        return read;
+    }
+
+    /**
+     * Returns the helper method which writes a value read by {@link #getReadUntypedMethod}, generating it on first
+     * use.
+     *
+     * @param adapter the type adapter class.
+     * @return the helper method.
+     */
+    private JMethod getWriteUntypedMethod(JDefinedClass adapter) {
+        JClass objectClass = mCodeModel.ref(Object.class);
+        JMethod write = adapter.getMethod("writeValue", new JType[] { mWriterClass, objectClass });
+        if (write != null) {
+            return write;
+        }
+
+        write = adapter.method(JMod.PRIVATE | JMod.STATIC, void.class, "writeValue");
+        write._throws(IOException.class);
+        JVar writer = write.param(mWriterClass, "writer");
+        JVar value = write.param(objectClass, "value");
+        JBlock body = write.body();
+        JClass wildcardMap = mCodeModel.ref(Map.class).narrow(objectClass.wildcard(), objectClass.wildcard());
+        JClass wildcardEntry = mCodeModel.ref(Map.Entry.class).narrow(objectClass.wildcard(), objectClass.wildcard());
+
+        // Maps become objects
+        JBlock mapBody = body._if(value._instanceof(mCodeModel.ref(Map.class)))._then();
+        mapBody.add(writer.invoke("beginObject"));
+        JForEach entries = mapBody.forEach(wildcardEntry, "entry",
+                JExpr.invoke(JExpr.cast(wildcardMap, value), "entrySet"));
+        entries.body().add(writer.invoke("name")
+                .arg(mCodeModel.ref(String.class).staticInvoke("valueOf").arg(entries.var().invoke("getKey"))));
+        entries.body().invoke(write).arg(writer).arg(entries.var().invoke("getValue"));
+        mapBody.add(writer.invoke("endObject"));
+        mapBody._return();
+
+        // Lists become arrays
+        JBlock listBody = body._if(value._instanceof(mCodeModel.ref(List.class)))._then();
+        listBody.add(writer.invoke("beginArray"));
+        JForEach elements = listBody.forEach(objectClass, "element",
+                JExpr.cast(mCodeModel.ref(List.class).narrow(objectClass.wildcard()), value));
+        elements.body().invoke(write).arg(writer).arg(elements.var());
+        listBody.add(writer.invoke("endArray"));
+        listBody._return();
+
+        // Scalars are written without a Gson instance
+        JBlock stringBody = body._if(value._instanceof(mCodeModel.ref(String.class)))._then();
+        stringBody.add(writer.invoke("value").arg(JExpr.cast(mCodeModel.ref(String.class), value)));
+        stringBody._return();
+        JBlock numberBody = body._if(value._instanceof(mCodeModel.ref(Number.class)))._then();
+        numberBody.add(writer.invoke("value").arg(JExpr.cast(mCodeModel.ref(Number.class), value)));
+        numberBody._return();
+        JBlock booleanBody = body._if(value._instanceof(mCodeModel.ref(Boolean.class)))._then();
+        booleanBody.add(writer.invoke("value").arg(JExpr.cast(mCodeModel.BOOLEAN, value)));
+        booleanBody._return();
+        body.add(writer.invoke("nullValue"));
+        return write;
+    }
+
+    //endregion
+
+    //region HELPER METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the type adapter class nested in a generated class, creating it with its shared instance on first use,
+     * so that adapters can refer to the adapters of classes that are generated later.
+     *
+     * @param clazz the generated class.
+     * @return the type adapter class.
+     */
+    private JDefinedClass getAdapterClass(JDefinedClass clazz) {
+        for (JClass nestedClass : clazz.listClasses()) {
+            if (nestedClass.name().equals(ADAPTER_CLASS_NAME)) {
+                return (JDefinedClass) nestedClass;
+            }
+        }
+        try {
+            JDefinedClass adapter = clazz._class(JMod.PUBLIC | JMod.STATIC | JMod.FINAL, ADAPTER_CLASS_NAME);
+            adapter._extends(mCodeModel.ref(TypeAdapter.class).narrow(clazz));
+            adapter.field(JMod.PUBLIC | JMod.STATIC | JMod.FINAL, adapter, "INSTANCE", JExpr._new(adapter));
+            adapter.constructor(JMod.PRIVATE);
+            return adapter;
+        } catch (JClassAlreadyExistsException e) {
+            return e.getExistingClass();
+        }
+    }
+
+    /**
+     * Adds the statements which consume a null token and return null.
+     */
+    private void returnIfNull(JBlock body, JVar reader) {
+        JBlock nullBody = body._if(reader.invoke("peek").eq(mTokenClass.staticRef("NULL")))._then();
+        nullBody.add(reader.invoke("nextNull"));
+        nullBody._return(JExpr._null());
+    }
+
+    /**
+     * Adds the statements which write null and return if the value is null.
+     */
+    private static void writeNullAndReturn(JBlock body, JVar writer, JVar value) {
+        JBlock nullBody = body._if(value.eq(JExpr._null()))._then();
+        nullBody.add(writer.invoke("nullValue"));
+        nullBody._return();
+    }
+
+    /**
+     * @return an expression which reads the next value as the given primitive type.
+     */
+    private JExpression readPrimitive(JType primitiveType, JVar reader) {
+        switch (primitiveType.name()) {
+            case "boolean":
+                return reader.invoke("nextBoolean");
+            case "int":
+                return reader.invoke("nextInt");
+            case "float":
+                // There is no method for floats
+                return JExpr.cast(mCodeModel.FLOAT, reader.invoke("nextDouble"));
+            case "double":
+                return reader.invoke("nextDouble");
+            default:
+                return reader.invoke("nextLong");
+        }
+    }
+
+    //endregion
+
+}
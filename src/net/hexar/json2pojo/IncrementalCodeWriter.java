@@ -0,0 +1,155 @@
+package net.hexar.json2pojo;
+
+import com.sun.codemodel.CodeWriter;
+import com.sun.codemodel.JPackage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A code writer which only touches files whose content actually changes, so that the modification times of
+ * unchanged sources are preserved. Files of classes that were not regenerated are skipped entirely. The changed files
+ * are collected in memory and handed to a {@link SourceSink} in a single batch when the writer is committed.
+ */
+class IncrementalCodeWriter extends CodeWriter {
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final File mOutputRoot;
+    private final SourceSink mSourceSink;
+    private final Set<String> mSkippedClasses;
+    private final ProgressListener mProgressListener;
+    private final int mFileCount;
+    private final Map<String, byte[]> mChangedFiles = new LinkedHashMap<>();
+    private int mClosedFiles;
+    private int mUnchangedFiles;
+    private boolean mCommitted;
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a new incremental code writer.
+     *
+     * @param outputRoot       the source root, to compare the existing files with.
+     * @param sourceSink       the sink to write the changed files to.
+     * @param skippedClasses   the names of the classes whose files must not be written.
+     * @param progressListener the listener to report progress to, and to check for cancellation.
+     * @param fileCount        the number of files the code model will write.
+     */
+    IncrementalCodeWriter(File outputRoot, SourceSink sourceSink, Set<String> skippedClasses,
+                          ProgressListener progressListener, int fileCount) {
+        mOutputRoot = outputRoot;
+        mSourceSink = sourceSink;
+        mSkippedClasses = skippedClasses;
+        mProgressListener = progressListener;
+        mFileCount = fileCount;
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    @Override
+    public OutputStream openBinary(JPackage pkg, String fileName) throws IOException {
+        mProgressListener.checkCanceled();
+        String path = getPackagePath(pkg.name()) + fileName;
+        String className = fileName.endsWith(".java") ? fileName.substring(0, fileName.length() - 5) : null;
+
+        // Buffer the content, and compare it to the existing file once it is complete
+        return new ByteArrayOutputStream() {
+            @Override
+            public void close() throws IOException {
+                if (className == null || !mSkippedClasses.contains(className)) {
+                    writeFile(path, toByteArray());
+                }
+                mProgressListener.setFraction((double) ++mClosedFiles / (double) Math.max(mFileCount, 1));
+            }
+        };
+    }
+
+    /**
+     * Does nothing, since the code model closes its source and resource writers separately, and files which are not
+     * part of the code model may still be added after it was built. The files are written by {@link #commit()}.
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Writes all of the changed files to the source sink in one batch, in the order in which they were added. Only
+     * the first call writes.
+     *
+     * @throws IOException if the files could not be written.
+     */
+    void commit() throws IOException {
+        if (mCommitted) {
+            return;
+        }
+        mCommitted = true;
+        mProgressListener.checkCanceled();
+        mSourceSink.write(mChangedFiles);
+    }
+
+    /**
+     * Adds a file which is not part of the code model to the batch, unless its content is unchanged.
+     *
+     * @param path    the path of the file, relative to the output root and separated by '/'.
+     * @param content the content of the file.
+     * @throws IOException if the existing file could not be read.
+     */
+    void writeFile(String path, byte[] content) throws IOException {
+        File file = new File(mOutputRoot, path);
+        if (file.isFile() && file.length() == content.length && Arrays.equals(Files.readAllBytes(file.toPath()), content)) {
+            mUnchangedFiles++;
+        } else {
+            mChangedFiles.put(path, content);
+        }
+    }
+
+    /**
+     * @return the paths of the files that were created or overwritten, relative to the output root.
+     */
+    Set<String> getWrittenFiles() {
+        return mChangedFiles.keySet();
+    }
+
+    /**
+     * @return the total size of the files that were created or overwritten.
+     */
+    long getWrittenBytes() {
+        long writtenBytes = 0;
+        for (byte[] content : mChangedFiles.values()) {
+            writtenBytes += content.length;
+        }
+        return writtenBytes;
+    }
+
+    /**
+     * @return the number of files that were generated with exactly the same content they already had.
+     */
+    int getUnchangedFiles() {
+        return mUnchangedFiles;
+    }
+
+    /**
+     * Returns the path of a package's directory relative to the output root, with a trailing separator.
+     *
+     * @param packageName the fully qualified package name.
+     * @return the package path, which is empty for the default package.
+     */
+    static String getPackagePath(String packageName) {
+        return packageName.isEmpty() ? "" : packageName.replace('.', '/') + "/";
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,46 @@
+package net.hexar.json2pojo;
+
+import com.intellij.openapi.progress.ProgressIndicator;
+
+/**
+ * Forwards the progress of a generation to an IntelliJ {@link ProgressIndicator}, which can also cancel it.
+ */
+class IndicatorProgressListener implements ProgressListener {
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final ProgressIndicator mIndicator;
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    IndicatorProgressListener(ProgressIndicator indicator) {
+        mIndicator = indicator;
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    @Override
+    public void setFraction(double fraction) {
+        mIndicator.setFraction(fraction);
+    }
+
+    @Override
+    public void setText(String text) {
+        mIndicator.setText(text);
+    }
+
+    /**
+     * @throws com.intellij.openapi.progress.ProcessCanceledException if the user canceled the generation.
+     */
+    @Override
+    public void checkCanceled() {
+        mIndicator.checkCanceled();
+    }
+
+    //endregion
+
+}
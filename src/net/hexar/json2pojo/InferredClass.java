@@ -0,0 +1,135 @@
+package net.hexar.json2pojo;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The union of all JSON objects that are generated as the same class, as collected during inference.
+ */
+final class InferredClass {
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final String mName;
+    private final Map<String, Property> mProperties = new LinkedHashMap<>();
+    private int mObjectCount;
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    InferredClass(String name) {
+        mName = name;
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    String getName() {
+        return mName;
+    }
+
+    /**
+     * @return the merged type of every property seen in any of the objects, keyed by the original property name.
+     */
+    Map<String, InferredType> getFields() {
+        Map<String, InferredType> fields = new LinkedHashMap<>();
+        for (Map.Entry<String, Property> property : mProperties.entrySet()) {
+            fields.put(property.getKey(), property.getValue().mType);
+        }
+        return Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * @return the number of objects that were merged into this class.
+     */
+    int getObjectCount() {
+        return mObjectCount;
+    }
+
+    /**
+     * @param propertyName the original JSON property name.
+     * @return the number of objects in which the property was present, including those where it was null.
+     */
+    int getPresentCount(String propertyName) {
+        Property property = mProperties.get(propertyName);
+        return property != null ? property.mPresentCount : 0;
+    }
+
+    /**
+     * Records that one more object was merged into this class.
+     */
+    void countObject() {
+        mObjectCount++;
+    }
+
+    /**
+     * Records that several objects were merged into this class at once.
+     *
+     * @param count the number of objects.
+     */
+    void countObjects(int count) {
+        mObjectCount += count;
+    }
+
+    /**
+     * Records a property value, merging its type with the types previously seen for the same property.
+     *
+     * @param propertyName the original JSON property name.
+     * @param type         the type of the value.
+     */
+    void addField(String propertyName, InferredType type) {
+        addField(propertyName, type, 1);
+    }
+
+    /**
+     * Records the values of a property in several objects at once.
+     *
+     * @param propertyName the original JSON property name.
+     * @param type         the merged type of the values.
+     * @param presentCount the number of objects in which the property was present.
+     */
+    void addField(String propertyName, InferredType type, int presentCount) {
+        Property property = mProperties.get(propertyName);
+        if (property == null) {
+            property = new Property(type);
+            mProperties.put(propertyName, property);
+        } else {
+            property.mType = property.mType.merge(type);
+        }
+        property.mPresentCount += presentCount;
+    }
+
+    /**
+     * Merges all of the fields and statistics of another class with the same name into this one.
+     *
+     * @param other the class to merge.
+     */
+    void merge(InferredClass other) {
+        for (Map.Entry<String, Property> property : other.mProperties.entrySet()) {
+            addField(property.getKey(), property.getValue().mType, property.getValue().mPresentCount);
+        }
+        countObjects(other.mObjectCount);
+    }
+
+    //endregion
+
+    //region INNER CLASSES ---------------------------------------------------------------------------------------------
+
+    /**
+     * The merged type of a property and the number of objects it was seen in.
+     */
+    private static final class Property {
+        private InferredType mType;
+        private int mPresentCount;
+
+        Property(InferredType type) {
+            mType = type;
+        }
+    }
+
+    //endregion
+
+}
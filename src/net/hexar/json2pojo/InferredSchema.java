@@ -0,0 +1,82 @@
+package net.hexar.json2pojo;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The result of inference: every class to generate, keyed by its formatted class name.
+ */
+final class InferredSchema {
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final Map<String, InferredClass> mClasses = new LinkedHashMap<>();
+    private final Map<String, String> mAliases = new LinkedHashMap<>();
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * @return all of the inferred classes, in the order in which they were first seen.
+     */
+    Collection<InferredClass> getClasses() {
+        return Collections.unmodifiableCollection(mClasses.values());
+    }
+
+    /**
+     * @return the class with the given name, or null if no such class was inferred.
+     */
+    InferredClass findClass(String className) {
+        return mClasses.get(className);
+    }
+
+    /**
+     * Finds the class with the given name, or creates it if it doesn't exist yet.
+     *
+     * @param className the formatted class name.
+     * @return the class with the given name.
+     */
+    InferredClass findOrCreateClass(String className) {
+        InferredClass clazz = mClasses.get(className);
+        if (clazz == null) {
+            clazz = new InferredClass(className);
+            mClasses.put(className, clazz);
+        }
+        return clazz;
+    }
+
+    /**
+     * @return the names of classes which are generated as another class, mapped to the name of that class.
+     */
+    Map<String, String> getAliases() {
+        return Collections.unmodifiableMap(mAliases);
+    }
+
+    /**
+     * Records that the class with the given name is generated as another class.
+     *
+     * @param alias     the name of the class which is not generated.
+     * @param className the name of the class which is generated instead.
+     */
+    void addAlias(String alias, String className) {
+        mAliases.put(alias, className);
+    }
+
+    /**
+     * Merges all of the classes of another schema into this one. Classes with the same name are merged field by field.
+     *
+     * @param other the schema to merge.
+     */
+    void merge(InferredSchema other) {
+        for (InferredClass otherClass : other.mClasses.values()) {
+            findOrCreateClass(otherClass.getName()).merge(otherClass);
+        }
+        mAliases.putAll(other.mAliases);
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,330 @@
+package net.hexar.json2pojo;
+
+import java.util.*;
+
+/**
+ * An immutable element of the type lattice used during inference. Types observed for the same property are combined
+ * with {@link #merge(InferredType)}, which is commutative and associative: numbers widen to the narrowest kind that
+ * holds both, nulls make a type nullable, lists and maps merge their element and value types and anything incompatible
+ * becomes {@link Kind#MIXED}. Strings can also carry the set of distinct values they were seen with, up to a limit,
+ * which merges into the union of both sets until it grows past the limit.
+ */
+final class InferredType {
+
+    //region PUBLIC INTERFACES -----------------------------------------------------------------------------------------
+
+    /**
+     * The kinds of values in the lattice, from least to most specific. {@link Kind#UNKNOWN} is the bottom element
+     * (nothing but nulls or empty arrays were seen) and {@link Kind#MIXED} the top element. The numeric kinds
+     * {@link Kind#INT}, {@link Kind#WIDE_LONG}, {@link Kind#FLOAT} and {@link Kind#DECIMAL} are only inferred when
+     * numbers are narrowed; otherwise every integer is a {@link Kind#LONG} and every other number a
+     * {@link Kind#DOUBLE}. A {@link Kind#WIDE_LONG} is a long beyond ±2^53, which a double can't hold exactly.
+     */
+    enum Kind {
+        UNKNOWN, BOOLEAN, INT, LONG, WIDE_LONG, FLOAT, DOUBLE, DECIMAL, STRING, OBJECT, LIST, MAP, MIXED
+    }
+
+    //endregion
+
+    //region CONSTANTS -------------------------------------------------------------------------------------------------
+
+    /**
+     * The maximum number of lists and maps nested in each other. Deeper values are {@link Kind#MIXED}, so that
+     * merging, comparing and generating types never recurses deeper than this, however deep the input is nested.
+     */
+    static final int MAX_DEPTH = 32;
+
+    private static final InferredType[] SCALARS = new InferredType[Kind.values().length * 2];
+
+    static {
+        for (Kind kind : new Kind[] { Kind.UNKNOWN, Kind.BOOLEAN, Kind.INT, Kind.LONG, Kind.WIDE_LONG, Kind.FLOAT,
+                Kind.DOUBLE, Kind.DECIMAL, Kind.STRING, Kind.MIXED }) {
+            SCALARS[kind.ordinal() * 2] = new InferredType(kind, false, null, null);
+            SCALARS[kind.ordinal() * 2 + 1] = new InferredType(kind, true, null, null);
+        }
+    }
+
+    //endregion
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final Kind mKind;
+    private final boolean mNullable;
+    private final String mClassName;
+    private final InferredType mElementType;
+    private final SortedSet<String> mValues;
+    private final int mMaxValues;
+    private final int mDepth;
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    private InferredType(Kind kind, boolean nullable, String className, InferredType elementType) {
+        this(kind, nullable, className, elementType, null, 0);
+    }
+
+    private InferredType(Kind kind, boolean nullable, String className, InferredType elementType,
+                         SortedSet<String> values, int maxValues) {
+        mKind = kind;
+        mNullable = nullable;
+        mClassName = className;
+        mElementType = elementType;
+        mValues = values;
+        mMaxValues = maxValues;
+        mDepth = elementType != null ? elementType.mDepth + 1 : 0;
+    }
+
+    /**
+     * Returns the type of a value of the given scalar kind.
+     *
+     * @param kind the kind of value, which must not be {@link Kind#OBJECT}, {@link Kind#LIST} or {@link Kind#MAP}.
+     * @return the non-nullable type.
+     */
+    static InferredType of(Kind kind) {
+        return scalar(kind, false);
+    }
+
+    /**
+     * @return the type of a null value.
+     */
+    static InferredType nullValue() {
+        return scalar(Kind.UNKNOWN, true);
+    }
+
+    /**
+     * Returns the type of a string value which keeps track of the distinct values it is merged with.
+     *
+     * @param value     the string value.
+     * @param maxValues the maximum number of distinct values to keep track of.
+     * @return the non-nullable type.
+     */
+    static InferredType string(String value, int maxValues) {
+        return new InferredType(Kind.STRING, false, null, null,
+                Collections.unmodifiableSortedSet(new TreeSet<>(Collections.singleton(value))), maxValues);
+    }
+
+    /**
+     * @return the type of an object which is generated as the class with the given name.
+     */
+    static InferredType object(String className) {
+        return new InferredType(Kind.OBJECT, false, className, null);
+    }
+
+    /**
+     * @return the type of an array with the given element type, or {@link Kind#MIXED} if it is nested too deeply.
+     */
+    static InferredType list(InferredType elementType) {
+        return elementType.mDepth < MAX_DEPTH ? new InferredType(Kind.LIST, false, null, elementType) : of(Kind.MIXED);
+    }
+
+    /**
+     * @return the type of an object with arbitrary keys, whose values have the given type, or {@link Kind#MIXED} if it
+     * is nested too deeply.
+     */
+    static InferredType map(InferredType valueType) {
+        return valueType.mDepth < MAX_DEPTH ? new InferredType(Kind.MAP, false, null, valueType) : of(Kind.MIXED);
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    Kind getKind() {
+        return mKind;
+    }
+
+    /**
+     * @return true if a null value was observed for this type.
+     */
+    boolean isNullable() {
+        return mNullable;
+    }
+
+    /**
+     * @return the name of the class of an {@link Kind#OBJECT} type, or null.
+     */
+    String getClassName() {
+        return mClassName;
+    }
+
+    /**
+     * @return the element type of a {@link Kind#LIST} type, the value type of a {@link Kind#MAP} type, or null.
+     */
+    InferredType getElementType() {
+        return mElementType;
+    }
+
+    /**
+     * @return the sorted distinct values of a {@link Kind#STRING} type, or null if they were not tracked or there
+     * were more of them than the limit.
+     */
+    SortedSet<String> getValues() {
+        return mValues;
+    }
+
+    /**
+     * Returns the least type that both this and the given type are instances of.
+     *
+     * @param other the type to merge with.
+     * @return the merged type.
+     */
+    InferredType merge(InferredType other) {
+        if (this == other) {
+            return this;
+        }
+        boolean nullable = mNullable || other.mNullable;
+
+        // Unknown types carry no information except nullability
+        if (mKind == Kind.UNKNOWN) {
+            return other.withNullable(nullable);
+        } else if (other.mKind == Kind.UNKNOWN) {
+            return withNullable(nullable);
+        }
+
+        if (mKind == other.mKind) {
+            switch (mKind) {
+                case OBJECT:
+                    // Objects only merge when they are generated as the same class
+                    if (mClassName.equals(other.mClassName)) {
+                        return withNullable(nullable);
+                    }
+                    break;
+                case LIST:
+                case MAP:
+                    return new InferredType(mKind, nullable, null, mElementType.merge(other.mElementType));
+                case STRING:
+                    return mergeValues(other, nullable);
+                default:
+                    return withNullable(nullable);
+            }
+        } else if (isNumber() && other.isNumber()) {
+            return scalar(widenNumber(mKind, other.mKind), nullable);
+        }
+        return scalar(Kind.MIXED, nullable);
+    }
+
+    /**
+     * Replaces the class names of this type and of its element types.
+     *
+     * @param renames the new class names, keyed by the old ones. Classes which are not in the map keep their name.
+     * @return the renamed type.
+     */
+    InferredType renameClasses(Map<String, String> renames) {
+        switch (mKind) {
+            case OBJECT: {
+                String className = renames.get(mClassName);
+                return className != null ? new InferredType(mKind, mNullable, className, null) : this;
+            }
+            case LIST:
+            case MAP: {
+                InferredType elementType = mElementType.renameClasses(renames);
+                return elementType != mElementType ? new InferredType(mKind, mNullable, null, elementType) : this;
+            }
+            default:
+                return this;
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof InferredType)) {
+            return false;
+        }
+        InferredType that = (InferredType) obj;
+        return mKind == that.mKind && mNullable == that.mNullable && Objects.equals(mClassName, that.mClassName)
+                && Objects.equals(mElementType, that.mElementType) && Objects.equals(mValues, that.mValues);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mKind, mNullable, mClassName, mElementType, mValues);
+    }
+
+    @Override
+    public String toString() {
+        String name = mKind == Kind.OBJECT ? mClassName
+                : mKind == Kind.LIST ? "List<" + mElementType + ">"
+                : mKind == Kind.MAP ? "Map<" + mElementType + ">" : mKind.name();
+        return mNullable ? name + "?" : name;
+    }
+
+    //endregion
+
+    //region PRIVATE METHODS -------------------------------------------------------------------------------------------
+
+    private static InferredType scalar(Kind kind, boolean nullable) {
+        return SCALARS[kind.ordinal() * 2 + (nullable ? 1 : 0)];
+    }
+
+    private boolean isNumber() {
+        switch (mKind) {
+            case INT:
+            case LONG:
+            case WIDE_LONG:
+            case FLOAT:
+            case DOUBLE:
+            case DECIMAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isIntegral(Kind kind) {
+        return kind == Kind.INT || kind == Kind.LONG || kind == Kind.WIDE_LONG;
+    }
+
+    /**
+     * Returns the narrowest numeric kind that holds the values of two different numeric kinds. Integers widen to
+     * longs, and floats or a mix of integers and floating point numbers to doubles, unless the integers are beyond
+     * the exact range of a double; decimals absorb every number.
+     */
+    private static Kind widenNumber(Kind kind, Kind otherKind) {
+        boolean wide = kind == Kind.WIDE_LONG || otherKind == Kind.WIDE_LONG;
+        if (isIntegral(kind) && isIntegral(otherKind)) {
+            return wide ? Kind.WIDE_LONG : Kind.LONG;
+        } else if (wide || kind == Kind.DECIMAL || otherKind == Kind.DECIMAL) {
+            return Kind.DECIMAL;
+        }
+        return Kind.DOUBLE;
+    }
+
+    private InferredType withNullable(boolean nullable) {
+        if (mNullable == nullable) {
+            return this;
+        } else if (mKind == Kind.OBJECT || mKind == Kind.LIST || mKind == Kind.MAP || mValues != null) {
+            return new InferredType(mKind, nullable, mClassName, mElementType, mValues, mMaxValues);
+        }
+        return scalar(mKind, nullable);
+    }
+
+    /**
+     * Merges two string types into one with the union of their values, which are dropped once there are more of them
+     * than the limit, or if either type did not track them.
+     */
+    private InferredType mergeValues(InferredType other, boolean nullable) {
+        if (mValues == null || other.mValues == null) {
+            return scalar(Kind.STRING, nullable);
+        } else if (mValues.containsAll(other.mValues)) {
+            return withNullable(nullable);
+        } else if (other.mValues.containsAll(mValues)) {
+            return other.withNullable(nullable);
+        }
+
+        int maxValues = Math.min(mMaxValues, other.mMaxValues);
+        SortedSet<String> values = new TreeSet<>(mValues);
+        values.addAll(other.mValues);
+        if (values.size() > maxValues) {
+            return scalar(Kind.STRING, nullable);
+        }
+        return new InferredType(Kind.STRING, nullable, null, null, Collections.unmodifiableSortedSet(values),
+                maxValues);
+    }
+
+    //endregion
+
+}
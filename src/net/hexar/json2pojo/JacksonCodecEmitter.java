@@ -0,0 +1,585 @@
+package net.hexar.json2pojo;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sun.codemodel.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Generates a nested {@code JsonCodec} class for POJOs, which reads and writes them with the Jackson streaming API.
+ * The codec switches on the property names and accesses the fields directly, so no reflection and no intermediate
+ * tree is needed to bind the classes.
+ */
+final class JacksonCodecEmitter {
+
+    //region CONSTANTS -------------------------------------------------------------------------------------------------
+
+    static final String CODEC_CLASS_NAME = "JsonCodec";
+
+    /**
+     * The initial capacity of the buffers primitive arrays are read into.
+     */
+    private static final int ARRAY_CAPACITY = 16;
+
+    //endregion
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final JCodeModel mCodeModel;
+    private final boolean mImmutable;
+    private final JClass mParserClass;
+    private final JClass mGeneratorClass;
+    private final JClass mTokenClass;
+    private final Map<String, JMethod> mHelperMethods = new HashMap<>();
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates an emitter for one code model.
+     *
+     * @param codeModel the code model of the generated classes.
+     * @param immutable true if the generated classes are immutable, so that they are read through their builder.
+     */
+    JacksonCodecEmitter(JCodeModel codeModel, boolean immutable) {
+        mCodeModel = codeModel;
+        mImmutable = immutable;
+        mParserClass = codeModel.ref(JsonParser.class);
+        mGeneratorClass = codeModel.ref(JsonGenerator.class);
+        mTokenClass = codeModel.ref(JsonToken.class);
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Generates the read and write methods of the codec of a class.
+     *
+     * @param clazz  the class to generate the codec for.
+     * @param fields the generated fields of the class, each read and written under its original property name.
+     */
+    void generateCodec(JDefinedClass clazz, List<PojoEmitter.GeneratedField> fields) {
+        JDefinedClass codec = getCodecClass(clazz);
+        codec.constructor(JMod.PRIVATE);
+        generateRead(codec, clazz, fields);
+        generateWrite(codec, clazz, fields);
+    }
+
+    //endregion
+
+    //region CODE GENERATION -------------------------------------------------------------------------------------------
+
+    /**
+     * Generates the method which reads an object of the class, starting at the current token of the parser.
+     *
+     * @param codec  the codec class.
+     * @param clazz  the class to read.
+     * @param fields the generated fields of the class.
+     */
+    private void generateRead(JDefinedClass codec, JDefinedClass clazz, List<PojoEmitter.GeneratedField> fields) {
+        JMethod read = codec.method(JMod.PUBLIC | JMod.STATIC, clazz, "read");
+        read._throws(IOException.class);
+        JVar parser = read.param(mParserClass, "parser");
+        JBlock body = read.body();
+
+        // Start at the first token of a parser which was not advanced yet
+        body._if(parser.invoke("getCurrentToken").eq(JExpr._null()))._then().add(parser.invoke("nextToken"));
+        body._if(isToken(parser, "VALUE_NULL"))._then()._return(JExpr._null());
+        body._if(parser.invoke("getCurrentToken").ne(mTokenClass.staticRef("START_OBJECT")))._then()._throw(
+                JExpr._new(mCodeModel.ref(JsonParseException.class))
+                        .arg(parser).arg(JExpr.lit("Expected an object for " + clazz.name())));
+
+        // Assign each known property to its field, and skip the others; immutable classes are assigned through the
+        // fields of their builder instead
+        JDefinedClass target = mImmutable ? PojoEmitter.getBuilderClass(clazz) : clazz;
+        JVar value = body.decl(target, mImmutable ? "builder" : "value", JExpr._new(target));
+        JBlock loop = body._while(parser.invoke("nextToken").eq(mTokenClass.staticRef("FIELD_NAME"))).body();
+        JVar name = loop.decl(mCodeModel.ref(String.class), "name", parser.invoke("getCurrentName"));
+        loop.add(parser.invoke("nextToken"));
+        JSwitch fieldSwitch = loop._switch(name);
+        for (PojoEmitter.GeneratedField field : fields) {
+            JBlock caseBody = fieldSwitch._case(JExpr.lit(field.Names.PropertyName)).body();
+            caseBody.assign(value.ref(field.Field.name()),
+                    readValue(codec, field.Field.type(), parser, field.Names.ClassName));
+            caseBody._break();
+        }
+        JBlock defaultBody = fieldSwitch._default().body();
+        defaultBody.add(parser.invoke("skipChildren"));
+        defaultBody._break();
+        body._return(mImmutable ? value.invoke("build") : value);
+    }
+
+    /**
+     * Generates the method which writes an object of the class, or null.
+     *
+     * @param codec  the codec class.
+     * @param clazz  the class to write.
+     * @param fields the generated fields of the class.
+     */
+    private void generateWrite(JDefinedClass codec, JDefinedClass clazz, List<PojoEmitter.GeneratedField> fields) {
+        JMethod write = codec.method(JMod.PUBLIC | JMod.STATIC, void.class, "write");
+        write._throws(IOException.class);
+        JVar generator = write.param(mGeneratorClass, "generator");
+        JVar value = write.param(clazz, "value");
+        JBlock body = write.body();
+
+        JConditional isNull = body._if(value.eq(JExpr._null()));
+        isNull._then().add(generator.invoke("writeNull"));
+        isNull._then()._return();
+
+        // Write every field under its original property name
+        body.add(generator.invoke("writeStartObject"));
+        for (PojoEmitter.GeneratedField field : fields) {
+            body.add(generator.invoke("writeFieldName").arg(JExpr.lit(field.Names.PropertyName)));
+            writeValue(body, codec, field.Field.type(), generator, value.ref(field.Field.name()),
+                    field.Names.ClassName);
+        }
+        body.add(generator.invoke("writeEndObject"));
+    }
+
+    /**
+     * Returns an expression which reads a value of the given type, starting at the current token of the parser.
+     * Lists, arrays and maps are read by helper methods of the codec.
+     *
+     * @param codec      the codec class.
+     * @param type       the type of the value.
+     * @param parser     the parser variable.
+     * @param helperName the name that helper methods for this value are derived from.
+     * @return the expression which reads the value.
+     */
+    private JExpression readValue(JDefinedClass codec, JType type, JVar parser, String helperName) {
+        if (type.isPrimitive()) {
+            return parser.invoke(getPrimitiveAccessor(type));
+        } else if (type.isArray() || isList(type)) {
+            return JExpr.invoke(getReadArrayMethod(codec, type, helperName)).arg(parser);
+        } else if (isMap(type)) {
+            return JExpr.invoke(getReadMapMethod(codec, (JClass) type, helperName)).arg(parser);
+        } else if (isEnum(type)) {
+            return ((JClass) type).staticInvoke("fromValue").arg(parser.invoke("getValueAsString"));
+        } else if (type instanceof JDefinedClass) {
+            return getCodecClass((JDefinedClass) type).staticInvoke("read").arg(parser);
+        } else if (type.fullName().equals(String.class.getName())) {
+            return parser.invoke("getValueAsString");
+        } else if (type.fullName().equals(BigDecimal.class.getName())) {
+            return JOp.cond(isToken(parser, "VALUE_NULL"), JExpr._null(), parser.invoke("getDecimalValue"));
+        } else if (type.unboxify().isPrimitive()) {
+            // Boxed values can be null
+            return JOp.cond(isToken(parser, "VALUE_NULL"), JExpr._null(),
+                    ((JClass) type).staticInvoke("valueOf").arg(parser.invoke(getPrimitiveAccessor(type.unboxify()))));
+        }
+        return JExpr.invoke(getReadUntypedMethod(codec)).arg(parser);
+    }
+
+    /**
+     * Adds the statements which write a value of the given type to a block.
+     *
+     * @param block      the block to add the statements to.
+     * @param codec      the codec class.
+     * @param type       the type of the value.
+     * @param generator  the generator variable.
+     * @param value      the expression of the value to write.
+     * @param helperName the name that helper methods for this value are derived from.
+     */
+    private void writeValue(JBlock block, JDefinedClass codec, JType type, JVar generator, JExpression value,
+                            String helperName) {
+        if (type.isPrimitive()) {
+            block.add(generator.invoke(type.name().equals("boolean") ? "writeBoolean" : "writeNumber").arg(value));
+        } else if (type.isArray() || isList(type)) {
+            block.invoke(getWriteArrayMethod(codec, type, helperName)).arg(generator).arg(value);
+        } else if (isMap(type)) {
+            block.invoke(getWriteMapMethod(codec, (JClass) type, helperName)).arg(generator).arg(value);
+        } else if (isEnum(type)) {
+            block.add(generator.invoke("writeString").arg(getEnumValue(value)));
+        } else if (type instanceof JDefinedClass) {
+            block.add(getCodecClass((JDefinedClass) type).staticInvoke("write").arg(generator).arg(value));
+        } else if (type.fullName().equals(String.class.getName())) {
+            block.add(generator.invoke("writeString").arg(value));
+        } else if (type.fullName().equals(BigDecimal.class.getName())) {
+            // Null decimals are written as null
+            block.add(generator.invoke("writeNumber").arg(value));
+        } else if (type.unboxify().isPrimitive()) {
+            // Boxed values can be null
+            JConditional isNull = block._if(value.eq(JExpr._null()));
+            isNull._then().add(generator.invoke("writeNull"));
+            writeValue(isNull._else(), codec, type.unboxify(), generator, value, helperName);
+        } else {
+            block.invoke(getWriteUntypedMethod(codec)).arg(generator).arg(value);
+        }
+    }
+
+    /**
+     * Returns the helper method which reads a list or array, generating it on first use.
+     *
+     * @param codec      the codec class.
+     * @param type       the list or array type.
+     * @param helperName the name that the helper method is derived from.
+     * @return the helper method.
+     */
+    private JMethod getReadArrayMethod(JDefinedClass codec, JType type, String helperName) {
+        String helperKey = getHelperKey(codec, "read", type);
+        JMethod read = mHelperMethods.get(helperKey);
+        if (read != null) {
+            return read;
+        }
+
+        read = codec.method(JMod.PRIVATE | JMod.STATIC, type,
+                getUniqueMethodName(codec, "read" + helperName + "Array"));
+        mHelperMethods.put(helperKey, read);
+        read._throws(IOException.class);
+        JVar parser = read.param(mParserClass, "parser");
+        JBlock body = read.body();
+        body._if(isToken(parser, "VALUE_NULL"))._then()._return(JExpr._null());
+        JExpression endOfArray = parser.invoke("nextToken").ne(mTokenClass.staticRef("END_ARRAY"));
+
+        if (type.isArray()) {
+            // Grow a primitive buffer, so that the elements are never boxed
+            JType elementType = type.elementType();
+            JClass arraysClass = mCodeModel.ref(Arrays.class);
+            JVar values = body.decl(type, "values", JExpr.newArray(elementType, ARRAY_CAPACITY));
+            JVar size = body.decl(mCodeModel.INT, "size", JExpr.lit(0));
+            JBlock loop = body._while(endOfArray).body();
+            loop._if(size.eq(values.ref("length")))._then()
+                    .assign(values, arraysClass.staticInvoke("copyOf").arg(values).arg(size.mul(JExpr.lit(2))));
+            loop.assign(values.component(size.incr()), readValue(codec, elementType, parser, helperName + "Array"));
+            body._return(arraysClass.staticInvoke("copyOf").arg(values).arg(size));
+        } else {
+            JType elementType = ((JClass) type).getTypeParameters().get(0);
+            JVar values = body.decl(type, "values",
+                    JExpr._new(mCodeModel.ref(ArrayList.class).narrow(elementType)));
+            body._while(endOfArray).body()
+                    .add(values.invoke("add").arg(readValue(codec, elementType, parser, helperName + "Array")));
+            body._return(values);
+        }
+        return read;
+    }
+
+    /**
+     * Returns the helper method which writes a list or array, generating it on first use.
+     *
+     * @param codec      the codec class.
+     * @param type       the list or array type.
+     * @param helperName the name that the helper method is derived from.
+     * @return the helper method.
+     */
+    private JMethod getWriteArrayMethod(JDefinedClass codec, JType type, String helperName) {
+        String helperKey = getHelperKey(codec, "write", type);
+        JMethod write = mHelperMethods.get(helperKey);
+        if (write != null) {
+            return write;
+        }
+
+        write = codec.method(JMod.PRIVATE | JMod.STATIC, void.class,
+                getUniqueMethodName(codec, "write" + helperName + "Array"));
+        mHelperMethods.put(helperKey, write);
+        write._throws(IOException.class);
+        JVar generator = write.param(mGeneratorClass, "generator");
+        JVar values = write.param(type, "values");
+        JBlock body = write.body();
+        JConditional isNull = body._if(values.eq(JExpr._null()));
+        isNull._then().add(generator.invoke("writeNull"));
+        isNull._then()._return();
+
+        JType elementType = type.isArray() ? type.elementType() : ((JClass) type).getTypeParameters().get(0);
+        body.add(generator.invoke("writeStartArray"));
+        JForEach loop = body.forEach(elementType, "value", values);
+        writeValue(loop.body(), codec, elementType, generator, loop.var(), helperName + "Array");
+        body.add(generator.invoke("writeEndArray"));
+        return write;
+    }
+
+    /**
+     * Returns the helper method which reads a map with string keys, generating it on first use.
+     *
+     * @param codec      the codec class.
+     * @param type       the map type.
+     * @param helperName the name that the helper method is derived from.
+     * @return the helper method.
+     */
+    private JMethod getReadMapMethod(JDefinedClass codec, JClass type, String helperName) {
+        String helperKey = getHelperKey(codec, "read", type);
+        JMethod read = mHelperMethods.get(helperKey);
+        if (read != null) {
+            return read;
+        }
+
+        read = codec.method(JMod.PRIVATE | JMod.STATIC, type,
+                getUniqueMethodName(codec, "read" + helperName + "Map"));
+        mHelperMethods.put(helperKey, read);
+        read._throws(IOException.class);
+        JVar parser = read.param(mParserClass, "parser");
+        JBlock body = read.body();
+        body._if(isToken(parser, "VALUE_NULL"))._then()._return(JExpr._null());
+
+        // Keep the keys in the order of the document
+        JClass valueType = type.getTypeParameters().get(1);
+        JVar values = body.decl(type, "values",
+                JExpr._new(mCodeModel.ref(LinkedHashMap.class).narrow(mCodeModel.ref(String.class), valueType)));
+        JBlock loop = body._while(parser.invoke("nextToken").eq(mTokenClass.staticRef("FIELD_NAME"))).body();
+        JVar key = loop.decl(mCodeModel.ref(String.class), "key", parser.invoke("getCurrentName"));
+        loop.add(parser.invoke("nextToken"));
+        loop.add(values.invoke("put").arg(key).arg(readValue(codec, valueType, parser, helperName + "Map")));
+        body._return(values);
+        return read;
+    }
+
+    /**
+     * Returns the helper method which writes a map with string keys, generating it on first use.
+     *
+     * @param codec      the codec class.
+     * @param type       the map type.
+     * @param helperName the name that the helper method is derived from.
+     * @return the helper method.
+     */
+    private JMethod getWriteMapMethod(JDefinedClass codec, JClass type, String helperName) {
+        String helperKey = getHelperKey(codec, "write", type);
+        JMethod write = mHelperMethods.get(helperKey);
+        if (write != null) {
+            return write;
+        }
+
+        write = codec.method(JMod.PRIVATE | JMod.STATIC, void.class,
+                getUniqueMethodName(codec, "write" + helperName + "Map"));
+        mHelperMethods.put(helperKey, write);
+        write._throws(IOException.class);
+        JVar generator = write.param(mGeneratorClass, "generator");
+        JVar values = write.param(type, "values");
+        JBlock body = write.body();
+        JConditional isNull = body._if(values.eq(JExpr._null()));
+        isNull._then().add(generator.invoke("writeNull"));
+        isNull._then()._return();
+
+        JClass valueType = type.getTypeParameters().get(1);
+        body.add(generator.invoke("writeStartObject"));
+        JForEach loop = body.forEach(mCodeModel.ref(Map.Entry.class).narrow(type.getTypeParameters()), "entry",
+                values.invoke("entrySet"));
+        loop.body().add(generator.invoke("writeFieldName").arg(loop.var().invoke("getKey")));
+        writeValue(loop.body(), codec, valueType, generator, loop.var().invoke("getValue"), helperName + "Map");
+        body.add(generator.invoke("writeEndObject"));
+        return write;
+    }
+
+    /**
+     * Returns the helper method which reads a value of unknown type into maps, lists and scalars, generating it on
+     * first use.
+     *
+     * @param codec the codec class.
+     * @return the helper method.
+     */
+    private JMethod getReadUntypedMethod(JDefinedClass codec) {
+        JMethod read = codec.getMethod("readValue", new JType[] { mParserClass });
+        if (read != null) {
+            return read;
+        }
+
+        JClass objectClass = mCodeModel.ref(Object.class);
+        read = codec.method(JMod.PRIVATE | JMod.STATIC, objectClass, "readValue");
+        read._throws(IOException.class);
+        JVar parser = read.param(mParserClass, "parser");
+        JBlock body = read.body();
+
+        // Objects become maps, in property order
+        JBlock objectBody = body._if(isToken(parser, "START_OBJECT"))._then();
+        JVar map = objectBody.decl(mCodeModel.ref(Map.class).narrow(String.class, Object.class), "map",
+                JExpr._new(mCodeModel.ref(LinkedHashMap.class).narrow(String.class, Object.class)));
+        JBlock objectLoop = objectBody._while(
+                parser.invoke("nextToken").eq(mTokenClass.staticRef("FIELD_NAME"))).body();
+        JVar name = objectLoop.decl(mCodeModel.ref(String.class), "name", parser.invoke("getCurrentName"));
+        objectLoop.add(parser.invoke("nextToken"));
+        objectLoop.add(map.invoke("put").arg(name).arg(JExpr.invoke(read).arg(parser)));
+        objectBody._return(map);
+
+        // Arrays become lists
+        JBlock arrayBody = body._if(isToken(parser, "START_ARRAY"))._then();
+        JVar list = arrayBody.decl(mCodeModel.ref(List.class).narrow(Object.class), "list",
+                JExpr._new(mCodeModel.ref(ArrayList.class).narrow(Object.class)));
+        arrayBody._while(parser.invoke("nextToken").ne(mTokenClass.staticRef("END_ARRAY"))).body()
+                .add(list.invoke("add").arg(JExpr.invoke(read).arg(parser)));
+        arrayBody._return(list);
+
+        // Scalars become their natural Java type
+        body._if(isToken(parser, "VALUE_STRING"))._then()._return(parser.invoke("getText"));
+        body._if(isToken(parser, "VALUE_NUMBER_INT").cor(isToken(parser, "VALUE_NUMBER_FLOAT")))._then()
+                ._return(parser.invoke("getNumberValue"));
+        body._if(isToken(parser, "VALUE_TRUE").cor(isToken(parser, "VALUE_FALSE")))._then()
+                ._return(parser.invoke("getBooleanValue"));
+        body._return(JExpr._null());
+        return read;
+    }
+
+    /**
+     * Returns the helper method which writes a value read by {@link #getReadUntypedMethod}, generating it on first
+     * use.
+     *
+     * @param codec the codec class.
+     * @return the helper method.
+     */
+    private JMethod getWriteUntypedMethod(JDefinedClass codec) {
+        JClass objectClass = mCodeModel.ref(Object.class);
+        JMethod write = codec.getMethod("writeValue", new JType[] { mGeneratorClass, objectClass });
+        if (write != null) {
+            return write;
+        }
+
+        write = codec.method(JMod.PRIVATE | JMod.STATIC, void.class, "writeValue");
+        write._throws(IOException.class);
+        JVar generator = write.param(mGeneratorClass, "generator");
+        JVar value = write.param(objectClass, "value");
+        JBlock body = write.body();
+        JClass wildcardMap = mCodeModel.ref(Map.class).narrow(objectClass.wildcard(), objectClass.wildcard());
+        JClass wildcardEntry = mCodeModel.ref(Map.Entry.class).narrow(objectClass.wildcard(), objectClass.wildcard());
+
+        // Maps become objects
+        JBlock mapBody = body._if(value._instanceof(mCodeModel.ref(Map.class)))._then();
+        mapBody.add(generator.invoke("writeStartObject"));
+        JForEach entries = mapBody.forEach(wildcardEntry, "entry",
+                JExpr.invoke(JExpr.cast(wildcardMap, value), "entrySet"));
+        entries.body().add(generator.invoke("writeFieldName")
+                .arg(mCodeModel.ref(String.class).staticInvoke("valueOf").arg(entries.var().invoke("getKey"))));
+        entries.body().invoke(write).arg(generator).arg(entries.var().invoke("getValue"));
+        mapBody.add(generator.invoke("writeEndObject"));
+        mapBody._return();
+
+        // Lists become arrays
+        JBlock listBody = body._if(value._instanceof(mCodeModel.ref(List.class)))._then();
+        listBody.add(generator.invoke("writeStartArray"));
+        JForEach elements = listBody.forEach(objectClass, "element",
+                JExpr.cast(mCodeModel.ref(List.class).narrow(objectClass.wildcard()), value));
+        elements.body().invoke(write).arg(generator).arg(elements.var());
+        listBody.add(generator.invoke("writeEndArray"));
+        listBody._return();
+
+        // Scalars are written without an object codec
+        JBlock stringBody = body._if(value._instanceof(mCodeModel.ref(String.class)))._then();
+        stringBody.add(generator.invoke("writeString").arg(JExpr.cast(mCodeModel.ref(String.class), value)));
+        stringBody._return();
+        JBlock numberBody = body._if(value._instanceof(mCodeModel.ref(Number.class)))._then();
+        numberBody.add(generator.invoke("writeNumber").arg(value.invoke("toString")));
+        numberBody._return();
+        JBlock booleanBody = body._if(value._instanceof(mCodeModel.ref(Boolean.class)))._then();
+        booleanBody.add(generator.invoke("writeBoolean").arg(JExpr.cast(mCodeModel.ref(Boolean.class), value)));
+        booleanBody._return();
+        body.add(generator.invoke("writeNull"));
+        return write;
+    }
+
+    //endregion
+
+    //region HELPER METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the codec class nested in a generated class, creating it on first use so that codecs can refer to the
+     * codecs of classes that are generated later.
+     *
+     * @param clazz the generated class.
+     * @return the codec class.
+     */
+    static JDefinedClass getCodecClass(JDefinedClass clazz) {
+        for (JClass nestedClass : clazz.listClasses()) {
+            if (nestedClass.name().equals(CODEC_CLASS_NAME)) {
+                return (JDefinedClass) nestedClass;
+            }
+        }
+        try {
+            return clazz._class(JMod.PUBLIC | JMod.STATIC | JMod.FINAL, CODEC_CLASS_NAME);
+        } catch (JClassAlreadyExistsException e) {
+            return e.getExistingClass();
+        }
+    }
+
+    /**
+     * @return an expression which is true if the current token of the parser is the given token.
+     */
+    private JExpression isToken(JVar parser, String token) {
+        return parser.invoke("getCurrentToken").eq(mTokenClass.staticRef(token));
+    }
+
+    /**
+     * @return true if the type is a {@link List} of some element type.
+     */
+    static boolean isList(JType type) {
+        return type instanceof JClass && type.erasure().fullName().equals(List.class.getName())
+                && !((JClass) type).getTypeParameters().isEmpty();
+    }
+
+    /**
+     * @return true if the type is a {@link Map} of some key and value type.
+     */
+    static boolean isMap(JType type) {
+        return type instanceof JClass && type.erasure().fullName().equals(Map.class.getName())
+                && ((JClass) type).getTypeParameters().size() == 2;
+    }
+
+    /**
+     * Returns the key of the helper method of a nested class which reads or writes the given type. Helpers are looked
+     * up by their full type rather than by their name, since values of different types can derive the same name.
+     *
+     * @param owner     the codec or adapter class which contains the helper.
+     * @param direction {@code read} or {@code write}.
+     * @param type      the list, array or map type.
+     * @return the key of the helper method.
+     */
+    static String getHelperKey(JDefinedClass owner, String direction, JType type) {
+        return owner.fullName() + '#' + direction + ' ' + type.fullName();
+    }
+
+    /**
+     * Returns a method name which is not used yet by a class, numbering the name if it is taken.
+     *
+     * @param owner      the class to add the method to.
+     * @param methodName the preferred name of the method.
+     * @return the preferred name, or the name followed by the first free number from 2.
+     */
+    static String getUniqueMethodName(JDefinedClass owner, String methodName) {
+        Set<String> usedNames = new HashSet<>();
+        for (JMethod method : owner.methods()) {
+            usedNames.add(method.name());
+        }
+        String uniqueName = methodName;
+        for (int i = 2; usedNames.contains(uniqueName); i++) {
+            uniqueName = methodName + i;
+        }
+        return uniqueName;
+    }
+
+    /**
+     * @return true if the type is an enum generated for a string property.
+     */
+    static boolean isEnum(JType type) {
+        return type instanceof JDefinedClass && ((JDefinedClass) type).getClassType() == ClassType.ENUM;
+    }
+
+    /**
+     * @return an expression which is the original value of an enum constant, or null.
+     */
+    static JExpression getEnumValue(JExpression constant) {
+        return JOp.cond(constant.eq(JExpr._null()), JExpr._null(), constant.invoke("getValue"));
+    }
+
+    /**
+     * @return the name of the parser method which returns the current value as the given primitive type.
+     */
+    private String getPrimitiveAccessor(JType primitiveType) {
+        switch (primitiveType.name()) {
+            case "boolean":
+                return "getBooleanValue";
+            case "int":
+                return "getIntValue";
+            case "float":
+                return "getFloatValue";
+            case "double":
+                return "getDoubleValue";
+            default:
+                return "getLongValue";
+        }
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,176 @@
+package net.hexar.json2pojo;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command-line entry point which generates Java POJO classes from a directory of JSON samples, for use in builds.
+ */
+public class Json2PojoCli {
+
+    //region CONSTANTS -------------------------------------------------------------------------------------------------
+
+    /**
+     * The number of leading array elements which are always inferred when only a sample rate is given.
+     */
+    private static final int DEFAULT_SAMPLE_HEAD = 100;
+
+    private static final String USAGE = "Usage: json2pojo [options] <sample dir> <output root> <package>\n"
+            + "  --builders      generate builders and remove setters\n"
+            + "  --immutable     generate immutable classes with builders, equals and hashCode\n"
+            + "  --no-m-prefix   do not prefix field names with 'm'\n"
+            + "  --dedup-shapes  generate structurally identical objects as a single class\n"
+            + "  --incremental   skip classes whose shape did not change since the previous run\n"
+            + "  --primitives    use primitive fields and arrays for values that are never null or missing\n"
+            + "  --narrow-numbers\n"
+            + "                  infer the narrowest of int, long, float, double and BigDecimal for numbers\n"
+            + "  --enums <n>     generate string properties with at most n distinct repeated values as enums\n"
+            + "  --maps <n>      generate objects with at least n numeric, UUID or hash keys as Map<String, T>\n"
+            + "  --jackson-codecs\n"
+            + "                  generate a reflection-free Jackson streaming reader and writer in every class\n"
+            + "  --gson-adapters generate a Gson type adapter in every class and a factory registering them\n"
+            + "  --report        write the timings and sizes of every sample to .json2pojo-report.json\n"
+            + "  --threads <n>   number of samples to generate concurrently (default: number of processors)\n"
+            + "  --sample-head <n> --sample-rate <p>\n"
+            + "                  infer arrays from their first n elements plus each later one with probability p\n"
+            + "                  (n defaults to " + DEFAULT_SAMPLE_HEAD + " if only p is given)\n"
+            + "  --record-sample-rate <p>\n"
+            + "                  infer .ndjson and .jsonl files from each record with probability p";
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    //endregion
+
+    //region PRIVATE METHODS -------------------------------------------------------------------------------------------
+
+    /**
+     * Runs the command line generation.
+     *
+     * @param args the command line arguments.
+     * @param out  the stream to print the summary to.
+     * @param err  the stream to print usage and failures to.
+     * @return the process exit code: 0 on success, 1 if a sample failed and 2 on invalid arguments.
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        GenerationOptions.Builder options = new GenerationOptions.Builder();
+        Integer sampleHead = null;
+        Double sampleRate = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        // Parse the options
+        int argIndex = 0;
+        try {
+            for (; argIndex < args.length && args[argIndex].startsWith("--"); argIndex++) {
+                switch (args[argIndex]) {
+                    case "--builders":
+                        options.withGenerateBuilders(true);
+                        break;
+                    case "--immutable":
+                        options.withImmutable(true);
+                        break;
+                    case "--no-m-prefix":
+                        options.withUseMPrefix(false);
+                        break;
+                    case "--dedup-shapes":
+                        options.withDeduplicateShapes(true);
+                        break;
+                    case "--incremental":
+                        options.withIncremental(true);
+                        break;
+                    case "--primitives":
+                        options.withPrimitives(true);
+                        break;
+                    case "--narrow-numbers":
+                        options.withNarrowNumbers(true);
+                        break;
+                    case "--enums":
+                        options.withMaxEnumValues(Integer.parseInt(args[++argIndex]));
+                        break;
+                    case "--maps":
+                        options.withMinMapKeys(Integer.parseInt(args[++argIndex]));
+                        break;
+                    case "--jackson-codecs":
+                        options.withJacksonCodecs(true);
+                        break;
+                    case "--gson-adapters":
+                        options.withGsonAdapters(true);
+                        break;
+                    case "--report":
+                        options.withReport(true);
+                        break;
+                    case "--sample-head":
+                        sampleHead = Integer.parseInt(args[++argIndex]);
+                        break;
+                    case "--sample-rate":
+                        sampleRate = Double.parseDouble(args[++argIndex]);
+                        break;
+                    case "--record-sample-rate":
+                        options.withRecordSampling(Double.parseDouble(args[++argIndex]));
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++argIndex]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[argIndex]);
+                }
+            }
+
+            // A sample rate alone applies after a default head, and a head alone skips the rest of every array
+            if (sampleHead != null || sampleRate != null) {
+                options.withSampling(sampleHead != null ? sampleHead : DEFAULT_SAMPLE_HEAD,
+                        sampleRate != null ? sampleRate : 0);
+            }
+        } catch (RuntimeException e) {
+            err.println(e.getMessage() != null ? e.getMessage() : "Invalid options");
+            err.println(USAGE);
+            return 2;
+        }
+
+        // Then the positional arguments
+        if (args.length - argIndex != 3 || threads < 1) {
+            err.println(USAGE);
+            return 2;
+        }
+        Path sampleDir = Paths.get(args[argIndex]);
+        File outputRoot = new File(args[argIndex + 1]);
+        String packageName = args[argIndex + 2];
+
+        // Generate
+        long startTime = System.nanoTime();
+        BatchGenerator generator;
+        Map<Path, Exception> failures;
+        try {
+            generator = new BatchGenerator(packageName, outputRoot, options.build(), threads);
+            failures = generator.generate(sampleDir);
+        } catch (Exception e) {
+            err.println("Codegen failed: " + e);
+            return 1;
+        }
+
+        // Report
+        for (Map.Entry<Path, List<NameTable.Collision>> collisions : generator.getNameCollisions().entrySet()) {
+            for (NameTable.Collision collision : collisions.getValue()) {
+                err.println("Warning for " + collisions.getKey() + ": " + collision);
+            }
+        }
+        for (Map.Entry<Path, Exception> failure : failures.entrySet()) {
+            err.println("Codegen failed for " + failure.getKey() + ": " + failure.getValue());
+        }
+        out.println(String.format("Finished in %d ms with %d failure(s)",
+                (System.nanoTime() - startTime) / 1000000, failures.size()));
+        return failures.isEmpty() ? 0 : 1;
+    }
+
+    //endregion
+
+}
@@ -1,5 +1,12 @@
 package net.hexar.json2pojo;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.intellij.ide.util.PropertiesComponent;
 import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
 import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
 import org.fife.ui.rsyntaxtextarea.Theme;
@@ -7,11 +14,20 @@ import org.fife.ui.rsyntaxtextarea.Theme;
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.text.Document;
 import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 /**
  * A custom dialog which allows the user to input a JSON text.
@@ -28,11 +44,11 @@ public class JsonEntryDialog extends JDialog {
          * A callback to be invoked when the user has clicked the OK button.
          *
          * @param className the class name entered into the dialog.
-         * @param jsonText the JSON text entered into the dialog.
-         * @param generateBuilders true if the generated classes should omit setters and generate builders.
-         * @param useMPrefix true if the generated fields should have an 'm' prefix.
+         * @param json the JSON tree parsed from the text entered into the dialog, or null if a file was chosen.
+         * @param jsonFile the JSON file chosen in the dialog, or null if a text was entered.
+         * @param options the generation options chosen in the dialog.
          */
-        void onOk(String className, String jsonText, boolean generateBuilders, boolean useMPrefix);
+        void onOk(String className, JsonNode json, Path jsonFile, GenerationOptions options);
     }
 
     //endregion
@@ -41,21 +57,62 @@ public class JsonEntryDialog extends JDialog {
 
     private static final String CLASS_NAME_REGEX = "[A-Za-z][A-Za-z0-9]*";
 
+    /**
+     * The JSON text is only validated once it hasn't changed for this long, in milliseconds.
+     */
+    private static final int VALIDATION_DELAY = 300;
+
+    /**
+     * Syntax highlighting is turned off for texts longer than this, in characters.
+     */
+    private static final int HIGHLIGHTING_LIMIT = 512 * 1024;
+
+    /**
+     * Only this many bytes of a chosen JSON file are shown in the editor.
+     */
+    private static final int FILE_PREVIEW_LENGTH = 64 * 1024;
+
+    /**
+     * The prefix of the application-wide properties which remember the chosen options between runs.
+     */
+    private static final String SETTINGS_PREFIX = "net.hexar.json2pojo.";
+
+    /**
+     * The largest count that can be chosen for the enum values and map keys.
+     */
+    private static final int MAX_COUNT = 1000;
+
     //endregion
 
     //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
 
     // Data / State
     private OnOkListener mListener;
+    private JsonNode mParsedJson;
+    private Path mJsonFile;
+    private volatile int mJsonVersion;
+    private final Timer mValidationTimer = new Timer(VALIDATION_DELAY, e -> startJsonValidation());
 
     // UI
     private JButton mButtonCancel;
+    private JButton mButtonFromFile;
     private JButton mButtonOK;
     private JTextField mClassName;
     private JPanel mContentPane;
     private RSyntaxTextArea mJsonText;
     private JCheckBox mUseMPrefix;
     private JCheckBox mGenerateBuilders;
+    private JCheckBox mImmutable;
+    private JCheckBox mUsePrimitives;
+    private JCheckBox mNarrowNumbers;
+    private JCheckBox mDeduplicateShapes;
+    private JCheckBox mIncremental;
+    private JCheckBox mWriteReport;
+    private JCheckBox mGenerateJacksonCodecs;
+    private JCheckBox mGenerateGsonAdapters;
+    private JSpinner mMaxEnumValues;
+    private JSpinner mMinMapKeys;
+    private JLabel mValidationMessage;
 
     //endregion
 
@@ -76,6 +133,7 @@ public class JsonEntryDialog extends JDialog {
         // Add button listeners
         mButtonOK.addActionListener(e -> onOK());
         mButtonCancel.addActionListener(e -> onCancel());
+        mButtonFromFile.addActionListener(e -> onFromFile());
 
         // Call onCancel() when cross is clicked
         setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
@@ -90,10 +148,11 @@ public class JsonEntryDialog extends JDialog {
                 KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0),
                 JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT);
 
-        // Enable/disable OK button
+        // Enable/disable OK button, validating the JSON text in the background once typing pauses
         mButtonOK.setEnabled(false);
-        mClassName.getDocument().addDocumentListener(new TextChangedListener());
-        mJsonText.getDocument().addDocumentListener(new TextChangedListener());
+        mValidationTimer.setRepeats(false);
+        mClassName.getDocument().addDocumentListener(new TextChangedListener(this::updateOkButton));
+        mJsonText.getDocument().addDocumentListener(new TextChangedListener(this::onJsonChanged));
 
         // Set up syntax highlighting
         mJsonText.setSyntaxEditingStyle(SyntaxConstants.SYNTAX_STYLE_JSON);
@@ -103,6 +162,11 @@ public class JsonEntryDialog extends JDialog {
         } catch (IOException ignored) {
         }
         mJsonText.setCodeFoldingEnabled(false);
+
+        // Restore the options chosen in the previous run
+        mMaxEnumValues.setModel(new SpinnerNumberModel(0, 0, MAX_COUNT, 1));
+        mMinMapKeys.setModel(new SpinnerNumberModel(0, 0, MAX_COUNT, 1));
+        loadSettings(PropertiesComponent.getInstance());
     }
 
     //endregion
@@ -113,51 +177,269 @@ public class JsonEntryDialog extends JDialog {
     //region PRIVATE METHODS -------------------------------------------------------------------------------------------
 
     private void onCancel() {
+        mValidationTimer.stop();
         dispose();
     }
 
     private void onOK() {
-        mListener.onOk(
-                mClassName.getText(),
-                mJsonText.getText(),
-                mGenerateBuilders.isSelected(),
-                mUseMPrefix.isSelected());
+        mValidationTimer.stop();
+        saveSettings(PropertiesComponent.getInstance());
+        GenerationOptions options = new GenerationOptions.Builder()
+                .withGenerateBuilders(mGenerateBuilders.isSelected())
+                .withUseMPrefix(mUseMPrefix.isSelected())
+                .withImmutable(mImmutable.isSelected())
+                .withPrimitives(mUsePrimitives.isSelected())
+                .withNarrowNumbers(mNarrowNumbers.isSelected())
+                .withDeduplicateShapes(mDeduplicateShapes.isSelected())
+                .withIncremental(mIncremental.isSelected())
+                .withReport(mWriteReport.isSelected())
+                .withJacksonCodecs(mGenerateJacksonCodecs.isSelected())
+                .withGsonAdapters(mGenerateGsonAdapters.isSelected())
+                .withMaxEnumValues((Integer) mMaxEnumValues.getValue())
+                .withMinMapKeys((Integer) mMinMapKeys.getValue())
+                .build();
+        // Hand the parsed tree over, without keeping it alive in the dialog
+        JsonNode json = mJsonFile == null ? mParsedJson : null;
+        mParsedJson = null;
+        mListener.onOk(mClassName.getText(), json, mJsonFile, options);
         dispose();
     }
 
+    /**
+     * Selects the options which were chosen in the previous run, keeping the defaults of the form for options which
+     * were never chosen.
+     *
+     * @param properties the application-wide properties.
+     */
+    private void loadSettings(PropertiesComponent properties) {
+        for (Map.Entry<String, JCheckBox> checkBox : getCheckBoxSettings().entrySet()) {
+            JCheckBox option = checkBox.getValue();
+            option.setSelected(properties.getBoolean(SETTINGS_PREFIX + checkBox.getKey(), option.isSelected()));
+        }
+        for (Map.Entry<String, JSpinner> spinner : getSpinnerSettings().entrySet()) {
+            String value = properties.getValue(SETTINGS_PREFIX + spinner.getKey());
+            try {
+                if (value != null) {
+                    spinner.getValue().setValue(Math.max(0, Math.min(Integer.parseInt(value), MAX_COUNT)));
+                }
+            } catch (NumberFormatException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Remembers the chosen options for the next run.
+     *
+     * @param properties the application-wide properties.
+     */
+    private void saveSettings(PropertiesComponent properties) {
+        for (Map.Entry<String, JCheckBox> checkBox : getCheckBoxSettings().entrySet()) {
+            String value = Boolean.toString(checkBox.getValue().isSelected());
+            properties.setValue(SETTINGS_PREFIX + checkBox.getKey(), value);
+        }
+        for (Map.Entry<String, JSpinner> spinner : getSpinnerSettings().entrySet()) {
+            properties.setValue(SETTINGS_PREFIX + spinner.getKey(), String.valueOf(spinner.getValue().getValue()));
+        }
+    }
+
+    /**
+     * @return the check boxes of the options, by the name of their setting.
+     */
+    private Map<String, JCheckBox> getCheckBoxSettings() {
+        Map<String, JCheckBox> checkBoxes = new LinkedHashMap<>();
+        checkBoxes.put("generateBuilders", mGenerateBuilders);
+        checkBoxes.put("useMPrefix", mUseMPrefix);
+        checkBoxes.put("immutable", mImmutable);
+        checkBoxes.put("usePrimitives", mUsePrimitives);
+        checkBoxes.put("narrowNumbers", mNarrowNumbers);
+        checkBoxes.put("deduplicateShapes", mDeduplicateShapes);
+        checkBoxes.put("incremental", mIncremental);
+        checkBoxes.put("writeReport", mWriteReport);
+        checkBoxes.put("generateJacksonCodecs", mGenerateJacksonCodecs);
+        checkBoxes.put("generateGsonAdapters", mGenerateGsonAdapters);
+        return checkBoxes;
+    }
+
+    /**
+     * @return the spinners of the options, by the name of their setting.
+     */
+    private Map<String, JSpinner> getSpinnerSettings() {
+        Map<String, JSpinner> spinners = new LinkedHashMap<>();
+        spinners.put("maxEnumValues", mMaxEnumValues);
+        spinners.put("minMapKeys", mMinMapKeys);
+        return spinners;
+    }
+
+    /**
+     * Lets the user choose a JSON file to generate from, and shows the beginning of it in the read-only editor. The
+     * file itself is only read during generation.
+     */
+    private void onFromFile() {
+        JFileChooser fileChooser = new JFileChooser();
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        Path jsonFile = fileChooser.getSelectedFile().toPath();
+        String preview;
+        long size;
+        try (FileChannel channel = FileChannel.open(jsonFile, StandardOpenOption.READ)) {
+            size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, FILE_PREVIEW_LENGTH));
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the preview is complete
+            }
+            preview = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            mValidationMessage.setText(e.getMessage());
+            return;
+        }
+
+        // Show the preview without validating it, since it is truncated
+        mJsonFile = jsonFile;
+        mValidationTimer.stop();
+        mJsonText.setEditable(false);
+        mJsonText.setText(preview);
+        mJsonText.setCaretPosition(0);
+        mValidationMessage.setText(size > FILE_PREVIEW_LENGTH
+                ? String.format("Preview of the first %d KB of %s", FILE_PREVIEW_LENGTH / 1024, jsonFile.getFileName())
+                : "Generating from " + jsonFile.getFileName());
+        updateOkButton();
+    }
+
+    /**
+     * Invalidates the previously parsed JSON and restarts the validation delay.
+     */
+    private void onJsonChanged() {
+        updateHighlighting();
+        if (mJsonFile != null) {
+            return;
+        }
+
+        mJsonVersion++;
+        mParsedJson = null;
+        mValidationMessage.setText("");
+        updateOkButton();
+        mValidationTimer.restart();
+    }
+
+    /**
+     * Parses the current JSON text on a background thread, without copying it on the event dispatch thread.
+     */
+    private void startJsonValidation() {
+        int version = mJsonVersion;
+        Document document = mJsonText.getDocument();
+
+        new SwingWorker<JsonNode, Void>() {
+            @Override
+            protected JsonNode doInBackground() throws Exception {
+                // Stop early if the text already changed again
+                if (version != mJsonVersion) {
+                    return null;
+                }
+                return parseJson(document.getText(0, document.getLength()));
+            }
+
+            @Override
+            protected void done() {
+                // Ignore results for outdated text
+                if (version != mJsonVersion) {
+                    return;
+                }
+                try {
+                    mParsedJson = get();
+                } catch (ExecutionException e) {
+                    mValidationMessage.setText(formatJsonError(e.getCause()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                updateOkButton();
+            }
+        }.execute();
+    }
+
+    /**
+     * Enables the OK button if the class name is valid and a JSON file was chosen or the current JSON text was parsed
+     * successfully.
+     */
+    private void updateOkButton() {
+        mButtonOK.setEnabled(mClassName.getText().matches(CLASS_NAME_REGEX)
+                && (mJsonFile != null || mParsedJson != null));
+    }
+
+    /**
+     * Turns syntax highlighting off while the text is too long to be highlighted quickly, and back on otherwise.
+     */
+    private void updateHighlighting() {
+        String syntaxStyle = mJsonText.getDocument().getLength() > HIGHLIGHTING_LIMIT
+                ? SyntaxConstants.SYNTAX_STYLE_NONE : SyntaxConstants.SYNTAX_STYLE_JSON;
+        if (!syntaxStyle.equals(mJsonText.getSyntaxEditingStyle())) {
+            mJsonText.setSyntaxEditingStyle(syntaxStyle);
+        }
+    }
+
+    /**
+     * Parses a JSON text into a tree, rejecting any content after the first value.
+     *
+     * @param jsonText the JSON text.
+     * @return the root node, or null if the text contains no JSON value.
+     * @throws IOException if the text is not valid JSON.
+     */
+    static JsonNode parseJson(String jsonText) throws IOException {
+        try (JsonParser parser = new JsonFactory().createParser(jsonText)) {
+            JsonNode rootNode = JsonTreeReader.readTree(parser);
+            if (rootNode != null && parser.nextToken() != null) {
+                throw new JsonParseException(parser, "Unexpected content after the JSON value",
+                        parser.getTokenLocation());
+            }
+            return rootNode;
+        }
+    }
+
+    /**
+     * Describes why a JSON text could not be parsed, including the location of the error if it is known.
+     *
+     * @param error the parse error.
+     * @return the error message to display.
+     */
+    static String formatJsonError(Throwable error) {
+        if (error instanceof JsonProcessingException) {
+            JsonProcessingException jsonError = (JsonProcessingException) error;
+            JsonLocation location = jsonError.getLocation();
+            if (location != null) {
+                return String.format("Line %d, column %d: %s", location.getLineNr(), location.getColumnNr(),
+                        jsonError.getOriginalMessage());
+            }
+            return jsonError.getOriginalMessage();
+        }
+        return String.valueOf(error.getMessage());
+    }
+
     //region INNER CLASSES ---------------------------------------------------------------------------------------------
 
     /**
      * Gets called when the JSON text or root class text has changed.
      */
-    private class TextChangedListener implements DocumentListener {
+    private static class TextChangedListener implements DocumentListener {
+        private final Runnable mOnChanged;
+
+        TextChangedListener(Runnable onChanged) {
+            mOnChanged = onChanged;
+        }
+
         @Override
         public void insertUpdate(DocumentEvent e) {
-            validate();
+            mOnChanged.run();
         }
 
         @Override
         public void removeUpdate(DocumentEvent e) {
-            validate();
+            mOnChanged.run();
         }
 
         @Override
         public void changedUpdate(DocumentEvent e) {
-            validate();
-        }
-
-        /**
-         * Validates the class name and JSON text and enables the OK button if validation passes.
-         */
-        private void validate() {
-            String className = mClassName.getText();
-            String jsonText = mJsonText.getText();
-
-            if (className.matches(CLASS_NAME_REGEX) && !jsonText.isEmpty()) {
-                mButtonOK.setEnabled(true);
-            } else {
-                mButtonOK.setEnabled(false);
-            }
+            // Only attribute changes, which don't affect the text
         }
     }
 
@@ -0,0 +1,386 @@
+package net.hexar.json2pojo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps a JSON Schema document directly to an {@link InferredSchema}, so that no sample payloads have to be inferred.
+ * Object schemas become classes named the same way as during sample inference, properties which are not required
+ * become nullable, and alternatives ({@code anyOf}, {@code oneOf}, {@code allOf}, type lists and enums) are merged
+ * with the type lattice. Only local {@code $ref} pointers into the same document are supported.
+ */
+class JsonSchemaInference {
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final InferredSchema mSchema = new InferredSchema();
+    private final GenerationOptions mOptions;
+    private final NameTable mNames;
+    private final Map<String, InferredType> mResolvedRefs = new HashMap<>();
+    private final Set<String> mResolvingRefs = new HashSet<>();
+    private JsonNode mRootSchema;
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a new JSON Schema inference.
+     *
+     * @param names the name table of the current run.
+     */
+    JsonSchemaInference(NameTable names) {
+        this(GenerationOptions.DEFAULT, names);
+    }
+
+    /**
+     * Creates a new JSON Schema inference which narrows numbers by their declared format and range if the options
+     * ask for it.
+     *
+     * @param options the generation options.
+     * @param names   the name table of the current run.
+     */
+    JsonSchemaInference(GenerationOptions options, NameTable names) {
+        mOptions = options;
+        mNames = names;
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Maps the classes described by a JSON Schema document.
+     *
+     * @param rootSchema the root node of the JSON Schema document.
+     * @param rootName   the formatted name of the root class.
+     * @return the inferred schema.
+     * @throws IllegalArgumentException if the document contains a reference that cannot be resolved.
+     */
+    InferredSchema infer(JsonNode rootSchema, String rootName) {
+        mRootSchema = rootSchema;
+        mSchema.findOrCreateClass(rootName);
+
+        // The root can refer to itself, so it is resolved before its properties are mapped
+        mResolvedRefs.put("#", InferredType.object(rootName));
+        inferType(dereference(rootSchema), rootName, rootName);
+        return mSchema;
+    }
+
+    /**
+     * Returns true if a parsed JSON document is a JSON Schema rather than a sample, because it declares its schema
+     * version with a {@code $schema} keyword.
+     *
+     * @param rootNode the root node of the document.
+     * @return true if the document is a JSON Schema.
+     */
+    static boolean isJsonSchema(JsonNode rootNode) {
+        return rootNode != null && rootNode.isObject() && rootNode.path("$schema").isTextual();
+    }
+
+    //endregion
+
+    //region PRIVATE METHODS -------------------------------------------------------------------------------------------
+
+    /**
+     * Maps a schema to a type, adding the classes of its object schemas.
+     *
+     * @param schema           the schema node.
+     * @param className        the formatted name of the class of object values.
+     * @param elementClassName the formatted name of the class of the elements of array values.
+     * @return the type described by the schema.
+     */
+    private InferredType inferType(JsonNode schema, String className, String elementClassName) {
+        if (schema == null || !schema.isObject()) {
+            // Boolean schemas, and anything else, allow any value
+            return InferredType.of(InferredType.Kind.MIXED);
+        }
+
+        // References replace the rest of the schema
+        JsonNode ref = schema.get("$ref");
+        if (ref != null) {
+            return resolveRef(ref.asText());
+        }
+
+        InferredType type = InferredType.of(InferredType.Kind.UNKNOWN);
+        boolean constrained = false;
+
+        // Every alternative is merged into the same type
+        for (String keyword : new String[] { "anyOf", "oneOf" }) {
+            for (JsonNode alternative : schema.path(keyword)) {
+                type = type.merge(inferType(alternative, className, elementClassName));
+                constrained = true;
+            }
+        }
+
+        // All parts of a composition describe the same value, so their properties are added to the same class
+        for (JsonNode part : schema.path("allOf")) {
+            JsonNode target = dereference(part);
+            if (isObjectSchema(target)) {
+                inferProperties(target, className);
+                type = type.merge(InferredType.object(className));
+            } else {
+                type = type.merge(inferType(part, className, elementClassName));
+            }
+            constrained = true;
+        }
+
+        // Enumerations and constants have the type of their values
+        for (JsonNode value : schema.path("enum")) {
+            type = type.merge(getValueType(value));
+            constrained = true;
+        }
+        if (schema.has("const")) {
+            type = type.merge(getValueType(schema.get("const")));
+            constrained = true;
+        }
+
+        // Then the declared types, which are implied by object and array keywords if they are missing
+        JsonNode typeNode = schema.get("type");
+        if (typeNode != null && typeNode.isArray()) {
+            for (JsonNode typeName : typeNode) {
+                type = type.merge(inferDeclaredType(schema, typeName.asText(), className, elementClassName));
+            }
+        } else if (typeNode != null) {
+            type = type.merge(inferDeclaredType(schema, typeNode.asText(), className, elementClassName));
+        } else if (schema.has("properties") || schema.has("required")) {
+            type = type.merge(inferDeclaredType(schema, "object", className, elementClassName));
+        } else if (schema.has("items")) {
+            type = type.merge(inferDeclaredType(schema, "array", className, elementClassName));
+        } else if (!constrained) {
+            type = InferredType.of(InferredType.Kind.MIXED);
+        }
+        return type;
+    }
+
+    /**
+     * Maps a schema with the given declared type.
+     *
+     * @param schema           the schema node.
+     * @param typeName         the name of one of the types of the schema.
+     * @param className        the formatted name of the class of object values.
+     * @param elementClassName the formatted name of the class of the elements of array values.
+     * @return the type described by the schema.
+     */
+    private InferredType inferDeclaredType(JsonNode schema, String typeName, String className,
+                                           String elementClassName) {
+        switch (typeName) {
+            case "object":
+                inferProperties(schema, className);
+                return InferredType.object(className);
+            case "array": {
+                // Tuple schemas merge the types of all of their items
+                InferredType elementType = InferredType.of(InferredType.Kind.UNKNOWN);
+                JsonNode items = schema.get("items");
+                if (items != null && items.isArray()) {
+                    for (JsonNode item : items) {
+                        elementType = elementType.merge(inferType(item, elementClassName, elementClassName));
+                    }
+                } else if (items != null) {
+                    elementType = inferType(items, elementClassName, elementClassName);
+                }
+                return InferredType.list(elementType);
+            }
+            case "boolean":
+                return InferredType.of(InferredType.Kind.BOOLEAN);
+            case "integer":
+                return InferredType.of(mOptions.isNarrowNumbers() && isIntRange(schema)
+                        ? InferredType.Kind.INT : InferredType.Kind.LONG);
+            case "number":
+                return InferredType.of(mOptions.isNarrowNumbers() && "float".equals(schema.path("format").asText())
+                        ? InferredType.Kind.FLOAT : InferredType.Kind.DOUBLE);
+            case "string":
+                return InferredType.of(InferredType.Kind.STRING);
+            case "null":
+                return InferredType.nullValue();
+            default:
+                return InferredType.of(InferredType.Kind.MIXED);
+        }
+    }
+
+    /**
+     * Adds the properties of an object schema to its class. Properties which are not required are nullable.
+     *
+     * @param schema    the object schema.
+     * @param className the formatted name of the class.
+     */
+    private void inferProperties(JsonNode schema, String className) {
+        // A schema describes every object of its class at once, so parts of an allOf count as the same object
+        InferredClass clazz = mSchema.findOrCreateClass(className);
+        if (clazz.getObjectCount() == 0) {
+            clazz.countObject();
+        }
+
+        Set<String> required = new HashSet<>();
+        for (JsonNode property : schema.path("required")) {
+            required.add(property.asText());
+        }
+
+        Iterator<Map.Entry<String, JsonNode>> properties = schema.path("properties").fields();
+        while (properties.hasNext()) {
+            Map.Entry<String, JsonNode> property = properties.next();
+            NameTable.PropertyNames names = mNames.get(property.getKey());
+            InferredType type = inferType(property.getValue(), names.ClassName, names.getElementClassName());
+            clazz.addField(property.getKey(), required.contains(property.getKey())
+                    ? type : type.merge(InferredType.nullValue()));
+        }
+    }
+
+    /**
+     * Resolves a local reference, mapping the referenced schema once.
+     *
+     * @param ref the reference, a JSON pointer into the document such as {@code #/definitions/Address}.
+     * @return the type of the referenced schema.
+     * @throws IllegalArgumentException if the reference is not local, points to nothing, or refers to itself without
+     *                                  describing a class.
+     */
+    private InferredType resolveRef(String ref) {
+        InferredType resolved = mResolvedRefs.get(ref);
+        if (resolved != null) {
+            return resolved;
+        }
+        JsonNode target = findRefTarget(ref);
+
+        // Referenced schemas are named after the last segment of the pointer
+        String segment = ref.substring(ref.lastIndexOf('/') + 1).replace("~1", "/").replace("~0", "~");
+        String className = GeneratePojos.formatClassName(segment);
+        String elementClassName = mNames.get(segment).getElementClassName();
+
+        // Schemas of classes may refer to themselves, so they are resolved before their properties are mapped
+        if (!mResolvingRefs.add(ref)) {
+            throw new IllegalArgumentException("Recursive reference to a schema which is not an object: " + ref);
+        }
+        try {
+            if (isClassSchema(target)) {
+                mResolvedRefs.put(ref, InferredType.object(className));
+            }
+            resolved = inferType(target, className, elementClassName);
+        } finally {
+            mResolvingRefs.remove(ref);
+        }
+        mResolvedRefs.put(ref, resolved);
+        return resolved;
+    }
+
+    /**
+     * Finds the schema a local reference points to.
+     *
+     * @param ref the reference, a JSON pointer into the document.
+     * @return the referenced schema node.
+     * @throws IllegalArgumentException if the reference is not local or points to nothing.
+     */
+    private JsonNode findRefTarget(String ref) {
+        if (ref.equals("#")) {
+            return mRootSchema;
+        } else if (!ref.startsWith("#/")) {
+            throw new IllegalArgumentException("Only local references are supported: " + ref);
+        }
+
+        JsonNode target = mRootSchema.at(ref.substring(1));
+        if (target.isMissingNode()) {
+            throw new IllegalArgumentException("Unresolved reference: " + ref);
+        }
+        return target;
+    }
+
+    /**
+     * Follows the references of a schema until it reaches a schema that is not a reference.
+     *
+     * @param schema the schema node.
+     * @return the referenced schema node, or the given one if it is not a reference.
+     * @throws IllegalArgumentException if a reference is not local, points to nothing or forms a cycle.
+     */
+    private JsonNode dereference(JsonNode schema) {
+        Set<String> visited = new HashSet<>();
+        while (schema != null && schema.path("$ref").isTextual()) {
+            String ref = schema.get("$ref").asText();
+            if (!visited.add(ref)) {
+                throw new IllegalArgumentException("Circular reference: " + ref);
+            }
+            schema = findRefTarget(ref);
+        }
+        return schema;
+    }
+
+    /**
+     * @return true if the schema describes an object with properties, which is generated as a class.
+     */
+    private static boolean isObjectSchema(JsonNode schema) {
+        return schema != null && ("object".equals(schema.path("type").asText()) || schema.has("properties"));
+    }
+
+    /**
+     * Returns true if mapping a schema adds a class named after it: object schemas, alternatives with an inline
+     * object schema, and compositions with an object part, including referenced ones.
+     *
+     * @param schema the schema node.
+     * @return true if the schema can resolve to its own class.
+     */
+    private boolean isClassSchema(JsonNode schema) {
+        if (schema == null || schema.has("$ref")) {
+            return false;
+        } else if (isObjectSchema(schema)) {
+            return true;
+        }
+        for (String keyword : new String[] { "anyOf", "oneOf" }) {
+            for (JsonNode alternative : schema.path(keyword)) {
+                if (isClassSchema(alternative)) {
+                    return true;
+                }
+            }
+        }
+        for (JsonNode part : schema.path("allOf")) {
+            if (isObjectSchema(dereference(part)) || isClassSchema(part)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the type of a literal value of an enumeration or constant.
+     *
+     * @param value the value.
+     * @return the type of the value.
+     */
+    private InferredType getValueType(JsonNode value) {
+        if (value.isBoolean()) {
+            return InferredType.of(InferredType.Kind.BOOLEAN);
+        } else if (value.isIntegralNumber()) {
+            return InferredType.of(mOptions.isNarrowNumbers()
+                    ? NumberKinds.ofInteger(value) : InferredType.Kind.LONG);
+        } else if (value.isNumber()) {
+            return InferredType.of(mOptions.isNarrowNumbers()
+                    ? NumberKinds.ofDecimal(value.asText()) : InferredType.Kind.DOUBLE);
+        } else if (value.isTextual()) {
+            return InferredType.of(InferredType.Kind.STRING);
+        } else if (value.isNull()) {
+            return InferredType.nullValue();
+        }
+        return InferredType.of(InferredType.Kind.MIXED);
+    }
+
+    /**
+     * Returns true if an integer schema only allows 32-bit values, either by its format or by its bounds.
+     *
+     * @param schema the schema node of an integer.
+     * @return true if the values fit in an int.
+     */
+    private static boolean isIntRange(JsonNode schema) {
+        if (schema.has("format")) {
+            return "int32".equals(schema.get("format").asText());
+        }
+        JsonNode minimum = schema.get("minimum");
+        JsonNode maximum = schema.get("maximum");
+        return minimum != null && minimum.isNumber() && minimum.asDouble() >= Integer.MIN_VALUE
+                && maximum != null && maximum.isNumber() && maximum.asDouble() <= Integer.MAX_VALUE;
+    }
+
+    //endregion
+
+}
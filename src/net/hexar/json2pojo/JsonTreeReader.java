@@ -0,0 +1,135 @@
+package net.hexar.json2pojo;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ContainerNode;
+import com.fasterxml.jackson.databind.node.DecimalNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Reads JSON trees with the same nodes as {@code ObjectMapper.readTree}, but with an explicit stack of the open
+ * objects and arrays instead of recursion, so that deeply nested documents don't overflow the call stack. Decimals
+ * which a double can't hold exactly are read as exact decimal nodes instead of being rounded.
+ */
+final class JsonTreeReader {
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    private JsonTreeReader() {
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Reads the next JSON value of a parser into a tree.
+     *
+     * @param parser the JSON parser, positioned before or on the first token of the value.
+     * @return the root node of the value, or null if the parser has no more content. The parser is left on the last
+     * token of the value.
+     * @throws IOException if the JSON text could not be parsed.
+     */
+    static JsonNode readTree(JsonParser parser) throws IOException {
+        JsonNodeFactory nodeFactory = JsonNodeFactory.instance;
+        Deque<ContainerNode<?>> containers = new ArrayDeque<>();
+        String fieldName = null;
+        JsonToken token = parser.hasCurrentToken() ? parser.getCurrentToken() : parser.nextToken();
+        while (token != null) {
+            JsonNode node;
+            switch (token) {
+                case FIELD_NAME:
+                    fieldName = parser.getCurrentName();
+                    token = parser.nextToken();
+                    continue;
+                case END_OBJECT:
+                case END_ARRAY: {
+                    // The root is complete once its own end is reached
+                    ContainerNode<?> container = containers.pop();
+                    if (containers.isEmpty()) {
+                        return container;
+                    }
+                    token = parser.nextToken();
+                    continue;
+                }
+                case START_OBJECT:
+                    node = nodeFactory.objectNode();
+                    break;
+                case START_ARRAY:
+                    node = nodeFactory.arrayNode();
+                    break;
+                case VALUE_STRING:
+                    node = nodeFactory.textNode(parser.getText());
+                    break;
+                case VALUE_NUMBER_INT:
+                    node = readInteger(parser, nodeFactory);
+                    break;
+                case VALUE_NUMBER_FLOAT:
+                    node = readDecimal(parser, nodeFactory);
+                    break;
+                case VALUE_TRUE:
+                case VALUE_FALSE:
+                    node = nodeFactory.booleanNode(token == JsonToken.VALUE_TRUE);
+                    break;
+                case VALUE_NULL:
+                    node = nodeFactory.nullNode();
+                    break;
+                default:
+                    node = nodeFactory.pojoNode(parser.getEmbeddedObject());
+            }
+
+            // Add the value to the innermost open object or array, or return it if it is a scalar root
+            ContainerNode<?> parent = containers.peek();
+            if (parent instanceof ObjectNode) {
+                ((ObjectNode) parent).set(fieldName, node);
+            } else if (parent != null) {
+                ((ArrayNode) parent).add(node);
+            } else if (!node.isContainerNode()) {
+                return node;
+            }
+            if (node.isContainerNode()) {
+                containers.push((ContainerNode<?>) node);
+            }
+            token = parser.nextToken();
+        }
+        return null;
+    }
+
+    //endregion
+
+    //region PRIVATE METHODS -------------------------------------------------------------------------------------------
+
+    /**
+     * Reads a decimal as a double node, unless the double would change its value, such as for decimals with more
+     * significant digits than a double holds or beyond the range of a double. Those are kept as exact decimal nodes,
+     * so that inference from the tree narrows them the same way as inference from the text.
+     */
+    private static JsonNode readDecimal(JsonParser parser, JsonNodeFactory nodeFactory) throws IOException {
+        if (NumberKinds.ofDecimal(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength())
+                == InferredType.Kind.DECIMAL) {
+            return DecimalNode.valueOf(parser.getDecimalValue());
+        }
+        return nodeFactory.numberNode(parser.getDoubleValue());
+    }
+
+    private static JsonNode readInteger(JsonParser parser, JsonNodeFactory nodeFactory) throws IOException {
+        switch (parser.getNumberType()) {
+            case INT:
+                return nodeFactory.numberNode(parser.getIntValue());
+            case LONG:
+                return nodeFactory.numberNode(parser.getLongValue());
+            default:
+                return nodeFactory.numberNode(parser.getBigIntegerValue());
+        }
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,152 @@
+package net.hexar.json2pojo;
+
+import org.apache.commons.lang.StringUtils;
+import org.jboss.dna.common.text.Inflector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A per-run table of the Java names derived from JSON property names, so that every property name is only sanitized
+ * once no matter how often it occurs. The table also collects the properties that could not be generated because
+ * their names collide with another property of the same class. It may be shared by concurrent inference threads.
+ */
+final class NameTable {
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final ConcurrentMap<String, PropertyNames> mNames = new ConcurrentHashMap<>();
+    private final List<Collision> mCollisions = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong mInflectorCalls = new AtomicLong();
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the names derived from the given property name, computing them on first use.
+     *
+     * @param propertyName the original JSON property name.
+     * @return the derived names.
+     */
+    PropertyNames get(String propertyName) {
+        PropertyNames names = mNames.get(propertyName);
+        if (names == null) {
+            PropertyNames newNames = new PropertyNames(propertyName, mInflectorCalls);
+            names = mNames.putIfAbsent(propertyName, newNames);
+            if (names == null) {
+                names = newNames;
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Records that a property was dropped because its field name collides with another property of the same class.
+     *
+     * @param className the name of the class containing both properties.
+     * @param kept      the names of the property that was generated.
+     * @param dropped   the names of the property that was dropped.
+     * @param fieldName the field name both properties map to.
+     */
+    void reportCollision(String className, PropertyNames kept, PropertyNames dropped, String fieldName) {
+        mCollisions.add(new Collision(className, kept.PropertyName, dropped.PropertyName, fieldName));
+    }
+
+    /**
+     * @return the collisions reported so far, in the order in which they were reported.
+     */
+    List<Collision> getCollisions() {
+        synchronized (mCollisions) {
+            return new ArrayList<>(mCollisions);
+        }
+    }
+
+    /**
+     * @return the number of times the inflector derived a singular class name so far.
+     */
+    long getInflectorCalls() {
+        return mInflectorCalls.get();
+    }
+
+    /**
+     * Forgets all of the reported collisions.
+     */
+    void clearCollisions() {
+        mCollisions.clear();
+    }
+
+    //endregion
+
+    //region INNER CLASSES ---------------------------------------------------------------------------------------------
+
+    /**
+     * The names derived from a single JSON property name.
+     */
+    static final class PropertyNames {
+        final String PropertyName;
+        final String SanitizedName;
+        final String ClassName;
+        final String MPrefixedName;
+        private final AtomicLong mInflectorCalls;
+        private volatile String mElementClassName;
+
+        private PropertyNames(String propertyName, AtomicLong inflectorCalls) {
+            PropertyName = propertyName;
+            mInflectorCalls = inflectorCalls;
+            SanitizedName = GeneratePojos.sanitizePropertyName(propertyName);
+            ClassName = StringUtils.capitalize(SanitizedName);
+            MPrefixedName = "m" + ClassName;
+        }
+
+        /**
+         * @return the field name, as returned by {@link GeneratePojos#formatFieldName(String, boolean)}.
+         */
+        String getFieldName(boolean useMPrefix) {
+            return useMPrefix ? MPrefixedName : SanitizedName;
+        }
+
+        /**
+         * @return the class name of the elements of an array property, named after the singular property name.
+         */
+        String getElementClassName() {
+            String elementClassName = mElementClassName;
+            if (elementClassName == null) {
+                mInflectorCalls.incrementAndGet();
+                elementClassName = GeneratePojos.formatClassName(Inflector.getInstance().singularize(PropertyName));
+                mElementClassName = elementClassName;
+            }
+            return elementClassName;
+        }
+    }
+
+    /**
+     * Two properties of the same class which map to the same field name.
+     */
+    static final class Collision {
+        final String ClassName;
+        final String KeptProperty;
+        final String DroppedProperty;
+        final String FieldName;
+
+        Collision(String className, String keptProperty, String droppedProperty, String fieldName) {
+            ClassName = className;
+            KeptProperty = keptProperty;
+            DroppedProperty = droppedProperty;
+            FieldName = fieldName;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: properties \"%s\" and \"%s\" both map to field %s, \"%s\" was dropped",
+                    ClassName, KeptProperty, DroppedProperty, FieldName, DroppedProperty);
+        }
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,242 @@
+package net.hexar.json2pojo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Infers an {@link InferredSchema} from a newline-delimited JSON file, in which every line is a record of the root
+ * class. The file is split into line-aligned chunks which are memory-mapped and inferred in parallel, and the partial
+ * schemas are merged in file order. Records can be sampled, in which case the skipped records are never parsed.
+ */
+class NdjsonInference {
+
+    //region CONSTANTS -------------------------------------------------------------------------------------------------
+
+    /**
+     * The approximate size of the chunks that are inferred in parallel, in bytes.
+     */
+    static final int CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final String[] FILE_EXTENSIONS = { ".ndjson", ".jsonl" };
+
+    //endregion
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final GenerationOptions mOptions;
+    private final NameTable mNames;
+    private final ForkJoinPool mPool;
+    private final ProgressListener mProgressListener;
+    private final int mChunkSize;
+    private final JsonFactory mJsonFactory = new JsonFactory();
+    private final AtomicLong mValueCount = new AtomicLong();
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a new newline-delimited JSON inference.
+     *
+     * @param options          the generation options.
+     * @param names            the name table of the current run.
+     * @param pool             the pool to infer the chunks on.
+     * @param progressListener the listener to report progress to, and to check for cancellation.
+     * @param chunkSize        the approximate size of the chunks, in bytes.
+     */
+    NdjsonInference(GenerationOptions options, NameTable names, ForkJoinPool pool, ProgressListener progressListener,
+                    int chunkSize) {
+        mOptions = options;
+        mNames = names;
+        mPool = pool;
+        mProgressListener = progressListener;
+        mChunkSize = chunkSize;
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Infers the classes of all of the records of a newline-delimited JSON file.
+     *
+     * @param file     the newline-delimited JSON file.
+     * @param rootName the formatted name of the root class.
+     * @return the inferred schema.
+     * @throws IOException if the file could not be read or parsed.
+     */
+    InferredSchema infer(Path file, String rootName) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Long> boundaries = findChunkBoundaries(channel);
+            long size = channel.size();
+            AtomicLong inferredBytes = new AtomicLong();
+
+            // Infer every chunk on its own, so that the records are parsed in parallel
+            List<Future<InferredSchema>> futures = new ArrayList<>();
+            for (int i = 0; i + 1 < boundaries.size(); i++) {
+                long start = boundaries.get(i);
+                long end = boundaries.get(i + 1);
+                futures.add(mPool.submit((Callable<InferredSchema>) () -> {
+                    InferredSchema schema = inferChunk(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start),
+                            start, rootName);
+                    mProgressListener.setFraction((double) inferredBytes.addAndGet(end - start) / size);
+                    return schema;
+                }));
+            }
+
+            // Merge the partial schemas in file order, so that classes are ordered as in the file
+            InferredSchema schema = new InferredSchema();
+            schema.findOrCreateClass(rootName);
+            try {
+                for (Future<InferredSchema> future : futures) {
+                    schema.merge(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while inferring " + file, e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException(cause);
+            } finally {
+                for (Future<InferredSchema> future : futures) {
+                    future.cancel(false);
+                }
+            }
+            return schema;
+        }
+    }
+
+    /**
+     * Returns true if the given file is a newline-delimited JSON file, judging by its extension.
+     *
+     * @param file the file.
+     * @return true for {@code .ndjson} and {@code .jsonl} files.
+     */
+    static boolean isNdjsonFile(Path file) {
+        String fileName = file.getFileName().toString().toLowerCase(Locale.ENGLISH);
+        for (String extension : FILE_EXTENSIONS) {
+            if (fileName.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of JSON values that were parsed so far in all of the chunks, including objects and arrays.
+     */
+    long getValueCount() {
+        return mValueCount.get();
+    }
+
+    //endregion
+
+    //region PRIVATE METHODS -------------------------------------------------------------------------------------------
+
+    /**
+     * Splits a file into chunks of about the chunk size which each start at the beginning of a line.
+     *
+     * @param channel the file channel.
+     * @return the start offsets of all chunks, followed by the file size.
+     * @throws IOException if the file could not be read.
+     */
+    private List<Long> findChunkBoundaries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long offset = mChunkSize;
+        while (offset < size) {
+            // Move the boundary past the end of the line it falls into
+            long lineEnd = -1;
+            for (long position = offset; lineEnd < 0 && position < size; position += buffer.limit()) {
+                buffer.clear();
+                channel.read(buffer, position);
+                buffer.flip();
+                for (int i = 0; i < buffer.limit(); i++) {
+                    if (buffer.get(i) == '\n') {
+                        lineEnd = position + i + 1;
+                        break;
+                    }
+                }
+            }
+            if (lineEnd < 0 || lineEnd >= size) {
+                break;
+            }
+            boundaries.add(lineEnd);
+            offset = Math.max(lineEnd, offset + mChunkSize);
+        }
+
+        boundaries.add(size);
+        return boundaries;
+    }
+
+    /**
+     * Infers the classes of the sampled records of a chunk.
+     *
+     * @param chunk    the mapped chunk, which starts at the beginning of a line.
+     * @param offset   the offset of the chunk in the file.
+     * @param rootName the formatted name of the root class.
+     * @return the partial schema of the chunk.
+     * @throws IOException if a record could not be parsed.
+     */
+    private InferredSchema inferChunk(MappedByteBuffer chunk, long offset, String rootName) throws IOException {
+        StreamingInference inference = new StreamingInference(mOptions, mNames, mProgressListener, 0);
+
+        // Without sampling, all of the records are parsed as one stream of root values
+        if (mOptions.getRecordSampleRate() >= 1) {
+            try (JsonParser parser = mJsonFactory.createParser(new ByteBufferInputStream(chunk))) {
+                InferredSchema schema = inference.inferRecords(parser, rootName);
+                mValueCount.addAndGet(inference.getValueCount());
+                return schema;
+            }
+        }
+
+        // Otherwise only the lines of the sampled records are parsed
+        InferredSchema schema = null;
+        int lineStart = 0;
+        int limit = chunk.limit();
+        while (lineStart < limit) {
+            mProgressListener.checkCanceled();
+            int lineEnd = lineStart;
+            while (lineEnd < limit && chunk.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+
+            if (mOptions.isRecordSampled(offset + lineStart)) {
+                ByteBuffer line = chunk.duplicate();
+                line.limit(lineEnd).position(lineStart);
+                try (JsonParser parser = mJsonFactory.createParser(new ByteBufferInputStream(line))) {
+                    schema = inference.inferRecords(parser, rootName);
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        mValueCount.addAndGet(inference.getValueCount());
+        return schema != null ? schema : new InferredSchema();
+    }
+
+    //endregion
+
+}
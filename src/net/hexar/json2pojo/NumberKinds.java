@@ -0,0 +1,199 @@
+package net.hexar.json2pojo;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Classifies numeric values by the narrowest kind of {@link InferredType} that holds them without loss: integers by
+ * their range, and decimals by their number of significant digits and their decimal exponent. The classification
+ * works on the number text, so that only values near the limit of a double have to be parsed.
+ */
+final class NumberKinds {
+
+    //region CONSTANTS -------------------------------------------------------------------------------------------------
+
+    /**
+     * The number of significant decimal digits that always survive a round trip through a float.
+     */
+    private static final int FLOAT_DIGITS = 6;
+
+    /**
+     * The number of significant decimal digits that always survive a round trip through a double.
+     */
+    private static final int DOUBLE_DIGITS = 15;
+
+    /**
+     * The number of significant decimal digits of the shortest representation of any double.
+     */
+    private static final int MAX_DOUBLE_DIGITS = 17;
+
+    /**
+     * The decimal exponents of the leading digit of normal floats and doubles, with a margin of one at the top.
+     */
+    private static final int FLOAT_MIN_EXPONENT = -37;
+    private static final int FLOAT_MAX_EXPONENT = 37;
+    private static final int DOUBLE_MIN_EXPONENT = -307;
+    private static final int DOUBLE_MAX_EXPONENT = 307;
+
+    /**
+     * The magnitude up to which a double holds every integer exactly, 2^53.
+     */
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+
+    /**
+     * The largest exponent that is parsed exactly; larger ones are out of range anyway.
+     */
+    private static final int EXPONENT_LIMIT = 100000;
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    private NumberKinds() {
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Classifies the integer value at the current token of a parser.
+     *
+     * @param parser the JSON parser, positioned on an integer.
+     * @return the kind of the value, as returned by {@link #ofInteger(JsonNode)}.
+     * @throws IOException if the integer could not be parsed.
+     */
+    static InferredType.Kind ofInteger(JsonParser parser) throws IOException {
+        JsonParser.NumberType numberType = parser.getNumberType();
+        return numberType == JsonParser.NumberType.LONG ? ofLong(parser.getLongValue()) : ofInteger(numberType);
+    }
+
+    /**
+     * Classifies the integer value of a node.
+     *
+     * @param node the integer node.
+     * @return {@link InferredType.Kind#INT}, {@link InferredType.Kind#LONG}, {@link InferredType.Kind#WIDE_LONG}
+     * for longs beyond ±2^53, or {@link InferredType.Kind#DECIMAL} for integers beyond the range of a long.
+     */
+    static InferredType.Kind ofInteger(JsonNode node) {
+        JsonParser.NumberType numberType = node.numberType();
+        return numberType == JsonParser.NumberType.LONG ? ofLong(node.longValue()) : ofInteger(numberType);
+    }
+
+    /**
+     * Classifies a decimal value from its text.
+     *
+     * @param text the decimal in JSON or Java notation, such as {@code -1.5e10}.
+     * @return the kind of the value.
+     */
+    static InferredType.Kind ofDecimal(String text) {
+        return ofDecimal(text.toCharArray(), 0, text.length());
+    }
+
+    /**
+     * Classifies a decimal value from its text.
+     *
+     * @param text   the buffer containing the decimal in JSON or Java notation.
+     * @param offset the offset of the decimal in the buffer.
+     * @param length the length of the decimal.
+     * @return {@link InferredType.Kind#FLOAT} or {@link InferredType.Kind#DOUBLE} if the value keeps its
+     * significant digits in that type, otherwise {@link InferredType.Kind#DECIMAL}.
+     */
+    static InferredType.Kind ofDecimal(char[] text, int offset, int length) {
+        // Find the first and last non-zero digits, and the number of digits before the decimal point
+        int digitCount = 0;
+        int integerDigits = -1;
+        int firstSignificant = -1;
+        int lastSignificant = -1;
+        int exponent = 0;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            char c = text[i];
+            if (c >= '0' && c <= '9') {
+                if (c != '0') {
+                    if (firstSignificant < 0) {
+                        firstSignificant = digitCount;
+                    }
+                    lastSignificant = digitCount;
+                }
+                digitCount++;
+            } else if (c == '.') {
+                integerDigits = digitCount;
+            } else if (c == 'e' || c == 'E') {
+                exponent = parseExponent(text, i + 1, end);
+                break;
+            }
+        }
+
+        // Zero is a float
+        if (firstSignificant < 0) {
+            return InferredType.Kind.FLOAT;
+        }
+
+        // The decimal exponent of the leading significant digit
+        if (integerDigits < 0) {
+            integerDigits = digitCount;
+        }
+        int leadingExponent = exponent + integerDigits - 1 - firstSignificant;
+        int significantDigits = lastSignificant - firstSignificant + 1;
+        if (significantDigits <= FLOAT_DIGITS
+                && leadingExponent >= FLOAT_MIN_EXPONENT && leadingExponent <= FLOAT_MAX_EXPONENT) {
+            return InferredType.Kind.FLOAT;
+        } else if (leadingExponent < DOUBLE_MIN_EXPONENT || leadingExponent > DOUBLE_MAX_EXPONENT
+                || significantDigits > MAX_DOUBLE_DIGITS) {
+            return InferredType.Kind.DECIMAL;
+        } else if (significantDigits <= DOUBLE_DIGITS || roundTripsThroughDouble(new String(text, offset, length))) {
+            return InferredType.Kind.DOUBLE;
+        }
+        return InferredType.Kind.DECIMAL;
+    }
+
+    //endregion
+
+    //region PRIVATE METHODS -------------------------------------------------------------------------------------------
+
+    /**
+     * Classifies an integer by its type as reported by Jackson, for types other than longs.
+     */
+    private static InferredType.Kind ofInteger(JsonParser.NumberType numberType) {
+        return numberType == JsonParser.NumberType.INT ? InferredType.Kind.INT : InferredType.Kind.DECIMAL;
+    }
+
+    /**
+     * Classifies a long by whether a double holds all longs of its magnitude exactly.
+     */
+    private static InferredType.Kind ofLong(long value) {
+        return value >= -MAX_EXACT_DOUBLE && value <= MAX_EXACT_DOUBLE
+                ? InferredType.Kind.LONG : InferredType.Kind.WIDE_LONG;
+    }
+
+    /**
+     * Parses the exponent of a decimal, saturating at {@link #EXPONENT_LIMIT}.
+     */
+    private static int parseExponent(char[] text, int start, int end) {
+        boolean negative = false;
+        int exponent = 0;
+        for (int i = start; i < end; i++) {
+            char c = text[i];
+            if (c == '-') {
+                negative = true;
+            } else if (c >= '0' && c <= '9') {
+                exponent = Math.min(exponent * 10 + (c - '0'), EXPONENT_LIMIT);
+            }
+        }
+        return negative ? -exponent : exponent;
+    }
+
+    /**
+     * @return true if the shortest representation of the double nearest to the decimal has the same value.
+     */
+    private static boolean roundTripsThroughDouble(String text) {
+        return new BigDecimal(text).compareTo(new BigDecimal(Double.toString(Double.parseDouble(text)))) == 0;
+    }
+
+    //endregion
+
+}
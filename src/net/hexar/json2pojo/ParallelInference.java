@@ -0,0 +1,624 @@
+package net.hexar.json2pojo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Infers an {@link InferredSchema} from a JSON tree that is already in memory, on a {@link ForkJoinPool}. Large
+ * arrays and wide objects are split into subtasks which each infer a partial schema of their own, and the partial
+ * schemas are merged when the subtasks are joined. Because merging is associative, the result is the same as that of
+ * {@link StreamingInference} for the same document, except for objects which are found not to be maps after more
+ * identifier keys than streaming keeps aside: the tree is already in memory, so they keep all of their fields. Within
+ * a task, nested objects and arrays are walked with an explicit stack of frames like in {@link StreamingInference},
+ * so only wide nodes add to the depth of the call stack.
+ */
+class ParallelInference {
+
+    //region CONSTANTS -------------------------------------------------------------------------------------------------
+
+    private static final int ARRAY_SPLIT_THRESHOLD = 1024;
+    private static final int OBJECT_SPLIT_THRESHOLD = 256;
+
+    /**
+     * Progress is reported, and cancellation checked, once every this many values of a task.
+     */
+    private static final int CHECKPOINT_INTERVAL = 1024;
+
+    //endregion
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final GenerationOptions mOptions;
+    private final NameTable mNames;
+    private final ForkJoinPool mPool;
+    private final ProgressListener mProgressListener;
+    private final LongAdder mValueCount = new LongAdder();
+    private long mTotalValueCount;
+    private long mReportedValueCount;
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a new parallel inference.
+     *
+     * @param options the generation options.
+     * @param names   the name table of the current run.
+     * @param pool    the pool to run the inference tasks on.
+     */
+    ParallelInference(GenerationOptions options, NameTable names, ForkJoinPool pool) {
+        this(options, names, pool, ProgressListener.NONE);
+    }
+
+    /**
+     * Creates a new parallel inference which can be canceled.
+     *
+     * @param options          the generation options.
+     * @param names            the name table of the current run.
+     * @param pool             the pool to run the inference tasks on.
+     * @param progressListener the listener to report progress to, and to check for cancellation, from any of the
+     *                         pool's threads.
+     */
+    ParallelInference(GenerationOptions options, NameTable names, ForkJoinPool pool,
+                      ProgressListener progressListener) {
+        mOptions = options;
+        mNames = names;
+        mPool = pool;
+        mProgressListener = progressListener;
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Infers the classes of a JSON tree.
+     *
+     * @param rootNode the root node of the JSON tree.
+     * @param rootName the formatted name of the root class.
+     * @return the inferred schema.
+     */
+    InferredSchema infer(JsonNode rootNode, String rootName) {
+        mValueCount.increment();
+        if (rootNode.isObject()) {
+            // Progress is the fraction of the values that will be visited, which are counted before the split
+            mTotalValueCount = mProgressListener != ProgressListener.NONE ? countSampledValues(rootNode) : 0;
+            mReportedValueCount = 0;
+
+            List<Map.Entry<String, JsonNode>> fields = collectFields(rootNode);
+            InferredSchema schema = mPool.invoke(new ObjectTask(fields, 0, fields.size(), rootName)).mSchema;
+            schema.findOrCreateClass(rootName).countObject();
+            return schema;
+        }
+
+        // Anything other than an object produces an empty root class
+        InferredSchema schema = new InferredSchema();
+        schema.findOrCreateClass(rootName);
+        return schema;
+    }
+
+    /**
+     * @return the number of JSON nodes that were visited so far by all tasks, including objects and arrays.
+     */
+    long getValueCount() {
+        return mValueCount.sum();
+    }
+
+    //endregion
+
+    //region PRIVATE METHODS -------------------------------------------------------------------------------------------
+
+    /**
+     * Infers the children of an object or array node, adding the classes of their objects to the given schema. The
+     * nested nodes are walked with a stack of frames, and the type of every completed node is added to the innermost
+     * frame.
+     *
+     * @param rootFrame the frame of the node.
+     * @param schema    the partial schema of the current task.
+     * @return the type of the node.
+     */
+    private InferredType walk(Frame rootFrame, InferredSchema schema) {
+        Deque<Frame> frames = new ArrayDeque<>();
+        frames.push(rootFrame);
+        InferredType type = null;
+        int valueCount = 0;
+        while (true) {
+            Frame frame = frames.peek();
+            if (type != null) {
+                if (frame == null) {
+                    return type;
+                }
+                frame.add(type);
+            }
+
+            JsonNode child = frame.nextChild();
+            if (child != null) {
+                if (++valueCount % CHECKPOINT_INTERVAL == 0) {
+                    checkpoint();
+                }
+                type = startValue(child, frame.mChildClassName, schema, frames);
+            } else {
+                frames.pop();
+                type = frame.end();
+            }
+        }
+    }
+
+    /**
+     * Starts a node: scalars are complete at once, large arrays and wide objects are forked into subtasks, and other
+     * objects and arrays push a frame.
+     *
+     * @param node      the JSON node.
+     * @param className the formatted name of the class of object nodes, or of the elements of array nodes.
+     * @param schema    the partial schema of the current task.
+     * @param frames    the stack of open objects and arrays.
+     * @return the type of the node, or null if a frame was pushed.
+     */
+    private InferredType startValue(JsonNode node, String className, InferredSchema schema, Deque<Frame> frames) {
+        mValueCount.increment();
+        if (node.isObject()) {
+            if (isMap(node)) {
+                List<Map.Entry<String, JsonNode>> fields = collectFields(node);
+                String valueClassName = DynamicKeys.getValueClassName(mNames, className);
+                if (fields.size() > OBJECT_SPLIT_THRESHOLD) {
+                    InferredType[] types = new InferredType[fields.size()];
+                    schema.merge(new MapTask(fields, 0, fields.size(), valueClassName, types).invoke());
+                    return inferMap(fields, types, className, schema);
+                }
+                frames.push(new MapFrame(fields, 0, fields.size(), valueClassName, className, schema));
+                return null;
+            }
+
+            // Wide objects are split across tasks, so the object is counted before splitting
+            schema.findOrCreateClass(className).countObject();
+            if (node.size() > OBJECT_SPLIT_THRESHOLD) {
+                List<Map.Entry<String, JsonNode>> fields = collectFields(node);
+                schema.merge(new ObjectTask(fields, 0, fields.size(), className).invoke().mSchema);
+                return InferredType.object(className);
+            }
+            frames.push(new ObjectFrame(node.fields(), className, schema));
+            return null;
+        } else if (node.isArray()) {
+            if (node.size() > ARRAY_SPLIT_THRESHOLD) {
+                PartialSchema partial = new ArrayTask(node, 0, node.size(), className).invoke();
+                schema.merge(partial.mSchema);
+                return partial.mType;
+            }
+            frames.push(new ArrayFrame(node, 0, node.size(), className));
+            return null;
+        } else if (node.isBoolean()) {
+            return InferredType.of(InferredType.Kind.BOOLEAN);
+        } else if (node.isFloatingPointNumber()) {
+            return InferredType.of(mOptions.isNarrowNumbers()
+                    ? NumberKinds.ofDecimal(node.asText()) : InferredType.Kind.DOUBLE);
+        } else if (node.isIntegralNumber()) {
+            return InferredType.of(mOptions.isNarrowNumbers()
+                    ? NumberKinds.ofInteger(node) : InferredType.Kind.LONG);
+        } else if (node.isTextual()) {
+            return mOptions.getMaxEnumValues() > 0 ? InferredType.string(node.textValue(),
+                    mOptions.getMaxEnumValues()) : InferredType.of(InferredType.Kind.STRING);
+        } else if (node.isNull()) {
+            return InferredType.nullValue();
+        }
+
+        // Binary and POJO nodes can't be mapped to a Java type
+        return InferredType.of(InferredType.Kind.MIXED);
+    }
+
+    /**
+     * Returns true if an object node has enough keys to be a map, and all of them are identifiers which follow the
+     * pattern of its first key.
+     *
+     * @param objectNode the object node.
+     * @return true if the object may be inferred as a map, depending on the types of its values.
+     */
+    private boolean isMap(JsonNode objectNode) {
+        if (mOptions.getMinMapKeys() == 0 || objectNode.size() < mOptions.getMinMapKeys()) {
+            return false;
+        }
+        Iterator<String> keys = objectNode.fieldNames();
+        DynamicKeys.Pattern pattern = DynamicKeys.classify(keys.next());
+        if (pattern == null) {
+            return false;
+        }
+        while (keys.hasNext()) {
+            if (!DynamicKeys.matches(pattern, keys.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the map type of an object node whose keys are identifiers, or adds its fields to its class like any
+     * other object if the types of its values don't merge.
+     *
+     * @param fields    the fields of the object node.
+     * @param types     the type of the value of every field.
+     * @param className the formatted name of the class of the object node.
+     * @param schema    the partial schema of the current task.
+     * @return the map type, or the object type if the node is not a map.
+     */
+    private static InferredType inferMap(List<Map.Entry<String, JsonNode>> fields, InferredType[] types,
+                                         String className, InferredSchema schema) {
+        // Maps need values that share a type
+        InferredType valueType = InferredType.of(InferredType.Kind.UNKNOWN);
+        for (InferredType type : types) {
+            valueType = valueType.merge(type);
+        }
+        if (valueType.getKind() != InferredType.Kind.MIXED) {
+            return InferredType.map(valueType);
+        }
+
+        InferredClass clazz = schema.findOrCreateClass(className);
+        clazz.countObject();
+        for (int index = 0; index < types.length; index++) {
+            clazz.addField(fields.get(index).getKey(), types[index]);
+        }
+        return InferredType.object(className);
+    }
+
+    /**
+     * Counts the values of a JSON tree that inference will visit, skipping the array elements which are not sampled,
+     * so that the visited values can be reported as a fraction of it.
+     *
+     * @param rootNode the root node of the JSON tree.
+     * @return the number of values, including objects and arrays.
+     */
+    private long countSampledValues(JsonNode rootNode) {
+        long valueCount = 1;
+        Deque<JsonNode> containers = new ArrayDeque<>();
+        containers.push(rootNode);
+        while (!containers.isEmpty()) {
+            JsonNode container = containers.pop();
+            int index = 0;
+            for (JsonNode child : container) {
+                if (container.isArray() && !mOptions.isSampled(index++)) {
+                    continue;
+                }
+                valueCount++;
+                if (child.isContainerNode() && child.size() > 0) {
+                    containers.push(child);
+                }
+            }
+        }
+        return valueCount;
+    }
+
+    /**
+     * Checks for cancellation and reports the fraction of the values that were visited by all tasks so far. Tasks
+     * report concurrently, so only counts above the last reported one are reported, to keep the fraction rising.
+     */
+    private void checkpoint() {
+        mProgressListener.checkCanceled();
+        if (mTotalValueCount > 0) {
+            reportProgress(mValueCount.sum());
+        }
+    }
+
+    private synchronized void reportProgress(long valueCount) {
+        if (valueCount > mReportedValueCount) {
+            mReportedValueCount = valueCount;
+            mProgressListener.setFraction(Math.min(1.0, (double) valueCount / mTotalValueCount));
+        }
+    }
+
+    /**
+     * Collects the fields of an object node, so that they can be split by index.
+     *
+     * @param objectNode the object node.
+     * @return the list of fields.
+     */
+    private static List<Map.Entry<String, JsonNode>> collectFields(JsonNode objectNode) {
+        List<Map.Entry<String, JsonNode>> fields = new ArrayList<>(objectNode.size());
+        objectNode.fields().forEachRemaining(fields::add);
+        return fields;
+    }
+
+    //endregion
+
+    //region INNER CLASSES ---------------------------------------------------------------------------------------------
+
+    /**
+     * The result of a subtask: a partial schema and the type of the values the subtask inferred.
+     */
+    private static class PartialSchema {
+        final InferredSchema mSchema;
+        InferredType mType;
+
+        PartialSchema(InferredSchema schema, InferredType type) {
+            mSchema = schema;
+            mType = type;
+        }
+
+        /**
+         * Merges the result of the subtask to the right of this one into this result.
+         */
+        PartialSchema merge(PartialSchema right) {
+            mSchema.merge(right.mSchema);
+            mType = mType.merge(right.mType);
+            return this;
+        }
+    }
+
+    /**
+     * An object or array node whose children are being inferred.
+     */
+    private abstract static class Frame {
+
+        /**
+         * The formatted class name of the child returned by the last call to {@link #nextChild()}.
+         */
+        String mChildClassName;
+
+        /**
+         * @return the next child node to infer, or null at the end of the node.
+         */
+        abstract JsonNode nextChild();
+
+        /**
+         * Adds the type of the last child node.
+         */
+        abstract void add(InferredType type);
+
+        /**
+         * @return the type of the node, once all of its children were added.
+         */
+        abstract InferredType end();
+    }
+
+    /**
+     * A range of the fields of an object node, which are added to its class.
+     */
+    private final class ObjectFrame extends Frame {
+        private final Iterator<Map.Entry<String, JsonNode>> mFields;
+        private final String mClassName;
+        private final InferredClass mClass;
+        private String mProperty;
+
+        ObjectFrame(Iterator<Map.Entry<String, JsonNode>> fields, String className, InferredSchema schema) {
+            mProgressListener.checkCanceled();
+            mFields = fields;
+            mClassName = className;
+            mClass = schema.findOrCreateClass(className);
+        }
+
+        @Override
+        JsonNode nextChild() {
+            if (!mFields.hasNext()) {
+                return null;
+            }
+            Map.Entry<String, JsonNode> field = mFields.next();
+            mProperty = field.getKey();
+            JsonNode childNode = field.getValue();
+
+            // Objects are named after the property, array elements after its singular form, and the values of
+            // identifier keys after the singular form of this object
+            mChildClassName = null;
+            if (mOptions.getMinMapKeys() > 0 && DynamicKeys.classify(mProperty) != null) {
+                mChildClassName = DynamicKeys.getValueClassName(mNames, mClassName);
+            } else if (childNode.isObject()) {
+                mChildClassName = mNames.get(mProperty).ClassName;
+            } else if (childNode.isArray()) {
+                mChildClassName = mNames.get(mProperty).getElementClassName();
+            }
+            return childNode;
+        }
+
+        @Override
+        void add(InferredType type) {
+            mClass.addField(mProperty, type);
+        }
+
+        @Override
+        InferredType end() {
+            return InferredType.object(mClassName);
+        }
+    }
+
+    /**
+     * A range of the elements of an array node, whose sampled elements are merged into the element type.
+     */
+    private final class ArrayFrame extends Frame {
+        private final JsonNode mArrayNode;
+        private final int mTo;
+        private int mIndex;
+        private InferredType mElementType = InferredType.of(InferredType.Kind.UNKNOWN);
+
+        ArrayFrame(JsonNode arrayNode, int from, int to, String className) {
+            mProgressListener.checkCanceled();
+            mArrayNode = arrayNode;
+            mIndex = from;
+            mTo = to;
+            mChildClassName = className;
+        }
+
+        @Override
+        JsonNode nextChild() {
+            while (mIndex < mTo) {
+                int index = mIndex++;
+                if (mOptions.isSampled(index)) {
+                    return mArrayNode.get(index);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        void add(InferredType type) {
+            mElementType = mElementType.merge(type);
+        }
+
+        @Override
+        InferredType end() {
+            return InferredType.list(mElementType);
+        }
+    }
+
+    /**
+     * A range of the fields of an object node whose keys are identifiers, storing the type of every value at the
+     * index of its field.
+     */
+    private final class MapFrame extends Frame {
+        private final List<Map.Entry<String, JsonNode>> mFields;
+        private final int mTo;
+        private final InferredType[] mTypes;
+        private final String mClassName;
+        private final InferredSchema mSchema;
+        private int mIndex;
+
+        /**
+         * @param className the formatted name of the class of the object node, or null if the frame only infers a
+         *                  range of the values and the node is inferred as a whole afterwards.
+         */
+        MapFrame(List<Map.Entry<String, JsonNode>> fields, int from, int to, InferredType[] types,
+                 String valueClassName, String className, InferredSchema schema) {
+            mProgressListener.checkCanceled();
+            mFields = fields;
+            mTo = to;
+            mTypes = types;
+            mChildClassName = valueClassName;
+            mClassName = className;
+            mSchema = schema;
+            mIndex = from;
+        }
+
+        MapFrame(List<Map.Entry<String, JsonNode>> fields, int from, int to, String valueClassName, String className,
+                 InferredSchema schema) {
+            this(fields, from, to, new InferredType[fields.size()], valueClassName, className, schema);
+        }
+
+        @Override
+        JsonNode nextChild() {
+            return mIndex < mTo ? mFields.get(mIndex++).getValue() : null;
+        }
+
+        @Override
+        void add(InferredType type) {
+            mTypes[mIndex - 1] = type;
+        }
+
+        @Override
+        InferredType end() {
+            if (mClassName == null) {
+                return InferredType.of(InferredType.Kind.UNKNOWN);
+            }
+            return inferMap(mFields, mTypes, mClassName, mSchema);
+        }
+    }
+
+    /**
+     * Infers the list type of a range of an array, splitting it in half while it is too large.
+     */
+    private class ArrayTask extends RecursiveTask<PartialSchema> {
+        private static final long serialVersionUID = 1L;
+
+        private final JsonNode mArrayNode;
+        private final int mFrom;
+        private final int mTo;
+        private final String mClassName;
+
+        ArrayTask(JsonNode arrayNode, int from, int to, String className) {
+            mArrayNode = arrayNode;
+            mFrom = from;
+            mTo = to;
+            mClassName = className;
+        }
+
+        @Override
+        protected PartialSchema compute() {
+            if (mTo - mFrom > ARRAY_SPLIT_THRESHOLD) {
+                int middle = (mFrom + mTo) >>> 1;
+                ArrayTask left = new ArrayTask(mArrayNode, mFrom, middle, mClassName);
+                left.fork();
+                PartialSchema right = new ArrayTask(mArrayNode, middle, mTo, mClassName).compute();
+                return left.join().merge(right);
+            }
+
+            InferredSchema schema = new InferredSchema();
+            return new PartialSchema(schema, walk(new ArrayFrame(mArrayNode, mFrom, mTo, mClassName), schema));
+        }
+    }
+
+    /**
+     * Infers the fields of a range of an object's fields, splitting them in half while there are too many.
+     */
+    private class ObjectTask extends RecursiveTask<PartialSchema> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Map.Entry<String, JsonNode>> mFields;
+        private final int mFrom;
+        private final int mTo;
+        private final String mClassName;
+
+        ObjectTask(List<Map.Entry<String, JsonNode>> fields, int from, int to, String className) {
+            mFields = fields;
+            mFrom = from;
+            mTo = to;
+            mClassName = className;
+        }
+
+        @Override
+        protected PartialSchema compute() {
+            if (mTo - mFrom > OBJECT_SPLIT_THRESHOLD) {
+                int middle = (mFrom + mTo) >>> 1;
+                ObjectTask left = new ObjectTask(mFields, mFrom, middle, mClassName);
+                left.fork();
+                PartialSchema right = new ObjectTask(mFields, middle, mTo, mClassName).compute();
+                return left.join().merge(right);
+            }
+
+            InferredSchema schema = new InferredSchema();
+            walk(new ObjectFrame(mFields.subList(mFrom, mTo).iterator(), mClassName, schema), schema);
+            return new PartialSchema(schema, InferredType.object(mClassName));
+        }
+    }
+
+    /**
+     * Infers the value types of a range of a map's fields, splitting them in half while there are too many. Every
+     * task stores the types of its own range of fields.
+     */
+    private class MapTask extends RecursiveTask<InferredSchema> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Map.Entry<String, JsonNode>> mFields;
+        private final int mFrom;
+        private final int mTo;
+        private final String mValueClassName;
+        private final InferredType[] mTypes;
+
+        MapTask(List<Map.Entry<String, JsonNode>> fields, int from, int to, String valueClassName,
+                InferredType[] types) {
+            mFields = fields;
+            mFrom = from;
+            mTo = to;
+            mValueClassName = valueClassName;
+            mTypes = types;
+        }
+
+        @Override
+        protected InferredSchema compute() {
+            if (mTo - mFrom > OBJECT_SPLIT_THRESHOLD) {
+                int middle = (mFrom + mTo) >>> 1;
+                MapTask left = new MapTask(mFields, mFrom, middle, mValueClassName, mTypes);
+                left.fork();
+                InferredSchema right = new MapTask(mFields, middle, mTo, mValueClassName, mTypes).compute();
+                InferredSchema schema = left.join();
+                schema.merge(right);
+                return schema;
+            }
+
+            InferredSchema schema = new InferredSchema();
+            walk(new MapFrame(mFields, mFrom, mTo, mTypes, mValueClassName, null, schema), schema);
+            return schema;
+        }
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,813 @@
+package net.hexar.json2pojo;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+import com.sun.codemodel.*;
+
+import javax.annotation.Generated;
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Emits the code model of the POJO classes described by a {@link SchemaModel}. This is the last stage of generation:
+ * it only reads the immutable model, so it runs after the JSON input has been released, and the same model can be
+ * emitted again with other options.
+ */
+final class PojoEmitter {
+
+    //region CONSTANTS -------------------------------------------------------------------------------------------------
+
+    private static final boolean ALWAYS_ANNOTATE_EXPOSE = false;
+
+    /**
+     * Part of every class fingerprint; must be changed whenever the generated code changes for the same schema.
+     */
+    private static final String FINGERPRINT_VERSION = "1";
+
+    private static final String BUILDER_CLASS_NAME = "Builder";
+
+    //endregion
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final String mPackageName;
+    private final GenerationOptions mOptions;
+    private final NameTable mNames;
+    private final FieldComparator mFieldComparator;
+    private final Map<String, JDefinedClass> mClassMap = new HashMap<>();
+    private final Map<JDefinedClass, Collection<String>> mEnumValues = new HashMap<>();
+    private final Set<String> mUnchangedClasses = new HashSet<>();
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates an emitter for one generation run.
+     *
+     * @param packageName the package of the generated classes.
+     * @param options     the generation options.
+     * @param names       the name table of the run, which collects the name collisions.
+     */
+    PojoEmitter(String packageName, GenerationOptions options, NameTable names) {
+        mPackageName = packageName;
+        mOptions = options;
+        mNames = names;
+        mFieldComparator = new FieldComparator(options.isUseMPrefix());
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Emits the code model of all classes of the model.
+     *
+     * @param model            the classes to generate.
+     * @param progressListener the listener to report progress to, and to check for cancellation.
+     * @return the code model containing all of the generated classes.
+     * @throws Exception if an error occurs.
+     */
+    JCodeModel emit(SchemaModel model, ProgressListener progressListener) throws Exception {
+        return emit(model, null, null, progressListener);
+    }
+
+    /**
+     * Emits the code model of the classes of the model, leaving out the classes whose fingerprint did not change
+     * since the previous run.
+     *
+     * @param model            the classes to generate.
+     * @param fingerprints     the fingerprints of the previous run, which are updated; or null to emit every class.
+     * @param packageDir       the directory of the previously generated sources, which must still exist for a class
+     *                         to be left out.
+     * @param progressListener the listener to report progress to, and to check for cancellation.
+     * @return the code model containing all of the generated classes.
+     * @throws Exception if an error occurs.
+     */
+    JCodeModel emit(SchemaModel model, FingerprintStore fingerprints, File packageDir,
+                    ProgressListener progressListener) throws Exception {
+        JCodeModel jCodeModel = new JCodeModel();
+        generate(model, jCodeModel._package(mPackageName), fingerprints, packageDir, progressListener);
+        return jCodeModel;
+    }
+
+    /**
+     * @return the names of the classes which were left out because their shape did not change since the previous
+     * run.
+     */
+    Set<String> getUnchangedClasses() {
+        return Collections.unmodifiableSet(mUnchangedClasses);
+    }
+
+    /**
+     * Returns the builder class nested in a generated class.
+     *
+     * @param clazz the generated class.
+     * @return the builder class, or null if the class has no builder.
+     */
+    static JDefinedClass getBuilderClass(JDefinedClass clazz) {
+        for (JClass nestedClass : clazz.listClasses()) {
+            if (nestedClass.name().equals(BUILDER_CLASS_NAME)) {
+                return (JDefinedClass) nestedClass;
+            }
+        }
+        return null;
+    }
+
+    //endregion
+
+    //region CODE GENERATION -------------------------------------------------------------------------------------------
+
+    /**
+     * Generates all of the classes of the model and their fields.
+     *
+     * @param model            the classes to generate.
+     * @param jPackage         the code model package to generate the classes in.
+     * @param fingerprints     the fingerprints of the previous run, or null to generate every class.
+     * @param packageDir       the directory of the previously generated sources.
+     * @param progressListener the listener to report progress to, and to check for cancellation.
+     * @throws Exception if an error occurs.
+     */
+    private void generate(SchemaModel model, JPackage jPackage, FingerprintStore fingerprints, File packageDir,
+                          ProgressListener progressListener) throws Exception {
+        // First create all of the classes, so that fields can refer to any of them
+        for (SchemaModel.ClassModel classModel : model.getClasses()) {
+            JDefinedClass clazz = jPackage._class(classModel.Name);
+            annotateClass(clazz);
+            mClassMap.put(classModel.Name, clazz);
+        }
+        for (Map.Entry<String, String> alias : model.getAliases().entrySet()) {
+            mClassMap.put(alias.getKey(), mClassMap.get(alias.getValue()));
+        }
+
+        // Now create the actual fields
+        JacksonCodecEmitter codecEmitter = mOptions.isGenerateJacksonCodecs()
+                ? new JacksonCodecEmitter(jPackage.owner(), mOptions.isImmutable()) : null;
+        GsonAdapterEmitter adapterEmitter = mOptions.isGenerateGsonAdapters()
+                ? new GsonAdapterEmitter(jPackage.owner(), mOptions.isImmutable()) : null;
+        int i = 1;
+        for (SchemaModel.ClassModel classModel : model.getClasses()) {
+            progressListener.checkCanceled();
+            JDefinedClass clazz = mClassMap.get(classModel.Name);
+
+            // Resolve the field types
+            TreeSet<FieldInfo> fieldInfos = new TreeSet<>(mFieldComparator);
+            for (SchemaModel.FieldModel field : classModel.Fields) {
+                NameTable.PropertyNames names = mNames.get(field.PropertyName);
+                JType type = resolveType(field.Type, names, false, jPackage.owner());
+
+                // Strings with few distinct values, which were seen repeatedly, can be held in an enum
+                if (mOptions.getMaxEnumValues() > 0) {
+                    type = resolveEnumType(clazz, field, names, type);
+                }
+
+                // Values which were never null nor missing can be held in a primitive field
+                if (mOptions.isUsePrimitives() && field.PresentCount >= classModel.ObjectCount
+                        && isPrimitive(field.Type, true)) {
+                    type = type.unboxify();
+                }
+                FieldInfo fieldInfo = new FieldInfo(type, names);
+
+                // Only one of the properties with the same field name can be generated, so report the others
+                if (!fieldInfos.add(fieldInfo)) {
+                    mNames.reportCollision(classModel.Name, fieldInfos.ceiling(fieldInfo).Names, names,
+                            names.getFieldName(mOptions.isUseMPrefix()));
+                }
+            }
+
+            // Skip classes whose shape did not change since the previous run, as long as their source still exists
+            if (fingerprints != null
+                    && !fingerprints.update(clazz.name(), fingerprint(clazz, fieldInfos))
+                    && new File(packageDir, clazz.name() + ".java").isFile()) {
+                mUnchangedClasses.add(clazz.name());
+            } else {
+                // Generate the fields
+                List<GeneratedField> fields = generateFields(clazz, fieldInfos, mOptions.isGenerateBuilders(),
+                        mOptions.isUseMPrefix());
+
+                // Optionally generate the inner builder class
+                if (mOptions.isGenerateBuilders()) {
+                    generateBuilder(clazz, fields);
+                }
+
+                // Immutable classes are only created through their constructor, and compared by value
+                if (mOptions.isImmutable()) {
+                    generateConstructor(clazz, fields);
+                    generateEquals(clazz, fields);
+                    generateHashCode(clazz, fields);
+                }
+
+                // Optionally generate the streaming Jackson codec and Gson type adapter
+                if (codecEmitter != null) {
+                    codecEmitter.generateCodec(clazz, fields);
+                }
+                if (adapterEmitter != null) {
+                    adapterEmitter.generateAdapter(clazz, fields);
+                }
+            }
+
+            // Update progress
+            progressListener.setFraction((double) i / (double) model.getClasses().size());
+            i++;
+        }
+
+        // Register the type adapters of all classes, including the unchanged ones, in one factory
+        if (adapterEmitter != null) {
+            List<JDefinedClass> classes = new ArrayList<>();
+            for (SchemaModel.ClassModel classModel : model.getClasses()) {
+                classes.add(mClassMap.get(classModel.Name));
+            }
+            adapterEmitter.generateFactory(jPackage, model.getClasses().get(0).Name, classes);
+        }
+    }
+
+    /**
+     * Computes the fingerprint of a class from everything its generated source depends on: its name, the options and
+     * the names and resolved types of its fields, including the values of its enums.
+     *
+     * @param clazz      the class to fingerprint.
+     * @param fieldInfos the resolved fields of the class.
+     * @return the fingerprint of the class.
+     */
+    private String fingerprint(JDefinedClass clazz, Set<FieldInfo> fieldInfos) {
+        StringBuilder canonicalForm = new StringBuilder()
+                .append(FINGERPRINT_VERSION).append('\n')
+                .append(clazz.fullName()).append('\n')
+                .append(mOptions.isGenerateBuilders()).append(' ').append(mOptions.isUseMPrefix()).append(' ')
+                .append(mOptions.isGenerateJacksonCodecs()).append(' ').append(mOptions.isGenerateGsonAdapters())
+                .append(' ').append(mOptions.isImmutable()).append('\n');
+        for (FieldInfo fieldInfo : fieldInfos) {
+            canonicalForm.append(fieldInfo.Names.PropertyName).append('\t')
+                    .append(fieldInfo.Names.getFieldName(mOptions.isUseMPrefix())).append('\t')
+                    .append(fieldInfo.Type.fullName()).append('\n');
+            JType elementType = JacksonCodecEmitter.isList(fieldInfo.Type)
+                    ? ((JClass) fieldInfo.Type).getTypeParameters().get(0) : fieldInfo.Type;
+            Collection<String> enumValues = mEnumValues.get(elementType);
+            if (enumValues != null) {
+                canonicalForm.append('\t').append(enumValues).append('\n');
+            }
+        }
+        return FingerprintStore.fingerprint(canonicalForm.toString());
+    }
+
+    /**
+     * Resolves the code model type of an inferred type.
+     *
+     * @param type       the inferred type.
+     * @param names      the names of the property the type was inferred for.
+     * @param element    true if the type is the element type of a list.
+     * @param jCodeModel the code model to use for generation.
+     * @return the code model type.
+     */
+    private JType resolveType(InferredType type, NameTable.PropertyNames names, boolean element,
+                              JCodeModel jCodeModel) {
+        switch (type.getKind()) {
+            case UNKNOWN: {
+                // Only nulls were seen, so attempt to get a class of the same name from the class map
+                JDefinedClass newClass = mClassMap.get(element ? names.getElementClassName() : names.ClassName);
+
+                // Otherwise, just make a field of type Object
+                return newClass != null ? newClass : jCodeModel.ref(Object.class);
+            }
+            case BOOLEAN:
+                return jCodeModel.ref(Boolean.class);
+            case INT:
+                return jCodeModel.ref(Integer.class);
+            case LONG:
+            case WIDE_LONG:
+                return jCodeModel.ref(Long.class);
+            case FLOAT:
+                return jCodeModel.ref(Float.class);
+            case DOUBLE:
+                return jCodeModel.ref(Double.class);
+            case DECIMAL:
+                return jCodeModel.ref(BigDecimal.class);
+            case STRING:
+                return jCodeModel.ref(String.class);
+            case OBJECT:
+                // Get the already-created class from the class map
+                return mClassMap.get(type.getClassName());
+            case LIST: {
+                JType elementType = resolveType(type.getElementType(), names, true, jCodeModel);
+
+                // Numbers which are never null can be held in a primitive array
+                if (mOptions.isUsePrimitives() && isPrimitive(type.getElementType(), false)) {
+                    return elementType.unboxify().array();
+                }
+
+                // Otherwise, make a List<> of the element type
+                return jCodeModel.ref(List.class).narrow(elementType);
+            }
+            case MAP:
+                // Objects with identifier keys become a Map<> of the value type
+                return jCodeModel.ref(Map.class).narrow(jCodeModel.ref(String.class),
+                        (JClass) resolveType(type.getElementType(), names, true, jCodeModel));
+            default:
+                // Incompatible values were seen, so fall back to Object
+                return jCodeModel.ref(Object.class);
+        }
+    }
+
+    /**
+     * Returns true if values of the given type can be held in a primitive.
+     *
+     * @param type           the inferred type.
+     * @param includeBoolean true if booleans count as primitives, not only numbers.
+     * @return true for non-nullable numbers other than decimals, and optionally booleans.
+     */
+    private static boolean isPrimitive(InferredType type, boolean includeBoolean) {
+        if (type.isNullable()) {
+            return false;
+        }
+        switch (type.getKind()) {
+            case INT:
+            case LONG:
+            case WIDE_LONG:
+            case FLOAT:
+            case DOUBLE:
+                return true;
+            case BOOLEAN:
+                return includeBoolean;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Replaces the type of a string field, or of a list of strings, with an enum nested in the class of the field if
+     * its values were tracked and were seen more often than there are distinct values.
+     *
+     * @param clazz the class of the field.
+     * @param field the field model.
+     * @param names the names of the property.
+     * @param type  the resolved type of the field.
+     * @return the enum or list of enum type, or the given type if the field can't be generated as an enum.
+     */
+    private JType resolveEnumType(JDefinedClass clazz, SchemaModel.FieldModel field, NameTable.PropertyNames names,
+                                  JType type) {
+        boolean list = field.Type.getKind() == InferredType.Kind.LIST;
+        InferredType stringType = list ? field.Type.getElementType() : field.Type;
+        if (stringType.getKind() != InferredType.Kind.STRING || stringType.getValues() == null
+                || field.PresentCount <= stringType.getValues().size()) {
+            return type;
+        }
+
+        JDefinedClass enumClass = getEnumClass(clazz, list ? names.getElementClassName() : names.ClassName,
+                stringType.getValues());
+        if (enumClass == null) {
+            return type;
+        }
+        return list ? clazz.owner().ref(List.class).narrow(enumClass) : enumClass;
+    }
+
+    /**
+     * Returns the enum nested in a class with the given constants, generating it on first use. The enum maps every
+     * constant to its original value, and back with its static {@code fromValue} method.
+     *
+     * @param clazz    the class to nest the enum in.
+     * @param enumName the name of the enum.
+     * @param values   the original values of the constants.
+     * @return the enum, or null if the name is taken or the values don't have distinct constant names.
+     */
+    private JDefinedClass getEnumClass(JDefinedClass clazz, String enumName, Collection<String> values) {
+        // Avoid the names of the class itself and of the other nested classes
+        if (enumName.equals(clazz.name()) || enumName.equals(BUILDER_CLASS_NAME)
+                || enumName.equals(JacksonCodecEmitter.CODEC_CLASS_NAME)
+                || enumName.equals(GsonAdapterEmitter.ADAPTER_CLASS_NAME)) {
+            return null;
+        }
+
+        // Reuse the enum of another property with the same name and values
+        for (JClass nestedClass : clazz.listClasses()) {
+            if (nestedClass.name().equals(enumName)) {
+                return values.equals(mEnumValues.get(nestedClass)) ? (JDefinedClass) nestedClass : null;
+            }
+        }
+
+        // Every value needs its own constant name
+        Map<String, String> constants = new LinkedHashMap<>();
+        for (String value : values) {
+            if (constants.put(GeneratePojos.formatConstantName(value), value) != null) {
+                return null;
+            }
+        }
+
+        JDefinedClass enumClass;
+        try {
+            enumClass = clazz._enum(JMod.PUBLIC, enumName);
+        } catch (JClassAlreadyExistsException e) {
+            return null;
+        }
+        for (Map.Entry<String, String> constant : constants.entrySet()) {
+            enumClass.enumConstant(constant.getKey()).arg(JExpr.lit(constant.getValue()))
+                    .annotate(SerializedName.class).param("value", constant.getValue());
+        }
+
+        // Keep the original value of each constant
+        JFieldVar valueField = enumClass.field(JMod.PRIVATE | JMod.FINAL, String.class,
+                mOptions.isUseMPrefix() ? "mValue" : "value");
+        JMethod constructor = enumClass.constructor(JMod.PRIVATE);
+        constructor.body().assign(JExpr._this().ref(valueField), constructor.param(String.class, "value"));
+        enumClass.method(JMod.PUBLIC, String.class, "getValue").body()._return(valueField);
+
+        // Look up constants by their original value, returning null for unknown values like Gson does
+        JMethod fromValue = enumClass.method(JMod.PUBLIC | JMod.STATIC, enumClass, "fromValue");
+        JVar value = fromValue.param(String.class, "value");
+        fromValue.body()._if(value.eq(JExpr._null()))._then()._return(JExpr._null());
+        JSwitch valueSwitch = fromValue.body()._switch(value);
+        for (Map.Entry<String, String> constant : constants.entrySet()) {
+            valueSwitch._case(JExpr.lit(constant.getValue())).body()._return(enumClass.staticRef(constant.getKey()));
+        }
+        valueSwitch._default().body()._return(JExpr._null());
+
+        mEnumValues.put(enumClass, values);
+        return enumClass;
+    }
+
+    /**
+     * Generates all of the fields for a given class.
+     *
+     * @param clazz            the class to generate sub-objects and fields for.
+     * @param fields           the set of fields to generate.
+     * @param generateBuilders true if the generated class should omit setters and generate a builder instead.
+     * @param useMPrefix       true if the generated fields should use an 'm' prefix.
+     * @return a list of generated fields.
+     * @throws Exception if an error occurs.
+     */
+    private List<GeneratedField> generateFields(JDefinedClass clazz, Set<FieldInfo> fields, boolean generateBuilders,
+                                                boolean useMPrefix) throws Exception {
+        List<GeneratedField> generatedFields = new ArrayList<>();
+
+        // Get sorted list of field names
+        for (FieldInfo fieldInfo : fields) {
+            // Create field with correct naming scheme
+            String fieldName = fieldInfo.Names.getFieldName(useMPrefix);
+            int mods = mOptions.isImmutable() ? JMod.PRIVATE | JMod.FINAL : JMod.PRIVATE;
+            JFieldVar newField = clazz.field(mods, fieldInfo.Type, fieldName);
+
+            // Annotate field
+            annotateField(newField, fieldInfo.Names.PropertyName);
+
+            // Create getter
+            createGetter(clazz, newField, fieldInfo.Names, mOptions.isImmutable());
+
+            // Create setter method only if we're not generating a builder class
+            if (!generateBuilders) {
+                createSetter(clazz, newField, fieldInfo.Names);
+            }
+
+            // Add field to return list
+            generatedFields.add(new GeneratedField(newField, fieldInfo.Names));
+        }
+
+        return generatedFields;
+    }
+
+    /**
+     * Generates the inner builder class for the containing class, with methods for the given fields.
+     *
+     * @param clazz  the class to generate a builder class in.
+     * @param fields the list of generated fields to build.
+     * @throws Exception if an error occurs.
+     */
+    private void generateBuilder(JDefinedClass clazz, List<GeneratedField> fields) throws Exception {
+        // Create the builder first
+        JDefinedClass builder = clazz._class(JMod.PUBLIC | JMod.STATIC, BUILDER_CLASS_NAME);
+
+        // Get sorted list of field names
+        for (GeneratedField generatedField : fields) {
+            // Create the new field
+            builder.field(JMod.PRIVATE, generatedField.Field.type(), generatedField.Field.name());
+
+            // Create the builder setter method
+            createBuilderSetter(builder, generatedField.Field, generatedField.Names);
+        }
+
+        // Create the build method
+        createBuildMethod(clazz, builder, fields);
+    }
+
+    /**
+     * Generates the private constructor of an immutable class, which takes every field in order. Lists are copied
+     * into unmodifiable lists and arrays are cloned, so that the caller cannot change the instance afterwards.
+     *
+     * @param clazz  the immutable class.
+     * @param fields the list of generated fields to assign.
+     */
+    private void generateConstructor(JDefinedClass clazz, List<GeneratedField> fields) {
+        JMethod constructor = clazz.constructor(JMod.PRIVATE);
+        JBlock body = constructor.body();
+        JCodeModel jCodeModel = clazz.owner();
+        for (GeneratedField generatedField : fields) {
+            JFieldVar field = generatedField.Field;
+            JVar param = constructor.param(field.type(), generatedField.Names.SanitizedName);
+
+            // Copy mutable values, keeping nulls
+            JExpression value = param;
+            if (field.type().isArray()) {
+                value = JOp.cond(param.eq(JExpr._null()), JExpr._null(), param.invoke("clone"));
+            } else if (JacksonCodecEmitter.isList(field.type())) {
+                JClass elementType = ((JClass) field.type()).getTypeParameters().get(0);
+                value = JOp.cond(param.eq(JExpr._null()), JExpr._null(),
+                        jCodeModel.ref(Collections.class).staticInvoke("unmodifiableList")
+                                .arg(JExpr._new(jCodeModel.ref(ArrayList.class).narrow(elementType)).arg(param)));
+            } else if (JacksonCodecEmitter.isMap(field.type())) {
+                List<JClass> typeParameters = ((JClass) field.type()).getTypeParameters();
+                JClass mapClass = jCodeModel.ref(LinkedHashMap.class).narrow(typeParameters);
+                value = JOp.cond(param.eq(JExpr._null()), JExpr._null(),
+                        jCodeModel.ref(Collections.class).staticInvoke("unmodifiableMap")
+                                .arg(JExpr._new(mapClass).arg(param)));
+            }
+            body.assign(JExpr._this().ref(field), value);
+        }
+    }
+
+    /**
+     * Generates the equals method of an immutable class, which compares every field.
+     *
+     * @param clazz  the immutable class.
+     * @param fields the list of generated fields to compare.
+     */
+    private void generateEquals(JDefinedClass clazz, List<GeneratedField> fields) {
+        JCodeModel jCodeModel = clazz.owner();
+        JMethod equals = clazz.method(JMod.PUBLIC, boolean.class, "equals");
+        equals.annotate(Override.class);
+        JVar object = equals.param(Object.class, "object");
+        JBlock body = equals.body();
+        body._if(object.eq(JExpr._this()))._then()._return(JExpr.TRUE);
+        body._if(object._instanceof(clazz).not())._then()._return(JExpr.FALSE);
+        JVar other = body.decl(clazz, "other", JExpr.cast(clazz, object));
+
+        // Compare the cheap primitive fields before the others
+        JExpression result = JExpr.TRUE;
+        List<GeneratedField> sortedFields = new ArrayList<>(fields);
+        sortedFields.sort(Comparator.comparing(field -> !field.Field.type().isPrimitive()));
+        for (GeneratedField generatedField : sortedFields) {
+            // Qualify the fields, which may have the same name as the locals
+            JExpression field = JExpr._this().ref(generatedField.Field);
+            JExpression otherField = other.ref(generatedField.Field);
+            JType type = generatedField.Field.type();
+            JExpression comparison;
+            if (type.name().equals("double") || type.name().equals("float")) {
+                // Compare floating point numbers like their boxed types do, so that NaN equals itself
+                comparison = type.boxify().staticInvoke("compare").arg(field).arg(otherField)
+                        .eq(JExpr.lit(0));
+            } else if (type.isPrimitive()) {
+                comparison = field.eq(otherField);
+            } else if (type.isArray()) {
+                comparison = jCodeModel.ref(Arrays.class).staticInvoke("equals").arg(field).arg(otherField);
+            } else {
+                comparison = jCodeModel.ref(Objects.class).staticInvoke("equals").arg(field).arg(otherField);
+            }
+            result = result == JExpr.TRUE ? comparison : result.cand(comparison);
+        }
+        body._return(result);
+    }
+
+    /**
+     * Generates the hashCode method of an immutable class, which computes the hash code of all fields on first use
+     * and caches it in a transient field.
+     *
+     * @param clazz  the immutable class.
+     * @param fields the list of generated fields to hash.
+     */
+    private void generateHashCode(JDefinedClass clazz, List<GeneratedField> fields) {
+        JCodeModel jCodeModel = clazz.owner();
+        JFieldVar cachedHashCode = clazz.field(JMod.PRIVATE | JMod.TRANSIENT, int.class,
+                mOptions.isUseMPrefix() ? "mCachedHashCode" : "cachedHashCode");
+        JMethod hashCode = clazz.method(JMod.PUBLIC, int.class, "hashCode");
+        hashCode.annotate(Override.class);
+        JBlock body = hashCode.body();
+
+        // Compute the hash code on first use; a zero hash code is computed again, which is harmless since every
+        // thread computes the same value
+        JVar result = body.decl(jCodeModel.INT, "result", cachedHashCode);
+        JBlock compute = body._if(result.eq(JExpr.lit(0)))._then();
+        compute.assign(result, JExpr.lit(1));
+        for (GeneratedField generatedField : fields) {
+            JExpression field = JExpr._this().ref(generatedField.Field);
+            JType type = generatedField.Field.type();
+            JClass hashClass;
+            if (type.isPrimitive()) {
+                hashClass = type.boxify();
+            } else if (type.isArray()) {
+                hashClass = jCodeModel.ref(Arrays.class);
+            } else {
+                hashClass = jCodeModel.ref(Objects.class);
+            }
+            compute.assign(result, JExpr.lit(31).mul(result).plus(hashClass.staticInvoke("hashCode").arg(field)));
+        }
+        compute.assign(cachedHashCode, result);
+        body._return(result);
+    }
+
+
+    //endregion
+
+    //region HELPER METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Adds the {@link Generated} annotation to the class.
+     *
+     * @param clazz the class to annotate.
+     */
+    private static void annotateClass(JDefinedClass clazz) {
+        clazz.annotate(Generated.class).param("value", "net.hexar.json2pojo");
+        clazz.annotate(SuppressWarnings.class).param("value", "unused");
+    }
+
+    /**
+     * Adds the {@link Expose} annotation and potentially the {@link SerializedName} annotation to a given
+     * field - the latter is applied only if the property name differs from the field name.
+     *
+     * @param field        the field to annotate.
+     * @param propertyName the original JSON property name.
+     */
+    private static void annotateField(JFieldVar field, String propertyName) {
+        // Use the SerializedName annotation if the field name doesn't match the property name
+        if (!field.name().equals(propertyName)) {
+            field.annotate(SerializedName.class).param("value", propertyName);
+
+            // If we always add @Expose, then add this too
+            if (ALWAYS_ANNOTATE_EXPOSE) {
+                field.annotate(Expose.class);
+            }
+        } else {
+            // Otherwise, just add @Expose
+            field.annotate(Expose.class);
+        }
+    }
+
+    /**
+     * Generates a builder method for the given class, field, and property name.
+     *
+     * @param builder the class to generate a builder method in.
+     * @param field   the field to set.
+     * @param names   the names of the property.
+     * @return a {@link JMethod} which is a builder method for the given field.
+     */
+    private static JMethod createBuilderSetter(JDefinedClass builder, JFieldVar field, NameTable.PropertyNames names) {
+        // Method name should start with "set" and then the uppercased class name
+        JMethod withMethod = builder.method(JMod.PUBLIC, builder, "with" + names.ClassName);
+
+        // Set parameter name to lower camel case
+        String paramName = names.SanitizedName;
+        JVar param = withMethod.param(field.type(), paramName);
+
+        // Assign to field name
+        JBlock body = withMethod.body();
+        if (field.name().equals(paramName)) {
+            // Assign this.FieldName = paramName
+            body.assign(JExpr._this().ref(field), param);
+        } else {
+            // Safe to just assign FieldName = paramName
+            body.assign(field, param);
+        }
+        body._return(JExpr._this());
+        return withMethod;
+    }
+
+    /**
+     * Creates the build method for the builder.
+     *
+     * @param owner   the containing class to build.
+     * @param builder the builder to generate the build method for.
+     * @param fields  the list of generated fields that the containing class owns.
+     */
+    private JMethod createBuildMethod(JDefinedClass owner, JDefinedClass builder, List<GeneratedField> fields) {
+        // Method name should start with "set" and then the uppercased class name
+        JMethod buildMethod = builder.method(JMod.PUBLIC, owner, "build");
+
+        // Assign to field name
+        JBlock body = buildMethod.body();
+
+        // Immutable classes take all of their fields in the constructor
+        if (mOptions.isImmutable()) {
+            JInvocation newInstance = JExpr._new(owner);
+            for (GeneratedField field : fields) {
+                newInstance.arg(JExpr.ref(field.Field.name()));
+            }
+            body._return(newInstance);
+            return buildMethod;
+        }
+
+        // Declare new instance of owner class
+        String localName = GeneratePojos.sanitizePropertyName(owner.name());
+        JVar local = body.decl(owner, localName, JExpr._new(owner));
+
+        // Get sorted list of field names
+        for (GeneratedField field : fields) {
+            // Assign the field in the owner class
+            body.assign(local.ref(field.Field.name()), JExpr.ref(field.Field.name()));
+        }
+
+        // Return the new instance
+        body._return(local);
+        return buildMethod;
+    }
+
+    /**
+     * Generates a getter for the given class, field, and property name.
+     *
+     * @param clazz      the class to generate a getter in.
+     * @param field      the field to return.
+     * @param names      the names of the property.
+     * @param copyArrays true if array fields should be returned as a copy, so that the caller cannot change them.
+     * @return a {@link JMethod} which is a getter for the given field.
+     */
+    private static JMethod createGetter(JDefinedClass clazz, JFieldVar field, NameTable.PropertyNames names,
+                                        boolean copyArrays) {
+        // Method name should start with "get" and then the uppercased class name
+        JMethod getter = clazz.method(JMod.PUBLIC, field.type(), "get" + names.ClassName);
+
+        // Return the field, or a copy of an array
+        JBlock body = getter.body();
+        if (copyArrays && field.type().isArray()) {
+            body._return(JOp.cond(field.eq(JExpr._null()), JExpr._null(), field.invoke("clone")));
+        } else {
+            body._return(field);
+        }
+        return getter;
+    }
+
+    /**
+     * Generates a setter for the given class, field, and property name.
+     *
+     * @param clazz the class to generate a setter in.
+     * @param field the field to set.
+     * @param names the names of the property.
+     * @return a {@link JMethod} which is a setter for the given field.
+     */
+    private static JMethod createSetter(JDefinedClass clazz, JFieldVar field, NameTable.PropertyNames names) {
+        // Method name should start with "set" and then the uppercased class name
+        JMethod setter = clazz.method(JMod.PUBLIC, void.class, "set" + names.ClassName);
+
+        // Set parameter name to lower camel case
+        String paramName = names.SanitizedName;
+        JVar param = setter.param(field.type(), paramName);
+
+        // Assign to field name
+        JBlock body = setter.body();
+        if (field.name().equals(paramName)) {
+            // Assign this.FieldName = paramName
+            body.assign(JExpr._this().ref(field), param);
+        } else {
+            // Safe to just assign FieldName = paramName
+            body.assign(field, param);
+        }
+        return setter;
+    }
+
+
+    //endregion
+
+    //region INNER CLASSES ---------------------------------------------------------------------------------------------
+
+    /**
+     * A comparator that sorts field data objects by their field names from the name table.
+     */
+    private static class FieldComparator implements Comparator<FieldInfo> {
+
+        private final boolean mUseMPrefix;
+
+        public FieldComparator(boolean useMPrefix) {
+            mUseMPrefix = useMPrefix;
+        }
+
+        @Override
+        public int compare(FieldInfo left, FieldInfo right) {
+            // Sort by formatted field name, not the property names
+            return left.Names.getFieldName(mUseMPrefix).compareTo(right.Names.getFieldName(mUseMPrefix));
+        }
+    }
+
+    /**
+     * A simple representation of a field to be created.
+     */
+    private static class FieldInfo {
+        final JType Type;
+        final NameTable.PropertyNames Names;
+
+        FieldInfo(JType type, NameTable.PropertyNames names) {
+            Type = type;
+            Names = names;
+        }
+    }
+
+    /**
+     * A pair containing a generated {@link JFieldVar} field and the names of its original property.
+     */
+    static class GeneratedField {
+        final JFieldVar Field;
+        final NameTable.PropertyNames Names;
+
+        GeneratedField(JFieldVar field, NameTable.PropertyNames names) {
+            Field = field;
+            Names = names;
+        }
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,65 @@
+package net.hexar.json2pojo;
+
+/**
+ * Receives progress updates from a {@link GeneratePojos} run, independently of the IDE.
+ */
+interface ProgressListener {
+
+    /**
+     * A listener which ignores all progress updates, for headless generation.
+     */
+    ProgressListener NONE = fraction -> { };
+
+    /**
+     * Sets the fraction of the generation that has been completed.
+     *
+     * @param fraction the completed fraction, between 0 and 1.
+     */
+    void setFraction(double fraction);
+
+    /**
+     * Describes the phase the generation is currently in.
+     *
+     * @param text the description of the current phase.
+     */
+    default void setText(String text) {
+    }
+
+    /**
+     * Called regularly during all phases of the generation, to abort it if it was canceled.
+     *
+     * @throws RuntimeException if the generation was canceled.
+     */
+    default void checkCanceled() {
+    }
+
+    /**
+     * Starts a phase of the generation, which takes up a range of this listener's fraction.
+     *
+     * @param text the description of the phase.
+     * @param from the fraction at which the phase starts.
+     * @param to   the fraction at which the phase ends.
+     * @return a listener whose fraction goes from 0 to 1 during the phase.
+     */
+    default ProgressListener startPhase(String text, double from, double to) {
+        ProgressListener parent = this;
+        parent.setText(text);
+        parent.setFraction(from);
+        return new ProgressListener() {
+            @Override
+            public void setFraction(double fraction) {
+                parent.setFraction(from + fraction * (to - from));
+            }
+
+            @Override
+            public void setText(String text) {
+                parent.setText(text);
+            }
+
+            @Override
+            public void checkCanceled() {
+                parent.checkCanceled();
+            }
+        };
+    }
+}
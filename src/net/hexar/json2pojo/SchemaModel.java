@@ -0,0 +1,151 @@
+package net.hexar.json2pojo;
+
+import java.util.*;
+
+/**
+ * The immutable intermediate representation between inference and code generation: every class to generate, its
+ * fields with their inferred types, and the statistics collected while inferring them. The model holds no references
+ * to the JSON input or to the code model, so the input can be released before classes are emitted, and a model can be
+ * shared between threads or kept to emit the same classes again.
+ */
+final class SchemaModel {
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final List<ClassModel> mClasses;
+    private final Map<String, ClassModel> mClassesByName;
+    private final Map<String, String> mAliases;
+    private final int mFieldCount;
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    private SchemaModel(ClassModel[] classes, Map<String, String> aliases) {
+        mClasses = Collections.unmodifiableList(Arrays.asList(classes));
+        mAliases = aliases.isEmpty()
+                ? Collections.emptyMap() : Collections.unmodifiableMap(new LinkedHashMap<>(aliases));
+
+        Map<String, ClassModel> classesByName = new HashMap<>();
+        int fieldCount = 0;
+        for (ClassModel clazz : classes) {
+            classesByName.put(clazz.Name, clazz);
+            fieldCount += clazz.Fields.size();
+        }
+        mClassesByName = classesByName;
+        mFieldCount = fieldCount;
+    }
+
+    /**
+     * Freezes an inferred schema into a model.
+     *
+     * @param schema the inferred schema, which may be discarded afterwards.
+     * @return the model of the schema.
+     */
+    static SchemaModel of(InferredSchema schema) {
+        ClassModel[] classes = new ClassModel[schema.getClasses().size()];
+        int i = 0;
+        for (InferredClass inferredClass : schema.getClasses()) {
+            Map<String, InferredType> inferredFields = inferredClass.getFields();
+            FieldModel[] fields = new FieldModel[inferredFields.size()];
+            int j = 0;
+            for (Map.Entry<String, InferredType> field : inferredFields.entrySet()) {
+                fields[j++] = new FieldModel(field.getKey(), field.getValue(),
+                        inferredClass.getPresentCount(field.getKey()));
+            }
+            classes[i++] = new ClassModel(inferredClass.getName(), inferredClass.getObjectCount(), fields);
+        }
+        return new SchemaModel(classes, schema.getAliases());
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * @return all of the classes to generate, in the order in which they were first seen.
+     */
+    List<ClassModel> getClasses() {
+        return mClasses;
+    }
+
+    /**
+     * @return the class with the given name, or null if the model contains no such class.
+     */
+    ClassModel findClass(String className) {
+        return mClassesByName.get(className);
+    }
+
+    /**
+     * @return the names of classes which are generated as another class, mapped to the name of that class.
+     */
+    Map<String, String> getAliases() {
+        return mAliases;
+    }
+
+    /**
+     * @return the total number of fields of all classes.
+     */
+    int getFieldCount() {
+        return mFieldCount;
+    }
+
+    //endregion
+
+    //region INNER CLASSES ---------------------------------------------------------------------------------------------
+
+    /**
+     * A class to generate.
+     */
+    static final class ClassModel {
+        /**
+         * The formatted class name.
+         */
+        final String Name;
+
+        /**
+         * The number of JSON objects that were merged into this class.
+         */
+        final int ObjectCount;
+
+        /**
+         * The fields, in the order in which their properties were first seen.
+         */
+        final List<FieldModel> Fields;
+
+        ClassModel(String name, int objectCount, FieldModel[] fields) {
+            Name = name;
+            ObjectCount = objectCount;
+            Fields = Collections.unmodifiableList(Arrays.asList(fields));
+        }
+    }
+
+    /**
+     * A field of a class to generate.
+     */
+    static final class FieldModel {
+        /**
+         * The original JSON property name.
+         */
+        final String PropertyName;
+
+        /**
+         * The merged type of all values of the property.
+         */
+        final InferredType Type;
+
+        /**
+         * The number of objects in which the property was present, including those where it was null.
+         */
+        final int PresentCount;
+
+        FieldModel(String propertyName, InferredType type, int presentCount) {
+            PropertyName = propertyName;
+            Type = type;
+            PresentCount = presentCount;
+        }
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,19 @@
+package net.hexar.json2pojo;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * The destination of the generated files. All of the files of a run are handed over in a single batch, so that the
+ * IDE can write them in one operation.
+ */
+interface SourceSink {
+
+    /**
+     * Writes a batch of files, creating their directories if necessary.
+     *
+     * @param files the contents of the files, keyed by their paths relative to the output root, separated by '/'.
+     * @throws IOException if a file could not be written.
+     */
+    void write(Map<String, byte[]> files) throws IOException;
+}
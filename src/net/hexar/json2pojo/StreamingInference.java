@@ -0,0 +1,388 @@
+package net.hexar.json2pojo;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Infers an {@link InferredSchema} directly from the tokens of a {@link JsonParser}, without materializing the
+ * document. Every array element is merged into the element type unless array sampling is enabled, in which case only
+ * the first elements and a random sample of the rest are inspected and the others are skipped. Nested objects and
+ * arrays are walked with an explicit stack of frames rather than by recursion, so that deeply nested documents such as
+ * trees or comment threads don't overflow the call stack; nested objects are named after their property, so a
+ * recursive shape maps back to the class of its ancestor.
+ */
+class StreamingInference {
+
+    //region CONSTANTS -------------------------------------------------------------------------------------------------
+
+    /**
+     * Progress is reported, and cancellation checked, once every this many values.
+     */
+    private static final int CHECKPOINT_INTERVAL = 1024;
+
+    /**
+     * The number of identifier keys of an object which may be a map that are kept, to be added to its class if it
+     * turns out not to be a map. At least the minimum number of keys of a map are always kept.
+     */
+    private static final int MAX_PENDING_KEYS = 64;
+
+    //endregion
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final InferredSchema mSchema = new InferredSchema();
+    private final GenerationOptions mOptions;
+    private final NameTable mNames;
+    private final ProgressListener mProgressListener;
+    private final long mInputLength;
+    private long mValueCount;
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a new streaming inference.
+     *
+     * @param options the generation options.
+     * @param names   the name table of the current run.
+     */
+    StreamingInference(GenerationOptions options, NameTable names) {
+        this(options, names, ProgressListener.NONE, 0);
+    }
+
+    /**
+     * Creates a new streaming inference which reports its progress through the input.
+     *
+     * @param options          the generation options.
+     * @param names            the name table of the current run.
+     * @param progressListener the listener to report progress to, and to check for cancellation.
+     * @param inputLength      the length of the input in characters or bytes, or 0 if it is unknown.
+     */
+    StreamingInference(GenerationOptions options, NameTable names, ProgressListener progressListener,
+                       long inputLength) {
+        mOptions = options;
+        mNames = names;
+        mProgressListener = progressListener;
+        mInputLength = inputLength;
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Infers the classes of the next JSON document of the parser.
+     *
+     * @param parser   the JSON parser, positioned before the root value.
+     * @param rootName the formatted name of the root class.
+     * @return the inferred schema.
+     * @throws IOException if the JSON text could not be parsed.
+     */
+    InferredSchema infer(JsonParser parser, String rootName) throws IOException {
+        if (parser.nextToken() == JsonToken.START_OBJECT) {
+            parseValue(parser, JsonToken.START_OBJECT, rootName, false);
+        } else {
+            // Anything other than an object produces an empty root class
+            mSchema.findOrCreateClass(rootName);
+            parser.skipChildren();
+        }
+        return mSchema;
+    }
+
+    /**
+     * Infers the classes of all of the remaining JSON documents of the parser, such as the records of a
+     * newline-delimited JSON file. Every object document is merged into the root class.
+     *
+     * @param parser   the JSON parser, positioned before the first document.
+     * @param rootName the formatted name of the root class.
+     * @return the inferred schema.
+     * @throws IOException if the JSON text could not be parsed.
+     */
+    InferredSchema inferRecords(JsonParser parser, String rootName) throws IOException {
+        mSchema.findOrCreateClass(rootName);
+
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            checkpoint(parser);
+            if (token == JsonToken.START_OBJECT) {
+                parseValue(parser, JsonToken.START_OBJECT, rootName, false);
+            } else {
+                // Records other than objects don't add any fields
+                parser.skipChildren();
+            }
+        }
+        return mSchema;
+    }
+
+    /**
+     * @return the number of JSON values that were parsed so far, including objects and arrays.
+     */
+    long getValueCount() {
+        return mValueCount;
+    }
+
+    //endregion
+
+    //region PRIVATE METHODS -------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the type of the value the parser is positioned on, consuming its tokens. Every open object and array is
+     * a frame on an explicit stack, and the type of every completed value is added to the innermost frame.
+     *
+     * @param parser    the JSON parser, positioned on the first token of the value.
+     * @param token     the first token of the value.
+     * @param className the formatted name of the class of an object value, or of the elements of an array value.
+     * @param allowMap  true if an object value may be inferred as a map, false for root objects.
+     * @return the type of the value.
+     * @throws IOException if the JSON text could not be parsed.
+     */
+    private InferredType parseValue(JsonParser parser, JsonToken token, String className, boolean allowMap)
+            throws IOException {
+        Deque<Frame> frames = new ArrayDeque<>();
+        InferredType type = startValue(parser, token, className, allowMap, frames);
+        while (true) {
+            Frame frame = frames.peek();
+            if (type != null) {
+                if (frame == null) {
+                    return type;
+                }
+                frame.add(type);
+            }
+            type = frame.next(parser, frames);
+        }
+    }
+
+    /**
+     * Starts a value: scalars are complete at once, while objects and arrays push a frame.
+     *
+     * @param parser    the JSON parser, positioned on the first token of the value.
+     * @param token     the first token of the value.
+     * @param className the formatted name of the class of an object value, or of the elements of an array value.
+     * @param allowMap  true if an object value may be inferred as a map.
+     * @param frames    the stack of open objects and arrays.
+     * @return the type of a scalar value, or null if a frame was pushed.
+     */
+    private InferredType startValue(JsonParser parser, JsonToken token, String className, boolean allowMap,
+                                    Deque<Frame> frames) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+                frames.push(new ObjectFrame(className, allowMap));
+                return null;
+            case START_ARRAY:
+                frames.push(new ArrayFrame(className));
+                return null;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return InferredType.of(InferredType.Kind.BOOLEAN);
+            case VALUE_NUMBER_FLOAT:
+                return InferredType.of(mOptions.isNarrowNumbers() ? NumberKinds.ofDecimal(parser.getTextCharacters(),
+                        parser.getTextOffset(), parser.getTextLength()) : InferredType.Kind.DOUBLE);
+            case VALUE_NUMBER_INT:
+                return InferredType.of(mOptions.isNarrowNumbers()
+                        ? NumberKinds.ofInteger(parser) : InferredType.Kind.LONG);
+            case VALUE_STRING:
+                return mOptions.getMaxEnumValues() > 0 ? InferredType.string(parser.getText(),
+                        mOptions.getMaxEnumValues()) : InferredType.of(InferredType.Kind.STRING);
+            case VALUE_NULL:
+                return InferredType.nullValue();
+            default:
+                // Embedded objects can't be mapped to a Java type
+                return InferredType.of(InferredType.Kind.MIXED);
+        }
+    }
+
+    /**
+     * Adds the fields of an object which turned out not to be a map to its class.
+     *
+     * @param pending the class holding the fields of the object.
+     * @return the class of the object.
+     */
+    private InferredClass addPendingClass(InferredClass pending) {
+        InferredClass clazz = mSchema.findOrCreateClass(pending.getName());
+        clazz.merge(pending);
+        return clazz;
+    }
+
+    /**
+     * Counts a value, and regularly reports how far the parser got through the input and checks for cancellation.
+     *
+     * @param parser the JSON parser.
+     */
+    private void checkpoint(JsonParser parser) {
+        if (++mValueCount % CHECKPOINT_INTERVAL != 0) {
+            return;
+        }
+
+        mProgressListener.checkCanceled();
+        if (mInputLength > 0) {
+            JsonLocation location = parser.getCurrentLocation();
+            long offset = Math.max(location.getCharOffset(), location.getByteOffset());
+            mProgressListener.setFraction(Math.min(1.0, (double) offset / mInputLength));
+        }
+    }
+
+    //endregion
+
+    //region INNER CLASSES ---------------------------------------------------------------------------------------------
+
+    /**
+     * An object or array whose tokens are being consumed.
+     */
+    private abstract static class Frame {
+
+        /**
+         * Adds the type of a completed child value.
+         */
+        abstract void add(InferredType type);
+
+        /**
+         * Moves to the next child value and starts it, or pops this frame at its end.
+         *
+         * @param parser the JSON parser, positioned on the last token of the previous child or on the first token of
+         *               this object or array.
+         * @param frames the stack of open objects and arrays, with this frame on top.
+         * @return the type of a scalar child or of this frame if it ended, or null if a frame was pushed or the child
+         * was skipped.
+         * @throws IOException if the JSON text could not be parsed.
+         */
+        abstract InferredType next(JsonParser parser, Deque<Frame> frames) throws IOException;
+    }
+
+    /**
+     * An object, whose fields are added to its class. If maps are enabled and all of its keys so far are identifiers,
+     * only the merged type of their values and a bounded prefix of the fields are kept aside instead, until the end
+     * of the object or a property name decides whether it is a map. An object which is only found not to be a map
+     * after more identifier keys than the prefix holds keeps the fields of the prefix and of the later keys.
+     */
+    private final class ObjectFrame extends Frame {
+        private final String mClassName;
+        private InferredClass mClass;
+        private InferredClass mPending;
+        private DynamicKeys.Pattern mPattern;
+        private InferredType mValueType = InferredType.of(InferredType.Kind.UNKNOWN);
+        private int mKeyCount;
+        private String mValueClassName;
+        private String mProperty;
+        private DynamicKeys.Pattern mKeyPattern;
+
+        ObjectFrame(String className, boolean allowMap) {
+            // Find the class if it exists, or create it if it doesn't, unless the object may be a map
+            mClassName = className;
+            if (allowMap && mOptions.getMinMapKeys() > 0) {
+                mPending = new InferredClass(className);
+                mPending.countObject();
+            } else {
+                mClass = mSchema.findOrCreateClass(className);
+                mClass.countObject();
+            }
+        }
+
+        @Override
+        InferredType next(JsonParser parser, Deque<Frame> frames) throws IOException {
+            if (parser.nextToken() != JsonToken.FIELD_NAME) {
+                frames.pop();
+                return end();
+            }
+
+            // Get the field name and move to its value
+            mProperty = parser.getCurrentName();
+            JsonToken childToken = parser.nextToken();
+            checkpoint(parser);
+
+            // Objects are named after the property, array elements after its singular form, and the values of
+            // identifier keys after the singular form of this object
+            mKeyPattern = mOptions.getMinMapKeys() > 0 ? DynamicKeys.classify(mProperty) : null;
+            String childClassName = null;
+            if (mKeyPattern != null) {
+                if (mValueClassName == null) {
+                    mValueClassName = DynamicKeys.getValueClassName(mNames, mClassName);
+                }
+                childClassName = mValueClassName;
+            } else if (childToken == JsonToken.START_OBJECT) {
+                childClassName = mNames.get(mProperty).ClassName;
+            } else if (childToken == JsonToken.START_ARRAY) {
+                childClassName = mNames.get(mProperty).getElementClassName();
+            }
+            return startValue(parser, childToken, childClassName, true, frames);
+        }
+
+        @Override
+        void add(InferredType type) {
+            if (mClass == null) {
+                // All keys of a map follow the pattern of its first key
+                if (mKeyCount++ == 0) {
+                    mPattern = mKeyPattern;
+                }
+                if (mPattern != null && DynamicKeys.matches(mPattern, mProperty)) {
+                    mValueType = mValueType.merge(type);
+                    if (mValueType.getKind() != InferredType.Kind.MIXED) {
+                        if (mKeyCount <= Math.max(MAX_PENDING_KEYS, mOptions.getMinMapKeys())) {
+                            mPending.addField(mProperty, type);
+                        }
+                        return;
+                    }
+                }
+
+                // A property name, or values that don't share a type, mean that the object is not a map after all
+                mClass = addPendingClass(mPending);
+            }
+            mClass.addField(mProperty, type);
+        }
+
+        /**
+         * @return the object type, or the map type if the object has enough keys, whose values all share a type.
+         */
+        private InferredType end() {
+            if (mClass == null) {
+                if (mKeyCount >= mOptions.getMinMapKeys()) {
+                    return InferredType.map(mValueType);
+                }
+                addPendingClass(mPending);
+            }
+            return InferredType.object(mClassName);
+        }
+    }
+
+    /**
+     * An array, whose sampled elements are merged into its element type.
+     */
+    private final class ArrayFrame extends Frame {
+        private final String mClassName;
+        private InferredType mElementType = InferredType.of(InferredType.Kind.UNKNOWN);
+        private int mIndex;
+
+        ArrayFrame(String className) {
+            mClassName = className;
+        }
+
+        @Override
+        InferredType next(JsonParser parser, Deque<Frame> frames) throws IOException {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.END_ARRAY) {
+                frames.pop();
+                return InferredType.list(mElementType);
+            }
+
+            checkpoint(parser);
+            if (!mOptions.isSampled(mIndex++)) {
+                parser.skipChildren();
+                return null;
+            }
+            return startValue(parser, token, mClassName, true, frames);
+        }
+
+        @Override
+        void add(InferredType type) {
+            mElementType = mElementType.merge(type);
+        }
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,159 @@
+package net.hexar.json2pojo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Merges inferred classes with structurally identical shapes, so that for example the same address object under
+ * {@code billing} and {@code shipping} is generated as a single class.
+ * <p>
+ * Two classes are identical if they have the same property names, and the types of those properties are identical
+ * with class references compared by shape rather than by name. Shapes are found by partition refinement, which also
+ * handles classes that refer to themselves. Every group of identical classes is generated as the root class if it is
+ * part of the group, and otherwise as the class with the alphabetically first name, so that the result does not depend
+ * on the order in which the classes were inferred.
+ */
+final class StructuralDeduplication {
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    private StructuralDeduplication() {
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a schema in which structurally identical classes are replaced by a single class.
+     *
+     * @param schema the inferred schema. Its first class is the root class.
+     * @return a schema containing one class per distinct shape, with an alias for each class that was removed.
+     */
+    static InferredSchema deduplicate(InferredSchema schema) {
+        List<InferredClass> classes = new ArrayList<>(schema.getClasses());
+
+        // Start with every class in the same group, and split groups until all of their classes have the same shape
+        Map<String, Integer> groups = new HashMap<>();
+        for (InferredClass clazz : classes) {
+            groups.put(clazz.getName(), 0);
+        }
+        int groupCount = 1;
+        while (true) {
+            Map<String, Integer> shapes = new HashMap<>();
+            Map<String, Integer> refinedGroups = new HashMap<>();
+            for (InferredClass clazz : classes) {
+                String shape = describeShape(clazz, groups);
+                Integer group = shapes.get(shape);
+                if (group == null) {
+                    group = shapes.size();
+                    shapes.put(shape, group);
+                }
+                refinedGroups.put(clazz.getName(), group);
+            }
+            groups = refinedGroups;
+
+            // Refinement only ever splits groups, so it is done once the number of groups stops growing
+            if (shapes.size() == groupCount) {
+                break;
+            }
+            groupCount = shapes.size();
+        }
+
+        // Choose a deterministic name for every group
+        String rootName = classes.isEmpty() ? null : classes.get(0).getName();
+        Map<Integer, String> groupNames = new HashMap<>();
+        for (InferredClass clazz : classes) {
+            Integer group = groups.get(clazz.getName());
+            String groupName = groupNames.get(group);
+            if (groupName == null || (!groupName.equals(rootName) && clazz.getName().compareTo(groupName) < 0)) {
+                groupNames.put(group, clazz.getName());
+            }
+        }
+        Map<String, String> renames = new HashMap<>();
+        for (InferredClass clazz : classes) {
+            String groupName = groupNames.get(groups.get(clazz.getName()));
+            if (!groupName.equals(clazz.getName())) {
+                renames.put(clazz.getName(), groupName);
+            }
+        }
+
+        // Keep one class of every group, in the original order, and point its references to the kept classes
+        InferredSchema deduplicated = new InferredSchema();
+        for (InferredClass clazz : classes) {
+            String groupName = renames.get(clazz.getName());
+            if (groupName != null) {
+                deduplicated.addAlias(clazz.getName(), groupName);
+            } else {
+                deduplicated.findOrCreateClass(clazz.getName());
+            }
+        }
+
+        // The kept class of a group counts the objects and properties of all of its classes
+        for (InferredClass clazz : classes) {
+            String groupName = renames.get(clazz.getName());
+            InferredClass kept = deduplicated.findClass(groupName != null ? groupName : clazz.getName());
+            for (Map.Entry<String, InferredType> field : clazz.getFields().entrySet()) {
+                kept.addField(field.getKey(), field.getValue().renameClasses(renames),
+                        clazz.getPresentCount(field.getKey()));
+            }
+            kept.countObjects(clazz.getObjectCount());
+        }
+        for (Map.Entry<String, String> alias : schema.getAliases().entrySet()) {
+            String groupName = renames.get(alias.getValue());
+            deduplicated.addAlias(alias.getKey(), groupName != null ? groupName : alias.getValue());
+        }
+        return deduplicated;
+    }
+
+    //endregion
+
+    //region PRIVATE METHODS -------------------------------------------------------------------------------------------
+
+    /**
+     * Describes the shape of a class, given the current groups of the classes it refers to.
+     *
+     * @param clazz  the class to describe.
+     * @param groups the current group of every class.
+     * @return a description which is equal for classes of the same shape.
+     */
+    private static String describeShape(InferredClass clazz, Map<String, Integer> groups) {
+        // The current group is part of the shape, so that groups can only be split
+        StringBuilder shape = new StringBuilder().append(groups.get(clazz.getName())).append('{');
+        for (Map.Entry<String, InferredType> field : new TreeMap<>(clazz.getFields()).entrySet()) {
+            shape.append(field.getKey().length()).append(':').append(field.getKey()).append(':');
+            describeType(field.getValue(), groups, shape);
+            shape.append(',');
+        }
+        return shape.append('}').toString();
+    }
+
+    private static void describeType(InferredType type, Map<String, Integer> groups, StringBuilder shape) {
+        switch (type.getKind()) {
+            case OBJECT:
+                shape.append('#').append(groups.get(type.getClassName()));
+                break;
+            case LIST:
+                shape.append('[');
+                describeType(type.getElementType(), groups, shape);
+                shape.append(']');
+                break;
+            case MAP:
+                shape.append('{');
+                describeType(type.getElementType(), groups, shape);
+                shape.append('}');
+                break;
+            default:
+                shape.append(type.getKind().name());
+        }
+        if (type.isNullable()) {
+            shape.append('?');
+        }
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,89 @@
+package net.hexar.json2pojo;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes generated files through the IntelliJ virtual file system, in a single write command on the event dispatch
+ * thread. The IDE is notified of exactly the files that were written, so no refresh of the source root is needed.
+ */
+class VfsSourceSink implements SourceSink {
+
+    //region MEMBER FIELDS ---------------------------------------------------------------------------------------------
+
+    private final Project mProject;
+    private final VirtualFile mSourceRoot;
+
+    //endregion
+
+    //region CONSTRUCTOR -----------------------------------------------------------------------------------------------
+
+    VfsSourceSink(Project project, VirtualFile sourceRoot) {
+        mProject = project;
+        mSourceRoot = sourceRoot;
+    }
+
+    //endregion
+
+    //region PUBLIC METHODS --------------------------------------------------------------------------------------------
+
+    @Override
+    public void write(Map<String, byte[]> files) throws IOException {
+        if (files.isEmpty()) {
+            return;
+        }
+
+        // Write actions can only run on the event dispatch thread, so wait for it and rethrow its failure here
+        IOException[] failure = new IOException[1];
+        ApplicationManager.getApplication().invokeAndWait(() ->
+                WriteCommandAction.runWriteCommandAction(mProject, () -> {
+                    try {
+                        writeFiles(files);
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                }));
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    //endregion
+
+    //region PRIVATE METHODS -------------------------------------------------------------------------------------------
+
+    private void writeFiles(Map<String, byte[]> files) throws IOException {
+        Map<String, VirtualFile> directories = new HashMap<>();
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            // Find or create the directory, once per package
+            int separator = file.getKey().lastIndexOf('/');
+            VirtualFile directory = mSourceRoot;
+            if (separator >= 0) {
+                String directoryPath = file.getKey().substring(0, separator);
+                directory = directories.get(directoryPath);
+                if (directory == null) {
+                    directory = VfsUtil.createDirectoryIfMissing(mSourceRoot, directoryPath);
+                    directories.put(directoryPath, directory);
+                }
+            }
+
+            // Then overwrite or create the file
+            String fileName = file.getKey().substring(separator + 1);
+            VirtualFile virtualFile = directory.findChild(fileName);
+            if (virtualFile == null) {
+                virtualFile = directory.createChildData(this, fileName);
+            }
+            virtualFile.setBinaryContent(file.getValue());
+        }
+    }
+
+    //endregion
+
+}
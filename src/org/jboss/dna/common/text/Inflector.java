@@ -25,9 +25,15 @@ package org.jboss.dna.common.text;
 
 import net.jcip.annotations.ThreadSafe;
 
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -36,12 +42,25 @@ import java.util.regex.Pattern;
  * the <a href="http://api.rubyonrails.org/classes/Inflector.html">Inflector</a> class in <a
  * href="http://www.rubyonrails.org">Ruby on Rails</a>, which is distributed under the <a
  * href="http://wiki.rubyonrails.org/rails/pages/License">Rails license</a>.
+ * <p>
+ * The pluralization and singularization rules are held in immutable {@link RuleSet rule sets} which are replaced as a
+ * whole when a rule is added, so that a shared instance can be used by any number of threads. Each rule set indexes its
+ * rules by the last character of the literal suffix they require, and memoizes a bounded number of results.
+ * </p>
  */
 @ThreadSafe
 public class Inflector {
 
     protected static final Inflector INSTANCE = new Inflector();
 
+    /**
+     * The maximum number of results memoized by each rule set.
+     */
+    protected static final int MAX_CACHED_RESULTS = 1024;
+
+    private static final Pattern CAMEL_CASE_PATTERN = Pattern.compile("(^|_)(.)");
+    private static final Pattern TITLE_CASE_PATTERN = Pattern.compile("\\b([a-z])");
+
     public static final Inflector getInstance() {
         return INSTANCE;
     }
@@ -51,12 +70,26 @@ public class Inflector {
         protected final String expression;
         protected final Pattern expressionPattern;
         protected final String replacement;
+        protected final String requiredSuffix;
 
         protected Rule( String expression,
                         String replacement ) {
             this.expression = expression;
             this.replacement = replacement != null ? replacement : "";
             this.expressionPattern = Pattern.compile(this.expression, Pattern.CASE_INSENSITIVE);
+            this.requiredSuffix = literalSuffix(this.expression);
+        }
+
+        /**
+         * Quickly determine whether the input ends with the literal suffix that this rule requires, without running the
+         * regular expression.
+         *
+         * @param input the input string
+         * @return false if the rule cannot apply to the input, or true if it might
+         */
+        protected boolean mightApply( String input ) {
+            int length = requiredSuffix.length();
+            return input.regionMatches(true, input.length() - length, requiredSuffix, 0, length);
         }
 
         /**
@@ -93,21 +126,111 @@ public class Inflector {
         }
     }
 
-    private LinkedList<Rule> plurals = new LinkedList<Rule>();
-    private LinkedList<Rule> singulars = new LinkedList<Rule>();
+    /**
+     * An immutable, ordered set of rules. Rules are indexed by the last character of their required literal suffix, so that
+     * applying the set to a word only runs the regular expressions of the rules that can match it. Results are memoized in a
+     * bounded cache, which is discarded along with the rule set when a rule is added.
+     */
+    protected static final class RuleSet {
+
+        protected static final RuleSet EMPTY = new RuleSet(new Rule[0]);
+
+        private final Rule[] rules;
+        private final Rule[] rulesWithoutSuffix;
+        private final Map<Character, Rule[]> rulesByLastChar;
+        private final ConcurrentMap<String, String> results = new ConcurrentHashMap<String, String>();
+
+        private RuleSet( Rule[] rules ) {
+            this.rules = rules;
+
+            // Every bucket keeps the original rule order, and includes the rules that have no required suffix
+            Map<Character, List<Rule>> buckets = new HashMap<Character, List<Rule>>();
+            List<Rule> withoutSuffix = new ArrayList<Rule>();
+            for (Rule rule : rules) {
+                if (rule.requiredSuffix.length() == 0) {
+                    withoutSuffix.add(rule);
+                    for (List<Rule> bucket : buckets.values()) {
+                        bucket.add(rule);
+                    }
+                } else {
+                    Character lastChar = Character.toLowerCase(rule.requiredSuffix.charAt(rule.requiredSuffix.length() - 1));
+                    List<Rule> bucket = buckets.get(lastChar);
+                    if (bucket == null) {
+                        bucket = new ArrayList<Rule>(withoutSuffix);
+                        buckets.put(lastChar, bucket);
+                    }
+                    bucket.add(rule);
+                }
+            }
+
+            this.rulesWithoutSuffix = withoutSuffix.toArray(new Rule[withoutSuffix.size()]);
+            Map<Character, Rule[]> rulesByLastChar = new HashMap<Character, Rule[]>();
+            for (Map.Entry<Character, List<Rule>> bucket : buckets.entrySet()) {
+                rulesByLastChar.put(bucket.getKey(), bucket.getValue().toArray(new Rule[bucket.getValue().size()]));
+            }
+            this.rulesByLastChar = rulesByLastChar;
+        }
+
+        /**
+         * Create a new rule set with the given rule taking precedence over all of the rules in this set.
+         *
+         * @param rule the rule to add
+         * @return the new rule set
+         */
+        protected RuleSet withFirst( Rule rule ) {
+            Rule[] newRules = new Rule[this.rules.length + 1];
+            newRules[0] = rule;
+            System.arraycopy(this.rules, 0, newRules, 1, this.rules.length);
+            return new RuleSet(newRules);
+        }
+
+        /**
+         * Apply the first matching rule to the (trimmed, non-empty) word.
+         *
+         * @param word the word
+         * @return the result of the first rule that applied, or the word itself if no rule applied
+         */
+        protected String apply( String word ) {
+            String result = this.results.get(word);
+            if (result != null) return result;
+
+            result = word;
+            Rule[] candidates = this.rulesByLastChar.get(Character.toLowerCase(word.charAt(word.length() - 1)));
+            for (Rule rule : candidates != null ? candidates : this.rulesWithoutSuffix) {
+                if (!rule.mightApply(word)) continue;
+                String applied = rule.apply(word);
+                if (applied != null) {
+                    result = applied;
+                    break;
+                }
+            }
+
+            // Keep the cache bounded by simply starting over when it is full
+            if (this.results.size() >= MAX_CACHED_RESULTS) this.results.clear();
+            this.results.put(word, result);
+            return result;
+        }
+
+        protected List<Rule> getRules() {
+            return Collections.unmodifiableList(Arrays.asList(this.rules));
+        }
+    }
+
+    private volatile RuleSet plurals = RuleSet.EMPTY;
+    private volatile RuleSet singulars = RuleSet.EMPTY;
     /**
      * The lowercase words that are to be excluded and not processed. This map can be modified by the users via
      * {@link #getUncountables()}.
      */
-    private final Set<String> uncountables = new HashSet<String>();
+    private final Set<String> uncountables = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
     public Inflector() {
         initialize();
     }
 
     protected Inflector( Inflector original ) {
-        this.plurals.addAll(original.plurals);
-        this.singulars.addAll(original.singulars);
+        this.plurals = original.plurals;
+        this.singulars = original.singulars;
         this.uncountables.addAll(original.uncountables);
     }
 
@@ -148,11 +271,7 @@ public class Inflector {
         String wordStr = word.toString().trim();
         if (wordStr.length() == 0) return wordStr;
         if (isUncountable(wordStr)) return wordStr;
-        for (Rule rule : this.plurals) {
-            String result = rule.apply(wordStr);
-            if (result != null) return result;
-        }
-        return wordStr;
+        return this.plurals.apply(wordStr);
     }
 
     public String pluralize( Object word,
@@ -192,11 +311,7 @@ public class Inflector {
         String wordStr = word.toString().trim();
         if (wordStr.length() == 0) return wordStr;
         if (isUncountable(wordStr)) return wordStr;
-        for (Rule rule : this.singulars) {
-            String result = rule.apply(wordStr);
-            if (result != null) return result;
-        }
-        return wordStr;
+        return this.singulars.apply(wordStr);
     }
 
     /**
@@ -294,7 +409,7 @@ public class Inflector {
             }
 
             // Change the case at the beginning at after each underscore ...
-            return replaceAllWithUppercase(result, "(^|_)(.)", 2);
+            return replaceAllWithUppercase(result, CAMEL_CASE_PATTERN, 2);
         }
         if (lowerCaseAndUnderscoredWord.length() < 2) return lowerCaseAndUnderscoredWord;
         return "" + Character.toLowerCase(lowerCaseAndUnderscoredWord.charAt(0))
@@ -408,7 +523,7 @@ public class Inflector {
     public String titleCase( String words,
                              String... removableTokens ) {
         String result = humanize(words, removableTokens);
-        result = replaceAllWithUppercase(result, "\\b([a-z])", 1); // change first char of each word to uppercase
+        result = replaceAllWithUppercase(result, TITLE_CASE_PATTERN, 1); // change first char of each word to uppercase
         return result;
     }
 
@@ -456,16 +571,16 @@ public class Inflector {
         return uncountables;
     }
 
-    public void addPluralize( String rule,
-                              String replacement ) {
+    public synchronized void addPluralize( String rule,
+                                           String replacement ) {
         final Rule pluralizeRule = new Rule(rule, replacement);
-        this.plurals.addFirst(pluralizeRule);
+        this.plurals = this.plurals.withFirst(pluralizeRule);
     }
 
-    public void addSingularize( String rule,
-                                String replacement ) {
+    public synchronized void addSingularize( String rule,
+                                             String replacement ) {
         final Rule singularizeRule = new Rule(rule, replacement);
-        this.singulars.addFirst(singularizeRule);
+        this.singulars = this.singulars.withFirst(singularizeRule);
     }
 
     public void addIrregular( String singular,
@@ -507,8 +622,21 @@ public class Inflector {
     protected static String replaceAllWithUppercase( String input,
                                                      String regex,
                                                      int groupNumberToUppercase ) {
-        Pattern underscoreAndDotPattern = Pattern.compile(regex);
-        Matcher matcher = underscoreAndDotPattern.matcher(input);
+        return replaceAllWithUppercase(input, Pattern.compile(regex), groupNumberToUppercase);
+    }
+
+    /**
+     * Same as {@link #replaceAllWithUppercase(String, String, int)}, with a pattern that has already been compiled.
+     *
+     * @param input
+     * @param pattern
+     * @param groupNumberToUppercase
+     * @return the input string with the appropriate characters converted to upper-case
+     */
+    protected static String replaceAllWithUppercase( String input,
+                                                     Pattern pattern,
+                                                     int groupNumberToUppercase ) {
+        Matcher matcher = pattern.matcher(input);
         StringBuffer sb = new StringBuffer();
         while (matcher.find()) {
             matcher.appendReplacement(sb, matcher.group(groupNumberToUppercase).toUpperCase());
@@ -520,10 +648,44 @@ public class Inflector {
     /**
      * Completely remove all rules within this inflector.
      */
-    public void clear() {
+    public synchronized void clear() {
         this.uncountables.clear();
-        this.plurals.clear();
-        this.singulars.clear();
+        this.plurals = RuleSet.EMPTY;
+        this.singulars = RuleSet.EMPTY;
+    }
+
+    /**
+     * Determine the literal text that any input must end with for the given regular expression to match it. Only
+     * expressions anchored with a trailing <code>$</code> and without top-level alternatives have such a suffix.
+     *
+     * @param expression the regular expression
+     * @return the required suffix, or an empty string if there is none
+     */
+    protected static String literalSuffix( String expression ) {
+        if (!expression.endsWith("$")) return "";
+
+        // A top-level alternative (outside of any group) may match without the suffix
+        int depth = 0;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '(' || c == '[') {
+                depth++;
+            } else if (c == ')' || c == ']') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                return "";
+            }
+        }
+
+        // Collect the trailing letters, stopping before any escaped letter
+        int start = expression.length() - 1;
+        while (start > 0 && Character.isLetter(expression.charAt(start - 1))
+               && (start < 2 || expression.charAt(start - 2) != '\\')) {
+            start--;
+        }
+        return expression.substring(start, expression.length() - 1);
     }
 
     protected void initialize() {
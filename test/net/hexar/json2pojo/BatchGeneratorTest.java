@@ -0,0 +1,102 @@
+package net.hexar.json2pojo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+
+public class BatchGeneratorTest {
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void generateAllSamples() throws Exception {
+        Path sampleDir = mTemporaryFolder.newFolder("samples").toPath();
+        File outputRoot = mTemporaryFolder.newFolder("out");
+        Files.write(sampleDir.resolve("user.json"), "{\"name\": \"a\", \"address\": {\"city\": \"b\"}}"
+                .getBytes(StandardCharsets.UTF_8));
+        Files.write(sampleDir.resolve("order_item.json"), "{\"id\": 1, \"address\": {\"zip\": 2}}"
+                .getBytes(StandardCharsets.UTF_8));
+        Files.write(sampleDir.resolve("notes.txt"), "ignored".getBytes(StandardCharsets.UTF_8));
+
+        Map<Path, Exception> failures = new BatchGenerator("com.example", outputRoot, GenerationOptions.DEFAULT, 2)
+                .generate(sampleDir);
+
+        assertTrue(failures.isEmpty());
+        assertTrue(new File(outputRoot, "com/example/user/User.java").isFile());
+        assertTrue(new File(outputRoot, "com/example/user/Address.java").isFile());
+        assertTrue(new File(outputRoot, "com/example/orderitem/OrderItem.java").isFile());
+        assertTrue(new File(outputRoot, "com/example/orderitem/Address.java").isFile());
+    }
+
+    @Test
+    public void rejectSamplesOfTheSamePackage() throws Exception {
+        Path sampleDir = mTemporaryFolder.newFolder("samples").toPath();
+        File outputRoot = mTemporaryFolder.newFolder("out");
+        Files.write(sampleDir.resolve("orders.json"), "{\"id\": 1}".getBytes(StandardCharsets.UTF_8));
+        Files.write(sampleDir.resolve("orders.ndjson"), "{\"total\": 2}\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(sampleDir.resolve("order_items.json"), "{\"a\": 1}".getBytes(StandardCharsets.UTF_8));
+        Files.write(sampleDir.resolve("orderItems.json"), "{\"b\": 2}".getBytes(StandardCharsets.UTF_8));
+
+        Map<Path, Exception> failures = new BatchGenerator("com.example", outputRoot, GenerationOptions.DEFAULT, 4)
+                .generate(sampleDir);
+
+        // The first sample of each package in name order is generated, and the others fail
+        assertEquals(new HashSet<>(Arrays.asList(sampleDir.resolve("orders.ndjson"),
+                sampleDir.resolve("order_items.json"))), failures.keySet());
+        for (Exception failure : failures.values()) {
+            assertTrue(failure instanceof IllegalArgumentException);
+        }
+        String orders = new String(Files.readAllBytes(new File(outputRoot, "com/example/orders/Orders.java").toPath()),
+                StandardCharsets.UTF_8);
+        assertTrue(orders.contains("mId"));
+        assertTrue(new File(outputRoot, "com/example/orderitems/OrderItems.java").isFile());
+    }
+
+    @Test
+    public void rejectSamplesWithoutValidNames() throws Exception {
+        Path sampleDir = mTemporaryFolder.newFolder("samples").toPath();
+        File outputRoot = mTemporaryFolder.newFolder("out");
+        for (String fileName : Arrays.asList("123.json", "-.json", "class.json", "user.json")) {
+            Files.write(sampleDir.resolve(fileName), "{\"id\": 1}".getBytes(StandardCharsets.UTF_8));
+        }
+
+        Map<Path, Exception> failures = new BatchGenerator("com.example", outputRoot, GenerationOptions.DEFAULT, 2)
+                .generate(sampleDir);
+
+        assertEquals(new HashSet<>(Arrays.asList(sampleDir.resolve("123.json"), sampleDir.resolve("-.json"),
+                sampleDir.resolve("class.json"))), failures.keySet());
+        for (Exception failure : failures.values()) {
+            assertTrue(failure instanceof IllegalArgumentException);
+        }
+        assertTrue(new File(outputRoot, "com/example/user/User.java").isFile());
+    }
+
+    @Test
+    public void reportFailedSamples() throws Exception {
+        Path sampleDir = mTemporaryFolder.newFolder("samples").toPath();
+        File outputRoot = mTemporaryFolder.newFolder("out");
+        Files.write(sampleDir.resolve("valid.json"), "{\"a\": 1}".getBytes(StandardCharsets.UTF_8));
+        Files.write(sampleDir.resolve("broken.json"), "{\"a\": ".getBytes(StandardCharsets.UTF_8));
+
+        Map<Path, Exception> failures = new BatchGenerator("com.example", outputRoot,
+                new GenerationOptions.Builder().withGenerateBuilders(true).withUseMPrefix(false).build(), 4)
+                .generate(sampleDir);
+
+        assertEquals(1, failures.size());
+        assertEquals(sampleDir.resolve("broken.json"), failures.keySet().iterator().next());
+        assertTrue(new File(outputRoot, "com/example/valid/Valid.java").isFile());
+    }
+
+}
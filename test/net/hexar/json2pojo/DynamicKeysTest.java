@@ -0,0 +1,37 @@
+package net.hexar.json2pojo;
+
+import org.junit.Test;
+
+import static net.hexar.json2pojo.DynamicKeys.Pattern.*;
+import static org.junit.Assert.*;
+
+
+public class DynamicKeysTest {
+
+    @Test
+    public void classifyKeys() throws Exception {
+        assertEquals(NUMERIC, DynamicKeys.classify("1001"));
+        assertEquals(NUMERIC, DynamicKeys.classify("-1"));
+        assertEquals(UUID, DynamicKeys.classify("123E4567-e89b-12d3-a456-426614174000"));
+        assertEquals(HASH, DynamicKeys.classify("5f2b9c0e8d7a6b5c"));
+        assertNull(DynamicKeys.classify("-"));
+        assertNull(DynamicKeys.classify("deadbeef"));
+        assertNull(DynamicKeys.classify("user_1001"));
+        assertNull(DynamicKeys.classify("123e4567-e89b-12d3-a456-42661417400g"));
+    }
+
+    @Test
+    public void matchPatternOfFirstKey() throws Exception {
+        assertTrue(DynamicKeys.matches(HASH, "1234567890123456"));
+        assertFalse(DynamicKeys.matches(NUMERIC, "5f2b9c0e8d7a6b5c"));
+        assertFalse(DynamicKeys.matches(UUID, "1001"));
+    }
+
+    @Test
+    public void nameValueClasses() throws Exception {
+        NameTable names = new NameTable();
+        assertEquals("User", DynamicKeys.getValueClassName(names, "Users"));
+        assertEquals("NamedValue", DynamicKeys.getValueClassName(names, "Named"));
+    }
+
+}
@@ -1,12 +1,39 @@
 package net.hexar.json2pojo;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JType;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 
 
 public class GeneratePojosTest {
 
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
     @Test
     public void formatClassName() throws Exception {
         assertEquals("Test", GeneratePojos.formatClassName("test"));
@@ -44,4 +71,279 @@ public class GeneratePojosTest {
         assertEquals("invalidChars", GeneratePojos.formatFieldName("Invalid@$%@#$^&#%@Chars", false));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void formatConstantName() throws Exception {
+        assertEquals("USD", GeneratePojos.formatConstantName("USD"));
+        assertEquals("IN_PROGRESS", GeneratePojos.formatConstantName("in_progress"));
+        assertEquals("IN_PROGRESS", GeneratePojos.formatConstantName("inProgress"));
+        assertEquals("EN_US", GeneratePojos.formatConstantName("en-US"));
+        assertEquals("PIÑATA", GeneratePojos.formatConstantName("piñata"));
+        assertEquals("_1ST", GeneratePojos.formatConstantName("1st"));
+        assertEquals("EMPTY", GeneratePojos.formatConstantName(""));
+        assertEquals("A_B", GeneratePojos.formatConstantName(" a  b "));
+    }
+
+    @Test
+    public void reportNameCollisions() throws Exception {
+        InferredSchema schema;
+        String json = "{\"user_name\": \"a\", \"userName\": \"b\", \"id\": 1}";
+        try (JsonParser parser = new JsonFactory().createParser(json)) {
+            schema = new StreamingInference(GenerationOptions.DEFAULT, new NameTable()).infer(parser, "Root");
+        }
+
+        GeneratePojos generatePojos = new GeneratePojos("com.example", null, ProgressListener.NONE);
+        generatePojos.generateCodeModel(schema, GenerationOptions.DEFAULT);
+
+        List<NameTable.Collision> collisions = generatePojos.getNameCollisions();
+        assertEquals(1, collisions.size());
+        assertEquals("Root", collisions.get(0).ClassName);
+        assertEquals("user_name", collisions.get(0).KeptProperty);
+        assertEquals("userName", collisions.get(0).DroppedProperty);
+        assertEquals("mUserName", collisions.get(0).FieldName);
+    }
+
+    @Test
+    public void generatePrimitives() throws Exception {
+        InferredSchema schema;
+        String json = "{\"items\": [{\"id\": 1, \"ratio\": 0.5, \"done\": true, \"size\": 2, \"note\": 3}, "
+                + "{\"id\": 2, \"ratio\": 1, \"done\": false, \"note\": null}], "
+                + "\"ids\": [1, 2], \"ratios\": [1, 2.5], \"flags\": [true], \"gaps\": [1, null]}";
+        try (JsonParser parser = new JsonFactory().createParser(json)) {
+            schema = new StreamingInference(GenerationOptions.DEFAULT, new NameTable()).infer(parser, "Root");
+        }
+        GenerationOptions options = new GenerationOptions.Builder().withPrimitives(true).build();
+        JCodeModel jCodeModel = new GeneratePojos("com.example", null, ProgressListener.NONE)
+                .generateCodeModel(schema, options);
+
+        JDefinedClass item = jCodeModel._getClass("com.example.Item");
+        assertEquals("long", item.fields().get("mId").type().fullName());
+        assertEquals("double", item.fields().get("mRatio").type().fullName());
+        assertEquals("boolean", item.fields().get("mDone").type().fullName());
+        assertEquals("java.lang.Long", item.fields().get("mSize").type().fullName());
+        assertEquals("java.lang.Long", item.fields().get("mNote").type().fullName());
+
+        JDefinedClass root = jCodeModel._getClass("com.example.Root");
+        assertEquals("long[]", root.fields().get("mIds").type().fullName());
+        assertEquals("double[]", root.fields().get("mRatios").type().fullName());
+        assertEquals("java.util.List<java.lang.Boolean>", root.fields().get("mFlags").type().fullName());
+        assertEquals("java.util.List<java.lang.Long>", root.fields().get("mGaps").type().fullName());
+        assertEquals("long", root.getMethod("getIds", new JType[0]).type().elementType().fullName());
+    }
+
+    @Test
+    public void generateEnums() throws Exception {
+        InferredSchema schema;
+        String json = "{\"orders\": [{\"status\": \"new\", \"tags\": [\"a\"], \"note\": \"x\", \"code\": \"1\"}, "
+                + "{\"status\": \"in_progress\", \"tags\": [\"b\", \"a\"], \"note\": \"y\", \"code\": \"2\"}, "
+                + "{\"status\": \"new\", \"tags\": null, \"note\": \"z\", \"code\": \"3\"}], \"name\": \"n\"}";
+        GenerationOptions options = new GenerationOptions.Builder().withMaxEnumValues(2).build();
+        try (JsonParser parser = new JsonFactory().createParser(json)) {
+            schema = new StreamingInference(options, new NameTable()).infer(parser, "Root");
+        }
+        JCodeModel jCodeModel = new GeneratePojos("com.example", null, ProgressListener.NONE)
+                .generateCodeModel(schema, options);
+
+        // Only repeated values within the limit become enums
+        JDefinedClass order = jCodeModel._getClass("com.example.Order");
+        assertEquals("com.example.Order.Status", order.fields().get("mStatus").type().fullName());
+        assertEquals("java.util.List<com.example.Order.Tag>", order.fields().get("mTags").type().fullName());
+        assertEquals("java.lang.String", order.fields().get("mNote").type().fullName());
+        assertEquals("java.lang.String", order.fields().get("mCode").type().fullName());
+        assertEquals("java.lang.String",
+                jCodeModel._getClass("com.example.Root").fields().get("mName").type().fullName());
+    }
+
+    @Test
+    public void reportPhaseProgress() throws Exception {
+        List<String> phases = new ArrayList<>();
+        List<Double> fractions = new ArrayList<>();
+        ProgressListener progressListener = new ProgressListener() {
+            @Override
+            public void setFraction(double fraction) {
+                fractions.add(fraction);
+            }
+
+            @Override
+            public void setText(String text) {
+                phases.add(text);
+            }
+        };
+
+        new GeneratePojos("com.example", mTemporaryFolder.newFolder("out"), progressListener)
+                .generateFromJson("Root", createLargeArray(5000), GenerationOptions.DEFAULT);
+
+        assertEquals(Arrays.asList("Inferring classes", "Generating classes", "Writing sources"), phases);
+        assertTrue(fractions.size() > 5);
+        List<Double> sortedFractions = new ArrayList<>(fractions);
+        Collections.sort(sortedFractions);
+        assertEquals(sortedFractions, fractions);
+        assertEquals(1.0, fractions.get(fractions.size() - 1), 0);
+    }
+
+    @Test
+    public void reportTreeInferenceProgress() throws Exception {
+        List<Double> fractions = Collections.synchronizedList(new ArrayList<>());
+        ProgressListener progressListener = new ProgressListener() {
+            private volatile boolean mInferring;
+
+            @Override
+            public void setFraction(double fraction) {
+                if (mInferring) {
+                    fractions.add(fraction);
+                }
+            }
+
+            @Override
+            public void setText(String text) {
+                mInferring = text.equals("Inferring classes");
+            }
+        };
+        AtomicReference<JsonNode> rootNode = new AtomicReference<>(
+                JsonEntryDialog.parseJson(createLargeArray(20000)));
+
+        new GeneratePojos("com.example", mTemporaryFolder.newFolder("out"), progressListener)
+                .generateFromTree("Root", rootNode, GenerationOptions.DEFAULT);
+
+        // The phase starts at 0, and rises towards the start of the next phase while the tree is inferred
+        assertTrue(fractions.size() > 5);
+        List<Double> sortedFractions = new ArrayList<>(fractions);
+        Collections.sort(sortedFractions);
+        assertEquals(sortedFractions, fractions);
+        assertEquals(0.0, fractions.get(0), 0);
+        assertTrue(fractions.get(fractions.size() - 1) > 0.4);
+        assertTrue(fractions.get(fractions.size() - 1) <= 0.5);
+    }
+
+    @Test
+    public void releaseTreeBeforeWriting() throws Exception {
+        File outputRoot = mTemporaryFolder.newFolder("out");
+        AtomicReference<JsonNode> rootNode = new AtomicReference<>(
+                JsonEntryDialog.parseJson("{\"name\": \"a\", \"address\": {\"city\": \"b\"}}"));
+        SourceSink fileSink = new FileSourceSink(outputRoot);
+        SourceSink checkingSink = files -> {
+            assertNull(rootNode.get());
+            fileSink.write(files);
+        };
+
+        new GeneratePojos("com.example", outputRoot, ProgressListener.NONE, checkingSink)
+                .generateFromTree("Root", rootNode, GenerationOptions.DEFAULT);
+
+        assertTrue(new File(outputRoot, "com/example/Root.java").isFile());
+        assertTrue(new File(outputRoot, "com/example/Address.java").isFile());
+    }
+
+    @Test
+    public void cancelGeneration() throws Exception {
+        File outputRoot = mTemporaryFolder.newFolder("out");
+        ProgressListener progressListener = new ProgressListener() {
+            @Override
+            public void setFraction(double fraction) {
+            }
+
+            @Override
+            public void checkCanceled() {
+                throw new IllegalStateException("canceled");
+            }
+        };
+
+        try {
+            new GeneratePojos("com.example", outputRoot, progressListener)
+                    .generateFromJson("Root", createLargeArray(5000), GenerationOptions.DEFAULT);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("canceled", e.getMessage());
+        }
+        assertFalse(new File(outputRoot, "com/example/Root.java").exists());
+    }
+
+    @Test
+    public void generateFromFile() throws Exception {
+        String json = "{\"name\": \"Piñata\", \"tags\": [\"a\"], \"owner\": {\"id\": 1}}";
+        File jsonFile = mTemporaryFolder.newFile("root.json");
+        Files.write(jsonFile.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        File textOutput = mTemporaryFolder.newFolder("text");
+        File fileOutput = mTemporaryFolder.newFolder("file");
+
+        new GeneratePojos("com.example", textOutput, ProgressListener.NONE)
+                .generateFromJson("Root", json, GenerationOptions.DEFAULT);
+        new GeneratePojos("com.example", fileOutput, ProgressListener.NONE)
+                .generateFromFile("Root", jsonFile.toPath(), GenerationOptions.DEFAULT);
+
+        for (String className : Arrays.asList("Root", "Owner")) {
+            String path = "com/example/" + className + ".java";
+            assertArrayEquals(Files.readAllBytes(new File(textOutput, path).toPath()),
+                    Files.readAllBytes(new File(fileOutput, path).toPath()));
+        }
+    }
+
+    @Test
+    public void writeReport() throws Exception {
+        File outputRoot = mTemporaryFolder.newFolder("out");
+        GeneratePojos generatePojos = new GeneratePojos("com.example", outputRoot, ProgressListener.NONE);
+        generatePojos.generateFromJson("root", "{\"users\": [{\"id\": 1}, {\"id\": 2}]}",
+                new GenerationOptions.Builder().withReport(true).build());
+
+        GenerationMetrics metrics = generatePojos.getMetrics();
+        assertEquals(2, metrics.getClassCount());
+        assertEquals(2, metrics.getFieldCount());
+        assertEquals(3, metrics.getObjectCount());
+        assertEquals(1, metrics.getInflectorCalls());
+        assertEquals(2, metrics.getFilesWritten());
+        assertEquals(new File(outputRoot, "com/example/Root.java").length()
+                + new File(outputRoot, "com/example/User.java").length(), metrics.getBytesWritten());
+        assertTrue(metrics.getValueCount() > 0);
+        assertEquals(0, metrics.getWallNanos(GenerationMetrics.Phase.PARSE));
+        assertTrue(metrics.getWallNanos(GenerationMetrics.Phase.CODEGEN) > 0);
+
+        // The report contains the same metrics
+        JsonNode report = new ObjectMapper().readTree(new File(outputRoot, "com/example/"
+                + GenerationMetrics.REPORT_FILE_NAME));
+        assertEquals("Root", report.get("rootClass").asText());
+        assertEquals(2, report.get("classes").asInt());
+        assertEquals(metrics.getBytesWritten(), report.get("bytesWritten").asLong());
+        assertEquals(metrics.getWallNanos(GenerationMetrics.Phase.WRITE),
+                report.get("phases").get("write").get("wallNanos").asLong());
+        assertTrue(report.get("phases").get("infer").get("allocatedBytes").asLong() != 0);
+    }
+
+    @Test
+    public void emitFlightRecorderEvents() throws Exception {
+        File schemaFile = mTemporaryFolder.newFile("root.schema.json");
+        Files.write(schemaFile.toPath(), "{\"type\": \"object\", \"properties\": {\"id\": {\"type\": \"integer\"}}}"
+                .getBytes(StandardCharsets.UTF_8));
+        Path recordingFile = mTemporaryFolder.getRoot().toPath().resolve("generation.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("net.hexar.json2pojo.GenerationPhase");
+            recording.enable("net.hexar.json2pojo.Generation");
+            recording.start();
+            new GeneratePojos("com.example", mTemporaryFolder.newFolder("out"), ProgressListener.NONE)
+                    .generateFromJsonSchemaFile("root", schemaFile.toPath(), GenerationOptions.DEFAULT);
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        Set<String> phases = new HashSet<>();
+        int generations = 0;
+        for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+            assertEquals("Root", event.getString("rootClass"));
+            if (event.getEventType().getName().equals("net.hexar.json2pojo.Generation")) {
+                assertEquals(1, event.getInt("classes"));
+                generations++;
+            } else {
+                phases.add(event.getString("phase"));
+            }
+        }
+        assertEquals(1, generations);
+        assertEquals(new HashSet<>(Arrays.asList("parse", "infer", "codegen", "write")), phases);
+    }
+
+    private static String createLargeArray(int size) {
+        StringBuilder json = new StringBuilder("{\"values\": [");
+        for (int i = 0; i < size; i++) {
+            json.append(i > 0 ? ", " : "").append("{\"id\": ").append(i).append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+}
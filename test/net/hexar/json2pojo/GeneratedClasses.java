@@ -0,0 +1,55 @@
+package net.hexar.json2pojo;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
+
+/**
+ * Generates classes from a JSON sample and compiles them, so that tests can exercise the generated code.
+ */
+final class GeneratedClasses {
+
+    private GeneratedClasses() {
+    }
+
+    /**
+     * Generates and compiles the classes of a sample in the package {@code com.example}, skipping the test if no
+     * compiler is available.
+     *
+     * @param sample  the JSON sample of the root class {@code Root}.
+     * @param options the generation options.
+     * @param workDir an empty directory for the sources and classes.
+     * @return a class loader for the compiled classes, which must be closed.
+     * @throws Exception if the classes could not be generated.
+     */
+    static URLClassLoader compile(String sample, GenerationOptions options, File workDir) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeNotNull(compiler);
+
+        File sourceRoot = new File(workDir, "src");
+        File classRoot = new File(workDir, "classes");
+        assertTrue(classRoot.mkdirs());
+        new GeneratePojos("com.example", sourceRoot, ProgressListener.NONE).generateFromJson("Root", sample, options);
+
+        List<String> arguments = new ArrayList<>(Arrays.asList("-classpath", System.getProperty("java.class.path"),
+                "-d", classRoot.getPath()));
+        File[] sources = new File(sourceRoot, "com/example").listFiles();
+        assertNotNull(sources);
+        for (File source : sources) {
+            if (source.getName().endsWith(".java")) {
+                arguments.add(source.getPath());
+            }
+        }
+        assertEquals(0, compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])));
+        return new URLClassLoader(new URL[] { classRoot.toURI().toURL() }, GeneratedClasses.class.getClassLoader());
+    }
+
+}
@@ -0,0 +1,98 @@
+package net.hexar.json2pojo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+
+public class IncrementalGenerationTest {
+
+    private static final long OLD_TIME = 1000000000000L;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void keepIdenticalFiles() throws Exception {
+        File outputRoot = mTemporaryFolder.newFolder("out");
+        File user = new File(outputRoot, "com/example/User.java");
+
+        new GeneratePojos("com.example", outputRoot, ProgressListener.NONE)
+                .generateFromJson("User", "{\"name\": \"a\"}", GenerationOptions.DEFAULT);
+        assertTrue(user.setLastModified(OLD_TIME));
+
+        new GeneratePojos("com.example", outputRoot, ProgressListener.NONE)
+                .generateFromJson("User", "{\"name\": \"b\"}", GenerationOptions.DEFAULT);
+        assertEquals(OLD_TIME, user.lastModified());
+        assertFalse(new File(outputRoot, "com/example/" + FingerprintStore.FILE_NAME).exists());
+    }
+
+    @Test
+    public void regenerateChangedClassesOnly() throws Exception {
+        File outputRoot = mTemporaryFolder.newFolder("out");
+        File user = new File(outputRoot, "com/example/User.java");
+        File address = new File(outputRoot, "com/example/Address.java");
+        GenerationOptions options = new GenerationOptions.Builder().withIncremental(true).build();
+        GeneratePojos generatePojos = new GeneratePojos("com.example", outputRoot, ProgressListener.NONE);
+
+        generatePojos.generateFromJson("User", "{\"name\": \"a\", \"address\": {\"city\": \"b\"}}", options);
+        assertTrue(generatePojos.getUnchangedClasses().isEmpty());
+        assertTrue(new File(outputRoot, "com/example/" + FingerprintStore.FILE_NAME).isFile());
+        assertTrue(user.setLastModified(OLD_TIME));
+        assertTrue(address.setLastModified(OLD_TIME));
+
+        // Only the address changes shape
+        generatePojos.generateFromJson("User", "{\"name\": \"c\", \"address\": {\"city\": \"d\", \"zip\": 1}}", options);
+        assertEquals(new HashSet<>(Arrays.asList("User")), generatePojos.getUnchangedClasses());
+        assertEquals(OLD_TIME, user.lastModified());
+        assertNotEquals(OLD_TIME, address.lastModified());
+        assertTrue(new String(Files.readAllBytes(address.toPath()), StandardCharsets.UTF_8).contains("mZip"));
+
+        // Deleted sources are generated again, even though their shape did not change
+        assertTrue(user.delete());
+        generatePojos.generateFromJson("User", "{\"name\": \"c\", \"address\": {\"city\": \"d\", \"zip\": 1}}", options);
+        assertEquals(new HashSet<>(Arrays.asList("Address")), generatePojos.getUnchangedClasses());
+        assertTrue(user.isFile());
+    }
+
+    @Test
+    public void writeChangedFilesInOneBatch() throws Exception {
+        File outputRoot = mTemporaryFolder.newFolder("out");
+        List<Map<String, byte[]>> batches = new ArrayList<>();
+        SourceSink fileSink = new FileSourceSink(outputRoot);
+        SourceSink recordingSink = files -> {
+            batches.add(files);
+            fileSink.write(files);
+        };
+        GenerationOptions options = new GenerationOptions.Builder().withIncremental(true).build();
+        GeneratePojos generatePojos = new GeneratePojos("com.example", outputRoot, ProgressListener.NONE,
+                recordingSink);
+
+        generatePojos.generateFromJson("User", "{\"address\": {\"city\": \"b\"}}", options);
+        generatePojos.generateFromJson("User", "{\"address\": {\"city\": \"b\", \"zip\": 1}}", options);
+
+        assertEquals(2, batches.size());
+        assertEquals(new HashSet<>(Arrays.asList("com/example/User.java", "com/example/Address.java",
+                "com/example/" + FingerprintStore.FILE_NAME)), batches.get(0).keySet());
+        assertEquals(new HashSet<>(Arrays.asList("com/example/Address.java",
+                "com/example/" + FingerprintStore.FILE_NAME)), batches.get(1).keySet());
+
+        // The fingerprints are written last, once all of the sources they describe were written
+        for (Map<String, byte[]> batch : batches) {
+            List<String> paths = new ArrayList<>(batch.keySet());
+            assertEquals("com/example/" + FingerprintStore.FILE_NAME, paths.get(paths.size() - 1));
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+package net.hexar.json2pojo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.net.URLClassLoader;
+
+import static org.junit.Assert.*;
+
+
+public class JacksonCodecEmitterTest {
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void roundTripJson() throws Exception {
+        String json = "{\"items\": [{\"id\": 1, \"ratio\": 0.5, \"done\": true, \"size\": 2, \"note\": \"a\"}, "
+                + "{\"id\": 2, \"ratio\": 1.5, \"done\": false, \"size\": null, \"note\": null}], "
+                + "\"ids\": [1, 2, 3], \"matrix\": [[1.5, 2.5], []], \"gaps\": [1, null], "
+                + "\"owner\": {\"name\": \"b\"}, "
+                + "\"any\": {\"list\": [1, \"c\", true, null], \"number\": 2.5}, \"missing\": null}";
+        assertEquals(new ObjectMapper().readTree(json), new ObjectMapper().readTree(roundTrip(json,
+                new GenerationOptions.Builder().withPrimitives(true).withJacksonCodecs(true).build())));
+    }
+
+    @Test
+    public void roundTripJsonWithBuilders() throws Exception {
+        String json = "{\"name\": \"a\", \"tags\": [\"b\", \"c\"], \"child\": {\"count\": 3}}";
+        assertEquals(new ObjectMapper().readTree(json), new ObjectMapper().readTree(roundTrip(json,
+                new GenerationOptions.Builder().withGenerateBuilders(true).withJacksonCodecs(true).build())));
+    }
+
+    @Test
+    public void roundTripNarrowNumbers() throws Exception {
+        String json = "{\"count\": 7, \"ratio\": 0.1, \"size\": null, \"big\": 100000000000000000000, "
+                + "\"exact\": 0.12345678901234567890, \"counts\": [1, 2], \"ratios\": [0.5, 0.1]}";
+        String written = roundTrip(json, new GenerationOptions.Builder().withNarrowNumbers(true).withPrimitives(true)
+                .withJacksonCodecs(true).build());
+        assertEquals(new ObjectMapper().readTree(json), new ObjectMapper().readTree(written));
+        assertTrue(written, written.contains("0.12345678901234567890"));
+        assertFalse(written, written.contains("0.100"));
+    }
+
+    @Test
+    public void roundTripEnums() throws Exception {
+        String json = "{\"items\": [{\"status\": \"in_progress\", \"tags\": [\"a-b\"]}, "
+                + "{\"status\": null, \"tags\": [\"a-b\", null]}, "
+                + "{\"status\": \"in_progress\", \"tags\": []}]}";
+        assertEquals(new ObjectMapper().readTree(json), new ObjectMapper().readTree(roundTrip(json,
+                new GenerationOptions.Builder().withMaxEnumValues(4).withJacksonCodecs(true).build())));
+    }
+
+    @Test
+    public void roundTripMaps() throws Exception {
+        String json = "{\"users\": {\"1001\": {\"name\": \"a\"}, \"1002\": null}, "
+                + "\"scores\": {\"1\": [1, 2], \"2\": []}, \"empty\": {}}";
+        GenerationOptions options = new GenerationOptions.Builder().withMinMapKeys(1).withImmutable(true)
+                .withJacksonCodecs(true).build();
+        assertEquals(new ObjectMapper().readTree(json), new ObjectMapper().readTree(roundTrip(json, options)));
+    }
+
+    @Test
+    public void roundTripValuesWithTheSameHelperName() throws Exception {
+        String json = "{\"foo\": [[1]], \"fooArray\": [\"x\"], \"bar\": {\"1\": [2]}, \"barMap\": {\"1\": \"y\"}}";
+        GenerationOptions options = new GenerationOptions.Builder().withMinMapKeys(1).withJacksonCodecs(true).build();
+        assertEquals(new ObjectMapper().readTree(json), new ObjectMapper().readTree(roundTrip(json, options)));
+    }
+
+    @Test
+    public void roundTripImmutableJson() throws Exception {
+        String json = "{\"id\": 1, \"tags\": [\"b\", \"c\"], \"ids\": [1, 2], \"child\": {\"count\": 3}}";
+        GenerationOptions options = new GenerationOptions.Builder().withImmutable(true).withPrimitives(true)
+                .withJacksonCodecs(true).build();
+        assertEquals(new ObjectMapper().readTree(json), new ObjectMapper().readTree(roundTrip(json, options)));
+    }
+
+    @Test
+    public void skipUnknownProperties() throws Exception {
+        String json = "{\"id\": 1}";
+        String written = roundTrip(json, new GenerationOptions.Builder().withJacksonCodecs(true).build(),
+                "{\"extra\": {\"nested\": [1, 2]}, \"id\": 2, \"other\": [3]}");
+        assertEquals(new ObjectMapper().readTree("{\"id\": 2}"), new ObjectMapper().readTree(written));
+    }
+
+    private String roundTrip(String json, GenerationOptions options) throws Exception {
+        return roundTrip(json, options, json);
+    }
+
+    /**
+     * Generates classes from a sample, compiles them and reads and writes a document with the generated codec.
+     */
+    private String roundTrip(String sample, GenerationOptions options, String document) throws Exception {
+        try (URLClassLoader classLoader = GeneratedClasses.compile(sample, options, mTemporaryFolder.newFolder())) {
+            Class<?> rootClass = classLoader.loadClass("com.example.Root");
+            Class<?> codecClass = classLoader.loadClass("com.example.Root$JsonCodec");
+            Method read = codecClass.getMethod("read", JsonParser.class);
+            Method write = codecClass.getMethod("write", JsonGenerator.class, rootClass);
+
+            JsonFactory jsonFactory = new JsonFactory();
+            StringWriter output = new StringWriter();
+            try (JsonParser parser = jsonFactory.createParser(document);
+                 JsonGenerator generator = jsonFactory.createGenerator(output)) {
+                write.invoke(null, generator, read.invoke(null, parser));
+            }
+            return output.toString();
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package net.hexar.json2pojo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+
+public class Json2PojoCliTest {
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void sampleAfterDefaultHead() throws Exception {
+        Path sampleDir = mTemporaryFolder.newFolder("samples").toPath();
+        File outputRoot = mTemporaryFolder.newFolder("out");
+        Files.write(sampleDir.resolve("root.json"), createItems(1000).getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(0, run("--sample-rate", "0", sampleDir.toString(), outputRoot.getPath(), "com.example"));
+        String item = new String(Files.readAllBytes(new File(outputRoot, "com/example/root/Item.java").toPath()),
+                StandardCharsets.UTF_8);
+        assertTrue(item.contains("mId"));
+        assertFalse(item.contains("mLast"));
+    }
+
+    @Test
+    public void rejectInvalidSampleRate() throws Exception {
+        File outputRoot = mTemporaryFolder.newFolder("out");
+        assertEquals(2, run("--sample-rate", "2", "samples", outputRoot.getPath(), "com.example"));
+    }
+
+    private static int run(String... args) {
+        PrintStream output = new PrintStream(new ByteArrayOutputStream());
+        return Json2PojoCli.run(args, output, output);
+    }
+
+    /**
+     * @return an array of items whose last item, far beyond the default sample head, has an extra property.
+     */
+    private static String createItems(int size) {
+        StringBuilder json = new StringBuilder("{\"items\": [");
+        for (int i = 0; i < size; i++) {
+            json.append(i > 0 ? ", " : "").append("{\"id\": ").append(i);
+            json.append(i == size - 1 ? ", \"last\": true}" : "}");
+        }
+        return json.append("]}").toString();
+    }
+
+}
@@ -0,0 +1,42 @@
+package net.hexar.json2pojo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class JsonEntryDialogTest {
+
+    @Test
+    public void parseJson() throws Exception {
+        assertEquals(1, JsonEntryDialog.parseJson("{\"a\": 1}").get("a").asInt());
+        assertNull(JsonEntryDialog.parseJson("  "));
+    }
+
+    @Test
+    public void parseDeeplyNestedJson() throws Exception {
+        JsonNode rootNode = JsonEntryDialog.parseJson(StreamingInferenceTest.createNestedDocument(100000));
+        assertEquals("a", rootNode.get("reply").get("reply").get("text").asText());
+        assertEquals(1, rootNode.get("values").get(0).get(0).size());
+    }
+
+    @Test
+    public void reportErrorLocation() throws Exception {
+        try {
+            JsonEntryDialog.parseJson("{\n  \"a\": 1,\n  \"b\" 2\n}");
+            fail();
+        } catch (Exception e) {
+            assertTrue(JsonEntryDialog.formatJsonError(e).startsWith("Line 3, column 8: Unexpected character"));
+        }
+
+        try {
+            JsonEntryDialog.parseJson("{\"a\": 1} {");
+            fail();
+        } catch (Exception e) {
+            assertEquals("Line 1, column 10: Unexpected content after the JSON value",
+                    JsonEntryDialog.formatJsonError(e));
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+package net.hexar.json2pojo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class JsonSchemaInferenceTest {
+
+    private static final String SCHEMA = "{"
+            + "\"$schema\": \"http://json-schema.org/draft-07/schema#\","
+            + "\"type\": \"object\","
+            + "\"required\": [\"id\", \"tags\"],"
+            + "\"properties\": {"
+            + "  \"id\": {\"type\": \"integer\"},"
+            + "  \"score\": {\"type\": [\"number\", \"null\"]},"
+            + "  \"tags\": {\"type\": \"array\", \"items\": {\"type\": \"string\"}},"
+            + "  \"status\": {\"enum\": [\"active\", \"disabled\"]},"
+            + "  \"billing\": {\"$ref\": \"#/definitions/address\"},"
+            + "  \"shipping\": {\"$ref\": \"#/definitions/address\"},"
+            + "  \"items\": {\"type\": \"array\", \"items\": {\"type\": \"object\", \"properties\": {"
+            + "    \"count\": {\"oneOf\": [{\"type\": \"integer\"}, {\"type\": \"number\"}]}}}},"
+            + "  \"parent\": {\"$ref\": \"#\"}"
+            + "},"
+            + "\"definitions\": {"
+            + "  \"address\": {\"allOf\": [{\"$ref\": \"#/definitions/place\"},"
+            + "    {\"properties\": {\"zip\": {\"type\": \"string\"}}, \"required\": [\"zip\"]}]},"
+            + "  \"place\": {\"type\": \"object\", \"properties\": {\"city\": {\"type\": \"string\"}}}"
+            + "}}";
+
+    @Test
+    public void mapSchema() throws Exception {
+        InferredSchema schema = new JsonSchemaInference(new NameTable())
+                .infer(new ObjectMapper().readTree(SCHEMA), "Root");
+
+        InferredClass root = schema.findClass("Root");
+        assertEquals("LONG", root.getFields().get("id").toString());
+        assertEquals("DOUBLE?", root.getFields().get("score").toString());
+        assertEquals("List<STRING>", root.getFields().get("tags").toString());
+        assertEquals("STRING?", root.getFields().get("status").toString());
+        assertEquals("Address?", root.getFields().get("billing").toString());
+        assertEquals("Address?", root.getFields().get("shipping").toString());
+        assertEquals("List<Item>?", root.getFields().get("items").toString());
+        assertEquals("Root?", root.getFields().get("parent").toString());
+
+        assertEquals("STRING?", schema.findClass("Address").getFields().get("city").toString());
+        assertEquals("STRING", schema.findClass("Address").getFields().get("zip").toString());
+        assertEquals("DOUBLE?", schema.findClass("Item").getFields().get("count").toString());
+    }
+
+    @Test
+    public void detectSchemas() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        assertTrue(JsonSchemaInference.isJsonSchema(objectMapper.readTree(SCHEMA)));
+        assertFalse(JsonSchemaInference.isJsonSchema(objectMapper.readTree("{\"type\": \"object\"}")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectRemoteReferences() throws Exception {
+        new JsonSchemaInference(new NameTable()).infer(new ObjectMapper().readTree(
+                "{\"properties\": {\"a\": {\"$ref\": \"http://example.com/a.json\"}}}"), "Root");
+    }
+
+    @Test
+    public void mapRecursiveComposition() throws Exception {
+        InferredSchema schema = new JsonSchemaInference(new NameTable()).infer(new ObjectMapper().readTree("{"
+                + "\"properties\": {\"tree\": {\"$ref\": \"#/definitions/Node\"}},"
+                + "\"definitions\": {"
+                + "  \"Base\": {\"properties\": {\"id\": {\"type\": \"integer\"}}, \"required\": [\"id\"]},"
+                + "  \"Node\": {\"allOf\": [{\"$ref\": \"#/definitions/Base\"}, {\"properties\": {"
+                + "    \"children\": {\"type\": \"array\", \"items\": {\"$ref\": \"#/definitions/Node\"}},"
+                + "    \"next\": {\"anyOf\": [{\"type\": \"null\"}, {\"$ref\": \"#/definitions/Node\"}]}"
+                + "  }}]}"
+                + "}}"), "Root");
+
+        assertEquals("Node?", schema.findClass("Root").getFields().get("tree").toString());
+        InferredClass node = schema.findClass("Node");
+        assertEquals("LONG", node.getFields().get("id").toString());
+        assertEquals("List<Node>?", node.getFields().get("children").toString());
+        assertEquals("Node?", node.getFields().get("next").toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectRecursiveArrays() throws Exception {
+        new JsonSchemaInference(new NameTable()).infer(new ObjectMapper().readTree(
+                "{\"properties\": {\"a\": {\"$ref\": \"#/definitions/Nested\"}}, \"definitions\": "
+                        + "{\"Nested\": {\"type\": \"array\", \"items\": {\"$ref\": \"#/definitions/Nested\"}}}}"),
+                "Root");
+    }
+
+}
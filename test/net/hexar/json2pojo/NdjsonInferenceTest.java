@@ -0,0 +1,78 @@
+package net.hexar.json2pojo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+
+public class NdjsonInferenceTest {
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void mergeAllRecords() throws Exception {
+        Path file = writeRecords(200);
+        InferredSchema schema = infer(file, GenerationOptions.DEFAULT, 64);
+
+        InferredClass root = schema.findClass("Root");
+        assertEquals("LONG", root.getFields().get("id").toString());
+        assertEquals("DOUBLE?", root.getFields().get("score").toString());
+        assertEquals("Owner?", root.getFields().get("owner").toString());
+        assertEquals("STRING", schema.findClass("Owner").getFields().get("name").toString());
+        assertEquals("BOOLEAN", schema.findClass("Owner").getFields().get("admin").toString());
+    }
+
+    @Test
+    public void sampleIndependentlyOfChunks() throws Exception {
+        Path file = writeRecords(500);
+        GenerationOptions options = new GenerationOptions.Builder().withRecordSampling(0.1).build();
+
+        InferredSchema small = infer(file, options, 100);
+        InferredSchema large = infer(file, options, 1 << 20);
+        assertEquals(large.findClass("Root").getFields(), small.findClass("Root").getFields());
+        assertEquals(large.findClass("Owner").getFields(), small.findClass("Owner").getFields());
+    }
+
+    @Test
+    public void detectFileExtensions() throws Exception {
+        assertTrue(NdjsonInference.isNdjsonFile(Paths.get("logs/events.ndjson")));
+        assertTrue(NdjsonInference.isNdjsonFile(Paths.get("events.JSONL")));
+        assertFalse(NdjsonInference.isNdjsonFile(Paths.get("events.json")));
+    }
+
+    private Path writeRecords(int count) throws Exception {
+        StringBuilder records = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            records.append("{\"id\": ").append(i);
+            if (i % 7 == 0) {
+                records.append(", \"score\": ").append(i % 2 == 0 ? "1.5" : "null");
+            } else if (i % 5 == 0) {
+                records.append(", \"owner\": {\"name\": \"n").append(i).append("\", \"admin\": true}");
+            } else if (i % 11 == 0) {
+                records.append(", \"owner\": null");
+            }
+            records.append("}\n");
+            if (i % 13 == 0) {
+                records.append('\n');
+            }
+        }
+        Path file = mTemporaryFolder.newFile("records.ndjson").toPath();
+        Files.write(file, records.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static InferredSchema infer(Path file, GenerationOptions options, int chunkSize) throws Exception {
+        return new NdjsonInference(options, new NameTable(), ForkJoinPool.commonPool(), ProgressListener.NONE,
+                chunkSize).infer(file, "Root");
+    }
+
+}
@@ -0,0 +1,32 @@
+package net.hexar.json2pojo;
+
+import org.junit.Test;
+
+import static net.hexar.json2pojo.InferredType.Kind.*;
+import static org.junit.Assert.*;
+
+
+public class NumberKindsTest {
+
+    @Test
+    public void classifyDecimalsByPrecision() throws Exception {
+        assertEquals(FLOAT, NumberKinds.ofDecimal("0.0"));
+        assertEquals(FLOAT, NumberKinds.ofDecimal("-123.456"));
+        assertEquals(FLOAT, NumberKinds.ofDecimal("1.500000000"));
+        assertEquals(DOUBLE, NumberKinds.ofDecimal("1234.567"));
+        assertEquals(DOUBLE, NumberKinds.ofDecimal("0.30000000000000004"));
+        assertEquals(DECIMAL, NumberKinds.ofDecimal("0.30000000000000001"));
+        assertEquals(DECIMAL, NumberKinds.ofDecimal("3.14159265358979323846"));
+    }
+
+    @Test
+    public void classifyDecimalsByRange() throws Exception {
+        assertEquals(FLOAT, NumberKinds.ofDecimal("1.5e37"));
+        assertEquals(FLOAT, NumberKinds.ofDecimal("0.00015E-33"));
+        assertEquals(DOUBLE, NumberKinds.ofDecimal("1.5e38"));
+        assertEquals(DOUBLE, NumberKinds.ofDecimal("-2E-300"));
+        assertEquals(DECIMAL, NumberKinds.ofDecimal("1e400"));
+        assertEquals(DECIMAL, NumberKinds.ofDecimal("1e-99999999999"));
+    }
+
+}
@@ -0,0 +1,87 @@
+package net.hexar.json2pojo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+
+public class ParallelInferenceTest {
+
+    @Test
+    public void matchStreamingInference() throws Exception {
+        assertSameSchema(createDocument(), GenerationOptions.DEFAULT);
+    }
+
+    @Test
+    public void matchStreamingSampling() throws Exception {
+        assertSameSchema(createDocument(), new GenerationOptions.Builder().withSampling(10, 0.01).build());
+    }
+
+    @Test
+    public void matchStreamingMaps() throws Exception {
+        StringBuilder json = new StringBuilder("{\"users\": {");
+        for (int i = 0; i < 600; i++) {
+            json.append(i == 0 ? "" : ",").append("\"").append(1000 + i).append("\": ");
+            json.append(i % 3 == 0 ? "null" : "{\"id\": " + i + (i % 5 == 0 ? ", \"extra\": true" : "") + "}");
+        }
+        json.append("}, \"mixed\": {\"1\": 1, \"2\": {\"a\": 1}}, \"named\": {\"3\": {\"a\": 1}, \"b\": 2}}");
+        assertSameSchema(json.toString(), new GenerationOptions.Builder().withMinMapKeys(1).build());
+    }
+
+    @Test
+    public void matchStreamingNarrowNumbers() throws Exception {
+        assertSameSchema("{\"a\": 1.00000000000000000001, \"b\": 0.1000000000000000055511151231257827, \"c\": 1e400, "
+                + "\"d\": 0.5, \"e\": 1234.567, \"f\": 1.50, \"g\": [7, 100000000000, 100000000000000000000]}",
+                new GenerationOptions.Builder().withNarrowNumbers(true).build());
+    }
+
+    @Test
+    public void matchStreamingDeepNesting() throws Exception {
+        assertSameSchema(StreamingInferenceTest.createNestedDocument(100000), GenerationOptions.DEFAULT);
+    }
+
+    private static String createDocument() {
+        StringBuilder json = new StringBuilder("{\"items\": [");
+        for (int i = 0; i < 5000; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\": ").append(i);
+            json.append(", \"value\": ").append(i % 7 == 0 ? "1.5" : "2");
+            json.append(i % 1000 == 999 ? ", \"rare_" + i + "\": true" : "").append("}");
+        }
+        json.append("], \"wide\": {");
+        for (int i = 0; i < 600; i++) {
+            json.append(i == 0 ? "" : ",").append("\"field").append(i).append("\": ");
+            json.append(i % 2 == 0 ? "null" : "{\"x\": " + i + "}");
+        }
+        return json.append("}}").toString();
+    }
+
+    private static void assertSameSchema(String json, GenerationOptions options) throws Exception {
+        InferredSchema expected;
+        try (JsonParser parser = new JsonFactory().createParser(json)) {
+            expected = new StreamingInference(options, new NameTable()).infer(parser, "Root");
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        InferredSchema actual;
+        try (JsonParser parser = new JsonFactory().createParser(json)) {
+            actual = new ParallelInference(options, new NameTable(), pool)
+                    .infer(JsonTreeReader.readTree(parser), "Root");
+        }
+        pool.shutdown();
+
+        assertEquals(expected.getClasses().size(), actual.getClasses().size());
+        for (InferredClass expectedClass : expected.getClasses()) {
+            InferredClass actualClass = actual.findClass(expectedClass.getName());
+            assertNotNull(expectedClass.getName(), actualClass);
+            assertEquals(expectedClass.getFields(), actualClass.getFields());
+            assertEquals(expectedClass.getObjectCount(), actualClass.getObjectCount());
+            for (String propertyName : expectedClass.getFields().keySet()) {
+                assertEquals(expectedClass.getPresentCount(propertyName), actualClass.getPresentCount(propertyName));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package net.hexar.json2pojo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+
+public class PojoEmitterTest {
+
+    private static final String SAMPLE = "{\"id\": 1, \"ratio\": 0.5, \"done\": true, \"tags\": [\"a\", \"b\"], "
+            + "\"ids\": [1, 2], \"child\": {\"name\": \"c\"}}";
+
+    private static final GenerationOptions IMMUTABLE_OPTIONS = new GenerationOptions.Builder()
+            .withImmutable(true).withPrimitives(true).withJacksonCodecs(true).build();
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void compareImmutableClassesByValue() throws Exception {
+        try (URLClassLoader classLoader = GeneratedClasses.compile(SAMPLE, IMMUTABLE_OPTIONS,
+                mTemporaryFolder.newFolder())) {
+            Object first = read(classLoader, SAMPLE);
+            Object second = read(classLoader, SAMPLE);
+            Object other = read(classLoader, SAMPLE.replace("\"c\"", "\"d\""));
+            assertNotSame(first, second);
+            assertEquals(first, second);
+            assertEquals(first.hashCode(), second.hashCode());
+            assertNotEquals(first, other);
+
+            Set<Object> set = new HashSet<>(Arrays.asList(first, second, other));
+            assertEquals(2, set.size());
+        }
+    }
+
+    @Test
+    public void copyMutableValues() throws Exception {
+        try (URLClassLoader classLoader = GeneratedClasses.compile(SAMPLE, IMMUTABLE_OPTIONS,
+                mTemporaryFolder.newFolder())) {
+            Object root = read(classLoader, SAMPLE);
+            Class<?> rootClass = root.getClass();
+            assertTrue(Modifier.isFinal(rootClass.getDeclaredField("mTags").getModifiers()));
+            assertEquals(0, rootClass.getConstructors().length);
+
+            // Lists cannot be changed
+            List<?> tags = (List<?>) rootClass.getMethod("getTags").invoke(root);
+            try {
+                tags.clear();
+                fail("Expected an unmodifiable list");
+            } catch (UnsupportedOperationException e) {
+                // Expected
+            }
+
+            // Arrays are copied out
+            Method getIds = rootClass.getMethod("getIds");
+            ((long[]) getIds.invoke(root))[0] = 5;
+            assertArrayEquals(new long[] { 1, 2 }, (long[]) getIds.invoke(root));
+        }
+    }
+
+    /**
+     * Reads an instance of the root class with its generated codec.
+     */
+    private static Object read(ClassLoader classLoader, String json) throws Exception {
+        Method read = classLoader.loadClass("com.example.Root$JsonCodec").getMethod("read", JsonParser.class);
+        try (JsonParser parser = new JsonFactory().createParser(json)) {
+            return read.invoke(null, parser);
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package net.hexar.json2pojo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class SchemaModelTest {
+
+    @Test
+    public void countObjectsAndProperties() throws Exception {
+        SchemaModel model = SchemaModel.of(StreamingInferenceTest.infer(
+                "{\"items\": [{\"id\": 1, \"name\": null}, {\"id\": 2}, {\"id\": 3, \"name\": \"c\"}]}",
+                GenerationOptions.DEFAULT));
+
+        assertEquals(2, model.getClasses().size());
+        assertEquals(3, model.getFieldCount());
+
+        SchemaModel.ClassModel root = model.findClass("Root");
+        assertEquals(1, root.ObjectCount);
+        assertEquals("items", root.Fields.get(0).PropertyName);
+        assertEquals(1, root.Fields.get(0).PresentCount);
+
+        SchemaModel.ClassModel item = model.findClass("Item");
+        assertEquals(3, item.ObjectCount);
+        assertEquals("id", item.Fields.get(0).PropertyName);
+        assertEquals(3, item.Fields.get(0).PresentCount);
+        assertEquals("name", item.Fields.get(1).PropertyName);
+        assertEquals(2, item.Fields.get(1).PresentCount);
+        assertTrue(item.Fields.get(1).Type.isNullable());
+    }
+
+    @Test
+    public void sumStatisticsOfDeduplicatedClasses() throws Exception {
+        InferredSchema schema = StreamingInferenceTest.infer(
+                "{\"home\": {\"city\": \"a\"}, \"work\": [{\"city\": \"b\"}, {\"city\": \"c\"}]}",
+                GenerationOptions.DEFAULT);
+        SchemaModel model = SchemaModel.of(StructuralDeduplication.deduplicate(schema));
+
+        assertEquals("Home", model.getAliases().get("Work"));
+        SchemaModel.ClassModel home = model.findClass("Home");
+        assertEquals(3, home.ObjectCount);
+        assertEquals(3, home.Fields.get(0).PresentCount);
+    }
+
+    @Test
+    public void keepModelImmutable() throws Exception {
+        InferredSchema schema = StreamingInferenceTest.infer("{\"id\": 1}", GenerationOptions.DEFAULT);
+        SchemaModel model = SchemaModel.of(schema);
+        schema.findClass("Root").addField("name", InferredType.of(InferredType.Kind.STRING));
+
+        assertEquals(1, model.findClass("Root").Fields.size());
+        try {
+            model.getClasses().clear();
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertEquals(1, model.getClasses().size());
+        }
+    }
+
+}
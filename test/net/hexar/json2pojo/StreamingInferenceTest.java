@@ -0,0 +1,190 @@
+package net.hexar.json2pojo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+
+public class StreamingInferenceTest {
+
+    @Test
+    public void mergeAllArrayElements() throws Exception {
+        InferredSchema schema = infer("{\"values\": [1, 2.5], \"items\": [{\"a\": 1}, {\"a\": null, \"b\": \"x\"}]}",
+                GenerationOptions.DEFAULT);
+
+        InferredClass root = schema.findClass("Root");
+        assertEquals("List<DOUBLE>", root.getFields().get("values").toString());
+        assertEquals("List<Item>", root.getFields().get("items").toString());
+
+        InferredClass item = schema.findClass("Item");
+        assertEquals("LONG?", item.getFields().get("a").toString());
+        assertEquals("STRING", item.getFields().get("b").toString());
+    }
+
+    @Test
+    public void mergeIncompatibleTypes() throws Exception {
+        InferredSchema schema = infer("{\"mixed\": [1, \"a\"], \"nested\": [[1], [null]], \"empty\": []}",
+                GenerationOptions.DEFAULT);
+
+        InferredClass root = schema.findClass("Root");
+        assertEquals("List<MIXED>", root.getFields().get("mixed").toString());
+        assertEquals("List<List<LONG?>>", root.getFields().get("nested").toString());
+        assertEquals("List<UNKNOWN>", root.getFields().get("empty").toString());
+    }
+
+    @Test
+    public void sampleArrayHead() throws Exception {
+        GenerationOptions options = new GenerationOptions.Builder().withSampling(2, 0).build();
+        InferredSchema schema = infer("{\"items\": [{\"a\": 1}, {\"b\": 2}, {\"c\": 3}], \"values\": [1, 2, 3.5]}",
+                options);
+
+        assertEquals(2, schema.findClass("Item").getFields().size());
+        assertEquals("List<LONG>", schema.findClass("Root").getFields().get("values").toString());
+    }
+
+    @Test
+    public void narrowNumbers() throws Exception {
+        GenerationOptions options = new GenerationOptions.Builder().withNarrowNumbers(true).build();
+        InferredSchema schema = infer("{\"count\": 7, \"id\": 5000000000, \"big\": 100000000000000000000, "
+                + "\"ratio\": 0.25, \"precise\": 0.1234567, \"exact\": 0.12345678901234567890, "
+                + "\"mixed\": [1, 5000000000], \"scores\": [1, 0.5]}", options);
+
+        InferredClass root = schema.findClass("Root");
+        assertEquals("INT", root.getFields().get("count").toString());
+        assertEquals("LONG", root.getFields().get("id").toString());
+        assertEquals("DECIMAL", root.getFields().get("big").toString());
+        assertEquals("FLOAT", root.getFields().get("ratio").toString());
+        assertEquals("DOUBLE", root.getFields().get("precise").toString());
+        assertEquals("DECIMAL", root.getFields().get("exact").toString());
+        assertEquals("List<LONG>", root.getFields().get("mixed").toString());
+        assertEquals("List<DOUBLE>", root.getFields().get("scores").toString());
+    }
+
+    @Test
+    public void widenLongsBeyondDoublesToDecimals() throws Exception {
+        GenerationOptions options = new GenerationOptions.Builder().withNarrowNumbers(true).build();
+        InferredSchema schema = infer("{\"exact\": [9007199254740992, 0.5], \"wide\": [9007199254740993, 0.5], "
+                + "\"negative\": [-9007199254740993, 1], \"id\": 9223372036854775807}", options);
+
+        InferredClass root = schema.findClass("Root");
+        assertEquals("List<DOUBLE>", root.getFields().get("exact").toString());
+        assertEquals("List<DECIMAL>", root.getFields().get("wide").toString());
+        assertEquals("List<WIDE_LONG>", root.getFields().get("negative").toString());
+        assertEquals("WIDE_LONG", root.getFields().get("id").toString());
+    }
+
+    @Test
+    public void trackStringValues() throws Exception {
+        GenerationOptions options = new GenerationOptions.Builder().withMaxEnumValues(2).build();
+        InferredSchema schema = infer("{\"items\": [{\"a\": \"x\", \"b\": \"x\"}, {\"a\": \"y\", \"b\": \"y\"}, "
+                + "{\"a\": null, \"b\": \"z\"}], \"tags\": [\"c\", \"c\"]}", options);
+
+        InferredClass item = schema.findClass("Item");
+        assertEquals(new TreeSet<>(Arrays.asList("x", "y")), item.getFields().get("a").getValues());
+        assertTrue(item.getFields().get("a").isNullable());
+        assertNull(item.getFields().get("b").getValues());
+        assertEquals(Collections.singleton("c"),
+                schema.findClass("Root").getFields().get("tags").getElementType().getValues());
+    }
+
+    @Test
+    public void inferDynamicKeysAsMaps() throws Exception {
+        GenerationOptions options = new GenerationOptions.Builder().withMinMapKeys(2).build();
+        InferredSchema schema = infer("{\"users\": {\"1001\": {\"name\": \"a\"}, \"1002\": {\"age\": 3}}, "
+                + "\"scores\": {\"123e4567-e89b-12d3-a456-426614174000\": [1, 2], "
+                + "\"00000000-0000-0000-0000-000000000000\": null}, "
+                + "\"mixed\": {\"1\": 1, \"2\": \"a\"}, \"single\": {\"7\": true}, "
+                + "\"named\": {\"1\": true, \"name\": \"x\"}}", options);
+
+        InferredClass root = schema.findClass("Root");
+        assertEquals("Map<User>", root.getFields().get("users").toString());
+        assertEquals("Map<List<LONG>?>", root.getFields().get("scores").toString());
+        assertEquals(2, schema.findClass("User").getObjectCount());
+        assertEquals(2, schema.findClass("User").getFields().size());
+
+        // Values of different kinds, too few keys and property names make classes
+        assertEquals("Mixed", root.getFields().get("mixed").toString());
+        assertEquals(2, schema.findClass("Mixed").getFields().size());
+        assertEquals("Single", root.getFields().get("single").toString());
+        assertEquals("Named", root.getFields().get("named").toString());
+        assertNull(schema.findClass("Users"));
+    }
+
+    @Test
+    public void keepBoundedPrefixOfMapKeys() throws Exception {
+        GenerationOptions options = new GenerationOptions.Builder().withMinMapKeys(2).build();
+        StringBuilder json = new StringBuilder("{\"users\": {");
+        for (int i = 0; i < 1000; i++) {
+            json.append('"').append(1000 + i).append("\": {\"id\": ").append(i).append("}, ");
+        }
+        json.append("\"name\": \"x\"}}");
+        InferredSchema schema = infer(json.toString(), options);
+
+        // Only the first keys are kept while the object may be a map, and all fields after it was found not to be
+        InferredClass users = schema.findClass("Users");
+        assertEquals(65, users.getFields().size());
+        assertEquals("User", users.getFields().get("1000").toString());
+        assertEquals("User", users.getFields().get("1063").toString());
+        assertNull(users.getFields().get("1064"));
+        assertEquals("STRING", users.getFields().get("name").toString());
+    }
+
+    @Test
+    public void inferDeeplyNestedDocuments() throws Exception {
+        InferredSchema schema = infer(createNestedDocument(100000), GenerationOptions.DEFAULT);
+
+        // The recursive property maps back to the same class at every level
+        assertEquals(2, schema.getClasses().size());
+        InferredClass reply = schema.findClass("Reply");
+        assertEquals(100000, reply.getObjectCount());
+        assertEquals("Reply?", reply.getFields().get("reply").toString());
+
+        // Lists nested deeper than the limit hold values of any type
+        InferredType values = schema.findClass("Root").getFields().get("values");
+        int depth = 0;
+        for (; values.getKind() == InferredType.Kind.LIST; values = values.getElementType()) {
+            depth++;
+        }
+        assertTrue(depth <= InferredType.MAX_DEPTH);
+        assertEquals(InferredType.Kind.MIXED, values.getKind());
+    }
+
+    /**
+     * Creates a document with a thread of replies and an array that are both nested the given number of levels.
+     */
+    static String createNestedDocument(int depth) {
+        StringBuilder json = new StringBuilder("{\"values\": ");
+        for (int i = 0; i < depth; i++) {
+            json.append('[');
+        }
+        json.append('1');
+        for (int i = 0; i < depth; i++) {
+            json.append(']');
+        }
+        json.append(", \"reply\": ");
+        for (int i = 0; i < depth; i++) {
+            json.append("{\"text\": \"a\", \"reply\": ");
+        }
+        json.append("null");
+        for (int i = 0; i < depth; i++) {
+            json.append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Infers the classes of a JSON text with a root class named "Root", for the tests of the later stages.
+     */
+    static InferredSchema infer(String json, GenerationOptions options) throws Exception {
+        try (JsonParser parser = new JsonFactory().createParser(json)) {
+            return new StreamingInference(options, new NameTable()).infer(parser, "Root");
+        }
+    }
+
+}
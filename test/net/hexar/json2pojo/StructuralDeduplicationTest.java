@@ -0,0 +1,47 @@
+package net.hexar.json2pojo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+public class StructuralDeduplicationTest {
+
+    @Test
+    public void mergeIdenticalShapes() throws Exception {
+        InferredSchema schema = StructuralDeduplication.deduplicate(StreamingInferenceTest.infer(
+                "{\"shipping\": {\"city\": \"a\"}, \"billing\": {\"city\": \"b\"}, \"home\": {\"city\": null}, "
+                + "\"work\": {\"city\": \"c\", \"floor\": 1}}", GenerationOptions.DEFAULT));
+
+        // Only null was seen for the city of the home, so its shape differs
+        assertEquals(Arrays.asList("Root", "Billing", "Home", "Work"), getClassNames(schema));
+        assertEquals("Billing", schema.findClass("Root").getFields().get("shipping").toString());
+        assertEquals("Billing", schema.findClass("Root").getFields().get("billing").toString());
+        assertEquals("Billing", schema.getAliases().get("Shipping"));
+    }
+
+    @Test
+    public void mergeNestedShapes() throws Exception {
+        InferredSchema schema = StructuralDeduplication.deduplicate(StreamingInferenceTest.infer(
+                "{\"item\": {\"a\": 1, \"left\": {\"b\": 2}}, \"items\": [{\"a\": 1, \"right\": {\"b\": 2}}], "
+                + "\"other\": {\"a\": 1, \"down\": {\"c\": 2}}}", GenerationOptions.DEFAULT));
+
+        assertNull(schema.findClass("Right"));
+        assertEquals("List<Item>", schema.findClass("Root").getFields().get("items").toString());
+        assertEquals("Left", schema.findClass("Item").getFields().get("left").toString());
+        assertEquals("Down", schema.findClass("Other").getFields().get("down").toString());
+    }
+
+    private static List<String> getClassNames(InferredSchema schema) {
+        List<String> classNames = new ArrayList<>();
+        for (InferredClass clazz : schema.getClasses()) {
+            classNames.add(clazz.getName());
+        }
+        return classNames;
+    }
+
+}
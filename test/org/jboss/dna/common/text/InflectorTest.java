@@ -0,0 +1,75 @@
+package org.jboss.dna.common.text;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+
+public class InflectorTest {
+
+    private static final String[][] SINGULARS = {
+            { "posts", "post" }, { "addresses", "address" }, { "phone_numbers", "phone_number" },
+            { "octopi", "octopus" }, { "people", "person" }, { "children", "child" }, { "statuses", "status" },
+            { "matrices", "matrix" }, { "indices", "index" }, { "analyses", "analysis" }, { "wives", "wife" },
+            { "oxen", "ox" }, { "quizzes", "quiz" }, { "sheep", "sheep" }, { "Items", "Item" }, { "data", "datum" }
+    };
+
+    @Test
+    public void singularize() throws Exception {
+        Inflector inflector = Inflector.getInstance();
+        for (String[] pair : SINGULARS) {
+            // Twice, to also hit the memoized result
+            assertEquals(pair[1], inflector.singularize(pair[0]));
+            assertEquals(pair[1], inflector.singularize(pair[0]));
+        }
+    }
+
+    @Test
+    public void addedRulesTakePrecedence() throws Exception {
+        Inflector inflector = new Inflector();
+        assertEquals("cactus", inflector.singularize("cactus"));
+        inflector.addIrregular("cactus", "cacti");
+        assertEquals("cactus", inflector.singularize("cacti"));
+        assertEquals("cacti", inflector.pluralize("cactus"));
+    }
+
+    @Test
+    public void literalSuffix() throws Exception {
+        assertEquals("s", Inflector.literalSuffix("s$"));
+        assertEquals("ses", Inflector.literalSuffix("(^analy)ses$"));
+        assertEquals("", Inflector.literalSuffix("(alias|status)$"));
+        assertEquals("", Inflector.literalSuffix("(matr|vert|ind)ix|ex$"));
+        assertEquals("", Inflector.literalSuffix("^(ox)en"));
+        assertEquals("a", Inflector.literalSuffix("\\sa$"));
+    }
+
+    @Test
+    public void concurrentSingularize() throws Exception {
+        Inflector inflector = Inflector.getInstance();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    String[] pair = SINGULARS[i % SINGULARS.length];
+                    if (!pair[1].equals(inflector.singularize(pair[0]))
+                            || !("item" + i).equals(inflector.singularize("item" + i + "s"))) {
+                        return false;
+                    }
+                }
+                return true;
+            }));
+        }
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        executor.shutdown();
+    }
+
+}